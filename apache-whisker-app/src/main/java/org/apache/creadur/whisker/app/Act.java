@@ -30,7 +30,11 @@ public enum Act {
     /** Writes report on directories. */
     REPORT(true),
     /** Outlines the directory structure. */
-    SKELETON(true);
+    SKELETON(true),
+    /** Validates contents against meta-data, again whenever they change. */
+    WATCH(true),
+    /** Reports every problem in the meta-data. */
+    DIAGNOSE(false);
 
     /** Is the source required to perform this operation? */
     private final boolean isSourceRequired;
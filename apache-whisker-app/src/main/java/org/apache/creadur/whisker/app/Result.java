@@ -33,7 +33,9 @@ public enum Result {
     /** Starting point for meta-data development. */
     XML_TEMPLATE("manifest-template.xml"),
     /** Describes the directories in the source. */
-    DIRECTORIES_REPORT("directories.txt");
+    DIRECTORIES_REPORT("directories.txt"),
+    /** Describes every problem in the meta-data. */
+    DESCRIPTOR_DIAGNOSTICS("descriptor-diagnostics.txt");
 
     /** Conventional name for the result. */
     private final String name;
@@ -20,6 +20,7 @@ package org.apache.creadur.whisker.app;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
 
 /**
  * A resource capable of being opened as a stream.
@@ -32,4 +33,14 @@ public abstract class StreamableResource {
      * @throws IOException when resource cannot be opened as a stream
      */
     public abstract InputStream open() throws IOException;
+
+    /**
+     * Locates the resource, so that resources it refers to
+     * by relative name can be found.
+     * @return null when the resource cannot be located
+     * @throws IOException when the resource cannot be located
+     */
+    public URL getLocation() throws IOException {
+        return null;
+    }
 }
@@ -21,15 +21,28 @@ package org.apache.creadur.whisker.app;
 import static org.apache.creadur.whisker.app.LicenseConfiguration.*;
 import static org.apache.creadur.whisker.app.ConfigurationBuilder.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.creadur.whisker.app.analysis.LicenseAnalyst;
-import org.apache.creadur.whisker.fromxml.JDomBuilder;
+import org.apache.creadur.whisker.fromxml.DescriptorCache;
+import org.apache.creadur.whisker.fromxml.Diagnostics;
+import org.apache.creadur.whisker.fromxml.StaxBuilder;
 import org.apache.creadur.whisker.model.Descriptor;
 import org.apache.creadur.whisker.scan.Directory;
+import org.apache.creadur.whisker.scan.FromArchive;
 import org.apache.creadur.whisker.scan.FromFileSystem;
+import org.apache.creadur.whisker.scan.JarInspector;
+import org.apache.creadur.whisker.scan.ResourceHasher;
+import org.apache.creadur.whisker.scan.ScanFilter;
+import org.apache.creadur.whisker.scan.WatchedDirectories;
 
 
 /**
@@ -49,6 +62,188 @@ public class Whisker {
     private AbstractEngine engine;
     /** Configuration options for license rendering */
     private LicenseConfiguration licenseConfiguration = DEFAULT_LICENSE_CONFIGURATION;
+    /** Number of threads scanning the source. */
+    private int scanThreads = FromFileSystem.DEFAULT_THREADS;
+    /** Levels of nested archives descended into when the source is an archive. */
+    private int archiveNestingDepth = FromArchive.DEFAULT_NESTING_DEPTH;
+    /** Snapshot of the last scan of the source, possibly null. */
+    private File scanSnapshot;
+    /** Directory caching descriptor snapshots, possibly null. */
+    private File descriptorCache;
+    /** Glob patterns for resources scanned, empty for all. */
+    private Collection<String> scanIncludes = Collections.<String>emptyList();
+    /** Glob patterns for resources and directories not scanned. */
+    private Collection<String> scanExcludes = Collections.<String>emptyList();
+    /** Are the contents of resources scanned hashed? */
+    private boolean hashResources;
+    /** Are the jars scanned inspected for licensing metadata? */
+    private boolean inspectJars;
+
+    /**
+     * Are the jars scanned inspected for licensing metadata?
+     * @return true when jars are inspected, false otherwise
+     */
+    public final boolean isInspectJars() {
+        return inspectJars;
+    }
+
+    /**
+     * Sets whether the jars scanned are inspected, in parallel,
+     * for the licensing metadata embedded in their manifests
+     * and Maven properties, when reporting or creating skeleton
+     * meta-data. Only jars within a source directory are inspected,
+     * not those within an archive.
+     * @param inspectJars true when jars should be inspected
+     * @return this, not null
+     */
+    public final Whisker setInspectJars(final boolean inspectJars) {
+        this.inspectJars = inspectJars;
+        return this;
+    }
+
+    /**
+     * Are the contents of resources scanned hashed?
+     * @return true when resources are hashed, false otherwise
+     */
+    public final boolean isHashResources() {
+        return hashResources;
+    }
+
+    /**
+     * Sets whether the contents of resources scanned are hashed,
+     * in parallel, when reporting or creating skeleton meta-data.
+     * Only resources within a source directory are hashed,
+     * not those within an archive.
+     * @param hashResources true when resources should be hashed
+     * @return this, not null
+     */
+    public final Whisker setHashResources(final boolean hashResources) {
+        this.hashResources = hashResources;
+        return this;
+    }
+
+    /**
+     * Gets the glob patterns for resources scanned.
+     * @return not null, empty when every resource is scanned
+     */
+    public final Collection<String> getScanIncludes() {
+        return scanIncludes;
+    }
+
+    /**
+     * Sets the glob patterns for resources scanned,
+     * relative to the source.
+     * When auditing, these are added to any given
+     * by the license descriptor.
+     * @param scanIncludes not null, empty when every
+     * resource should be scanned
+     * @return this, not null
+     */
+    public final Whisker setScanIncludes(final Collection<String> scanIncludes) {
+        this.scanIncludes = scanIncludes;
+        return this;
+    }
+
+    /**
+     * Gets the glob patterns for resources and directories not scanned.
+     * @return not null, possibly empty
+     */
+    public final Collection<String> getScanExcludes() {
+        return scanExcludes;
+    }
+
+    /**
+     * Sets the glob patterns for resources and directories not scanned,
+     * relative to the source. Excluded directories are
+     * never listed, so large generated trees cost nothing.
+     * When auditing, these are added to any given
+     * by the license descriptor.
+     * @param scanExcludes not null, possibly empty
+     * @return this, not null
+     */
+    public final Whisker setScanExcludes(final Collection<String> scanExcludes) {
+        this.scanExcludes = scanExcludes;
+        return this;
+    }
+
+    /**
+     * Gets the file storing a snapshot of the last scan of the source.
+     * @return null when the source is completely scanned every time
+     */
+    public final File getScanSnapshot() {
+        return scanSnapshot;
+    }
+
+    /**
+     * Sets the file storing a snapshot of the last scan of the source.
+     * Only directories modified since are then listed.
+     * @param scanSnapshot null when the source should be
+     * completely scanned every time
+     * @return this, not null
+     */
+    public final Whisker setScanSnapshot(final File scanSnapshot) {
+        this.scanSnapshot = scanSnapshot;
+        return this;
+    }
+
+    /**
+     * Gets the directory caching snapshots of descriptors loaded.
+     * @return null when descriptors are parsed every time
+     */
+    public final File getDescriptorCache() {
+        return descriptorCache;
+    }
+
+    /**
+     * Sets the directory caching snapshots of descriptors loaded.
+     * A descriptor whose xml matches a snapshot is then read
+     * from the snapshot, without parsing.
+     * @param descriptorCache null when descriptors should be
+     * parsed every time
+     * @return this, not null
+     */
+    public final Whisker setDescriptorCache(final File descriptorCache) {
+        this.descriptorCache = descriptorCache;
+        return this;
+    }
+
+    /**
+     * Gets the levels of nested archives descended into
+     * when the source is an archive.
+     * @return zero when nested archives are not descended into
+     */
+    public final int getArchiveNestingDepth() {
+        return archiveNestingDepth;
+    }
+
+    /**
+     * Sets the levels of nested archives descended into
+     * when the source is an archive.
+     * @param archiveNestingDepth zero or more
+     * @return this, not null
+     */
+    public final Whisker setArchiveNestingDepth(final int archiveNestingDepth) {
+        this.archiveNestingDepth = archiveNestingDepth;
+        return this;
+    }
+
+    /**
+     * Gets the number of threads scanning the source.
+     * @return at least one
+     */
+    public final int getScanThreads() {
+        return scanThreads;
+    }
+
+    /**
+     * Sets the number of threads scanning the source.
+     * @param scanThreads at least one
+     * @return this, not null
+     */
+    public final Whisker setScanThreads(final int scanThreads) {
+        this.scanThreads = scanThreads;
+        return this;
+    }
 
     /**
      * Gets the configuration options for license rendering.
@@ -170,6 +365,10 @@ public class Whisker {
                 return validate();
             case SKELETON:
                 return skeleton();
+            case WATCH:
+                return watch();
+            case DIAGNOSE:
+                return diagnose();
             case GENERATE:
             default:
                 return generate();
@@ -182,7 +381,7 @@ public class Whisker {
      * @return this, not null
      */
     private Whisker skeleton() throws Exception {
-        engine.skeleton(directories(), getWriterFactory(), configuration());
+        engine.skeleton(directories(scanFilter()), getWriterFactory(), configuration());
         return this;
     }
 
@@ -200,7 +399,7 @@ public class Whisker {
      * @throws Exception when the report creation fails
      */
     private Whisker report() throws Exception {
-        engine.report(directories(), getWriterFactory(), configuration());
+        engine.report(directories(scanFilter()), getWriterFactory(), configuration());
         return this;
     }
 
@@ -220,17 +419,122 @@ public class Whisker {
      * @throws Exception when the validation fails
      */
     private Whisker validate() throws Exception {
-        engine.validate(new LicenseAnalyst(directories()).analyse(load(getLicenseDescriptor())), getWriterFactory(), configuration());
+        final Descriptor descriptor = load(getLicenseDescriptor());
+        engine.validate(new LicenseAnalyst(directoriesToAnalyse(scanFilter(descriptor))).analyse(descriptor), getWriterFactory(), configuration());
+        return this;
+    }
+
+    /**
+     * Writes a validation report, then watches the source,
+     * writing another whenever resources are added,
+     * removed or renamed. Only changed directories are
+     * scanned and analysed again.
+     * Returns only when interrupted.
+     * @return this, not null
+     * @throws Exception when the validation fails
+     */
+    private Whisker watch() throws Exception {
+        final Descriptor descriptor = load(getLicenseDescriptor());
+        final WatchedDirectories directories = new WatchedDirectories(
+                getSource(), scanFilter(descriptor));
+        try {
+            final LicenseAnalyst analyst = new LicenseAnalyst(
+                    directories.getDirectories()).analyse(descriptor);
+            engine.validate(analyst, getWriterFactory(), configuration());
+            while (!Thread.currentThread().isInterrupted()) {
+                final Collection<String> changed =
+                        directories.poll(1, TimeUnit.MINUTES);
+                for (final String name: changed) {
+                    analyst.reanalyse(descriptor, name,
+                            directories.getDirectory(name));
+                }
+                if (!changed.isEmpty()) {
+                    engine.validate(analyst, getWriterFactory(), configuration());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            directories.close();
+        }
         return this;
     }
 
+    /**
+     * Compiles the patterns selecting the resources scanned.
+     * @return not null
+     */
+    private ScanFilter scanFilter() {
+        return new ScanFilter(getScanIncludes(), getScanExcludes());
+    }
+
+    /**
+     * Compiles the patterns selecting the resources scanned,
+     * combining those set with those in the given descriptor.
+     * @param descriptor not null
+     * @return not null
+     */
+    private ScanFilter scanFilter(final Descriptor descriptor) {
+        final Collection<String> includes = new ArrayList<String>(getScanIncludes());
+        includes.addAll(descriptor.getScanIncludes());
+        final Collection<String> excludes = new ArrayList<String>(getScanExcludes());
+        excludes.addAll(descriptor.getScanExcludes());
+        return new ScanFilter(includes, excludes);
+    }
+
+    /**
+     * Describes the directories within the source for analysis.
+     * Analysis is independent of order so, when scanning serially,
+     * directories are analysed as they are scanned.
+     * @param filter selects the resources scanned, not null
+     * @return not null
+     * @throws IOException when reading the source fails
+     */
+    private Iterable<Directory> directoriesToAnalyse(final ScanFilter filter)
+            throws IOException {
+        if (FromArchive.isArchive(getSource())
+                || getScanThreads() > FromFileSystem.DEFAULT_THREADS) {
+            return directories(filter);
+        }
+        return fromFileSystem(filter).lazilyWithBase(getSource());
+    }
+
     /**
      * Describes the directories within the source.
+     * Archives are scanned in place, without extraction.
+     * @param filter selects the resources scanned, not null
      * @return not null
      * @throws IOException when reading the source fails
      */
-    private Collection<Directory> directories() throws IOException {
-        return new FromFileSystem().withBase(getSource());
+    private Collection<Directory> directories(final ScanFilter filter)
+            throws IOException {
+        if (FromArchive.isArchive(getSource())) {
+            return new FromArchive()
+                    .setNestingDepth(getArchiveNestingDepth())
+                    .setFilter(filter)
+                    .withBase(getSource());
+        }
+        final Collection<Directory> results =
+                fromFileSystem(filter).withBase(getSource());
+        if (isHashResources()) {
+            new ResourceHasher().hash(getSource(), results);
+        }
+        if (isInspectJars()) {
+            new JarInspector().inspect(getSource(), results);
+        }
+        return results;
+    }
+
+    /**
+     * Creates a scanner configured for the source file system.
+     * @param filter selects the resources scanned, not null
+     * @return not null
+     */
+    private FromFileSystem fromFileSystem(final ScanFilter filter) {
+        return new FromFileSystem()
+                .setThreads(getScanThreads())
+                .setSnapshot(getScanSnapshot())
+                .setFilter(filter);
     }
 
     /**
@@ -255,6 +559,46 @@ public class Whisker {
     }
 
 
+    /**
+     * Writes every problem found in the meta-data,
+     * one per line with its line and column.
+     * @return this, not null
+     * @throws Exception when the meta-data cannot be read
+     */
+    private Whisker diagnose() throws Exception {
+        final Writer writer = getWriterFactory().writerFor(
+                Result.DESCRIPTOR_DIAGNOSTICS);
+        try {
+            writer.write(diagnose(getLicenseDescriptor()).toString());
+        } finally {
+            writer.close();
+        }
+        return this;
+    }
+
+    /**
+     * Diagnoses meta-data from the given source.
+     * @param resource not null
+     * @return not null
+     * @throws IOException when meta-data cannot be opened
+     */
+    private Diagnostics diagnose(final StreamableResource resource)
+            throws IOException {
+        final URL location = resource.getLocation();
+        if (location != null) {
+            return new StaxBuilder().diagnose(location);
+        }
+        final InputStream resourceAsStream = resourceAsStream(resource);
+        if (resourceAsStream == null) {
+            throw new IllegalArgumentException("Cannot load " + resource);
+        }
+        try {
+            return new StaxBuilder().diagnose(resourceAsStream);
+        } finally {
+            resourceAsStream.close();
+        }
+    }
+
     /**
      * Reads meta-data from the given source.
      * @param resource not null
@@ -262,10 +606,20 @@ public class Whisker {
      * @throws Exception when meta-data cannot be loaded
      */
     private Descriptor load(final StreamableResource resource) throws Exception {
+        final URL location = resource.getLocation();
+        if (location != null) {
+            if (getDescriptorCache() == null) {
+                return new StaxBuilder().build(location);
+            }
+            return new DescriptorCache(getDescriptorCache()).load(location);
+        }
         final InputStream resourceAsStream = resourceAsStream(resource);
         if (resourceAsStream == null) {
             throw new IllegalArgumentException("Cannot load " + resource);
         }
-        return new JDomBuilder().build(resourceAsStream);
+        if (getDescriptorCache() == null) {
+            return new StaxBuilder().build(resourceAsStream);
+        }
+        return new DescriptorCache(getDescriptorCache()).load(resourceAsStream);
     }
 }
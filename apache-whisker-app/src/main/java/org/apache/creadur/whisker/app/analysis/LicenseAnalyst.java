@@ -20,11 +20,13 @@ package org.apache.creadur.whisker.app.analysis;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeSet;
 
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.creadur.whisker.model.CompositeVisitor;
 import org.apache.creadur.whisker.model.Resource;
 import org.apache.creadur.whisker.model.ResourceNamesCollator;
 import org.apache.creadur.whisker.model.Descriptor;
@@ -66,7 +68,7 @@ public class LicenseAnalyst {
     }
 
     /** Directories analysed. */
-    private final Collection<Directory> directories;
+    private final Iterable<Directory> directories;
     /** Maps resource errors to resources. */
     private final Map<ResourceDefinitionError,
                     Collection<ResourceDescription>> issues;
@@ -80,9 +82,11 @@ public class LicenseAnalyst {
 
     /**
      * Analyse the given directories.
+     * Directories are iterated once per analysis,
+     * so may be scanned lazily as analysis proceeds.
      * @param directories not null
      */
-    public LicenseAnalyst(final Collection<Directory> directories) {
+    public LicenseAnalyst(final Iterable<Directory> directories) {
         super();
         this.directories = directories;
         issues = buildIssueMap();
@@ -97,27 +101,60 @@ public class LicenseAnalyst {
         if (directories == null) {
             final ResourceNamesCollator collator =
                     new ResourceNamesCollator();
-            work.traverse(collator);
-            analyseDuplicates(collator);
-
             final ResourceSourceAuditor sourceAuditor =
                     new ResourceSourceAuditor();
-            work.traverse(sourceAuditor);
+            work.traverse(new CompositeVisitor(collator, sourceAuditor));
+            analyseDuplicates(collator);
             analyse(sourceAuditor);
         } else {
             for (final Directory directory: directories) {
-                final ResourceNamesCollator collator =
-                        new ResourceNamesCollator();
-                work.traverseDirectory(collator, directory.getName());
-                analyseLicenses(directory, collator);
-                analyseDuplicates(collator);
+                analyse(work, directory);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Discover discrepancies between meta-data and a source directory.
+     * @param work not null
+     * @param directory not null
+     */
+    private void analyse(final Descriptor work, final Directory directory) {
+        final ResourceNamesCollator collator =
+                new ResourceNamesCollator();
+        final ResourceSourceAuditor sourceAuditor = new
+                ResourceSourceAuditor();
+        work.traverseDirectory(new CompositeVisitor(collator, sourceAuditor),
+                directory.getName());
+        analyseLicenses(directory, collator);
+        analyseDuplicates(collator);
+        analyse(sourceAuditor);
+    }
 
-                final ResourceSourceAuditor sourceAuditor = new
-                        ResourceSourceAuditor();
-                work.traverseDirectory(sourceAuditor, directory.getName());
-                analyse(sourceAuditor);
+    /**
+     * Discards the issues found in the named directory,
+     * then analyses the directory again.
+     * Other directories are unaffected, so a changed directory
+     * can be reanalysed without analysing the whole source.
+     * @param work not null
+     * @param directoryName names the directory changed, not null
+     * @param directory the directory as changed,
+     * or null when the directory has been removed
+     * @return this, not null
+     */
+    public LicenseAnalyst reanalyse(final Descriptor work,
+            final String directoryName, final Directory directory) {
+        for (final Collection<ResourceDescription> descriptions: issues.values()) {
+            final Iterator<ResourceDescription> it = descriptions.iterator();
+            while (it.hasNext()) {
+                if (directoryName.equals(it.next().getDirectory())) {
+                    it.remove();
+                }
             }
         }
+        if (directory != null) {
+            analyse(work, directory);
+        }
         return this;
     }
 
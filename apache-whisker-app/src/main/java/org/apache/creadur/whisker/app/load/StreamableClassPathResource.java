@@ -20,6 +20,7 @@ package org.apache.creadur.whisker.app.load;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
 
 import org.apache.creadur.whisker.app.StreamableResource;
 
@@ -79,6 +80,16 @@ public final class StreamableClassPathResource extends StreamableResource {
         return getClass().getClassLoader().getResourceAsStream(name);
     }
 
+    /**
+     * Locates the resource on the classpath.
+     * @return null when the resource is not found
+     * @see StreamableResource#getLocation()
+     */
+    @Override
+    public URL getLocation() {
+        return getClass().getClassLoader().getResource(name);
+    }
+
     /**
      * Suitable for logging.
      * @return a description
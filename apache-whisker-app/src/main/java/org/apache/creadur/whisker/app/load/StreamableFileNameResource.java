@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
 
 import org.apache.creadur.whisker.app.StreamableResource;
 /**
@@ -67,6 +68,17 @@ public final class StreamableFileNameResource extends StreamableResource {
         return new BufferedInputStream(new FileInputStream(new File(fileName)));
     }
 
+    /**
+     * Locates the file.
+     * @return not null
+     * @see StreamableResource#getLocation()
+     * @throws IOException when the file cannot be located
+     */
+    @Override
+    public URL getLocation() throws IOException {
+        return new File(fileName).toURI().toURL();
+    }
+
     /**
      * Suitable for logging.
      * @return a description
@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
 
 import org.apache.creadur.whisker.app.StreamableResource;
 
@@ -55,6 +56,17 @@ public final class StreamableFileResource extends StreamableResource {
     }
 
 
+    /**
+     * Locates the file.
+     * @return not null
+     * @see StreamableResource#getLocation()
+     * @throws IOException when the file cannot be located
+     */
+    @Override
+    public URL getLocation() throws IOException {
+        return file.toURI().toURL();
+    }
+
     /**
      * A description suitable for diagnostics.
      * @return something suitable for diagnostics, not null
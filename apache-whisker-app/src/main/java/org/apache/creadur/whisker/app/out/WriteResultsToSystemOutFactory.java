@@ -23,6 +23,8 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
 import org.apache.creadur.whisker.app.Result;
 import org.apache.creadur.whisker.app.ResultWriterFactory;
 
@@ -53,7 +55,9 @@ public final class WriteResultsToSystemOutFactory
     }
 
     /**
-     * Writes given result to <code>System.our</code>.
+     * Writes given result to <code>System.out</code>.
+     * Closing the writer leaves <code>System.out</code> open,
+     * so further results may be written.
      * @param result not null
      * @return not null
      * @throws IOException when result cannot be written
@@ -62,6 +66,7 @@ public final class WriteResultsToSystemOutFactory
     public Writer writerFor(final Result result)
             throws IOException {
         return new BufferedWriter(
-                new OutputStreamWriter(System.out, encoding));
+                new OutputStreamWriter(
+                        CloseShieldOutputStream.wrap(System.out), encoding));
     }
 }
@@ -18,6 +18,10 @@
  */
 package org.apache.creadur.whisker.cli;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.OptionGroup;
@@ -32,7 +36,39 @@ public enum CommandLineOption {
     LICENSE_DESCRIPTION("license-descriptor", 'l',
             "use given license descriptor", true, "file", false),
     /** Application source command line argument. */
-    SOURCE("source", 's', "application source", false, "dir", false),
+    SOURCE("source", 's', "application source directory or archive",
+            false, "dir", false),
+    /** Number of threads scanning the source command line argument. */
+    SCAN_THREADS("threads", 'p',
+            "scan source using this many threads", false, "count", false),
+    /** Depth of nested archives scanned command line argument. */
+    ARCHIVE_NESTING_DEPTH("nesting-depth", 'n',
+            "scan archives nested within an archive source to this depth",
+            false, "depth", false),
+    /** Snapshot of the last scan command line argument. */
+    SCAN_SNAPSHOT("snapshot", 'c',
+            "rescan only directories modified since the snapshot in this file",
+            false, "file", false),
+    /** Directory caching descriptor snapshots command line argument. */
+    DESCRIPTOR_CACHE("descriptor-cache", 'k',
+            "reuse snapshots of descriptors already parsed, cached in this directory",
+            false, "dir", false),
+    /** Glob pattern for resources scanned command line argument. */
+    SCAN_INCLUDE("include", 'i',
+            "scan only resources matching this glob, may be repeated",
+            false, "glob", false),
+    /** Glob pattern for resources and directories skipped command line argument. */
+    SCAN_EXCLUDE("exclude", 'x',
+            "skip resources and directories matching this glob, may be repeated",
+            false, "glob", false),
+    /** Hash resource contents command line argument. */
+    HASH_RESOURCES("hash", 'd',
+            "hash the contents of resources in a source directory",
+            false, null, false),
+    /** Inspect jar metadata command line argument. */
+    INSPECT_JARS("jars", 'j',
+            "read licensing metadata from jars in a source directory",
+            false, null, false),
     /** Generation command line argument. */
     ACT_TO_GENERATE("generate", 'g',
             "generate license and notice", false, null, true),
@@ -41,6 +77,14 @@ public enum CommandLineOption {
     /** Generate skeleton mete-data command line argument. */
     ACT_TO_SKELETON("skeleton", 't',
             "generates skeleton meta-data", false, null, true),
+    /** Continuous audit command line argument. */
+    ACT_TO_WATCH("watch", 'w',
+            "report audit details, then again whenever the source changes",
+            false, null, true),
+    /** Diagnose command line argument. */
+    ACT_TO_DIAGNOSE("diagnose", 'e',
+            "report every problem in the license descriptor, with line and column",
+            false, null, true),
     /** Print help then exit, ignoring other options. */
     PRINT_HELP("help", 'h', "print help then exit, ignoring other options.", false, null, false);
 
@@ -149,6 +193,19 @@ public enum CommandLineOption {
         return commandLine.getOptionValue(getShortName());
     }
 
+    /**
+     * Gets every value given for an option which may be repeated.
+     * @param commandLine not null
+     * @return not null, empty when the option is not set
+     */
+    public List<String> getOptionValues(final CommandLine commandLine) {
+        final String[] values = commandLine.getOptionValues(getShortName());
+        if (values == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(values);
+    }
+
     /**
      * Is the short name option set?
      * @param commandLine not null
@@ -18,6 +18,8 @@
  */
 package org.apache.creadur.whisker.cli;
 
+import java.io.File;
+
 import org.apache.commons.cli.*;
 import org.apache.creadur.whisker.app.Act;
 import org.apache.creadur.whisker.app.Whisker;
@@ -125,11 +127,36 @@ public final class Main {
      * @return not null
      * @throws MissingOptionException when a mandatory option
      * has not been supplied
+     * @throws ParseException when an option value cannot be parsed
      */
     private Whisker configure(
-            final CommandLine commandLine) throws MissingOptionException {
+            final CommandLine commandLine) throws ParseException {
         whisker.setEngine(new LoggingVelocityEngine());
         whisker.setSource(CommandLineOption.SOURCE.getOptionValue(commandLine));
+        if (CommandLineOption.SCAN_THREADS.isSetOn(commandLine)) {
+            whisker.setScanThreads(
+                    number(CommandLineOption.SCAN_THREADS, 1, commandLine));
+        }
+        if (CommandLineOption.SCAN_SNAPSHOT.isSetOn(commandLine)) {
+            whisker.setScanSnapshot(new File(
+                    CommandLineOption.SCAN_SNAPSHOT.getOptionValue(commandLine)));
+        }
+        if (CommandLineOption.DESCRIPTOR_CACHE.isSetOn(commandLine)) {
+            whisker.setDescriptorCache(new File(
+                    CommandLineOption.DESCRIPTOR_CACHE.getOptionValue(commandLine)));
+        }
+        if (CommandLineOption.ARCHIVE_NESTING_DEPTH.isSetOn(commandLine)) {
+            whisker.setArchiveNestingDepth(number(
+                    CommandLineOption.ARCHIVE_NESTING_DEPTH, 0, commandLine));
+        }
+        whisker.setScanIncludes(
+                CommandLineOption.SCAN_INCLUDE.getOptionValues(commandLine));
+        whisker.setScanExcludes(
+                CommandLineOption.SCAN_EXCLUDE.getOptionValues(commandLine));
+        whisker.setHashResources(
+                CommandLineOption.HASH_RESOURCES.isSetOn(commandLine));
+        whisker.setInspectJars(
+                CommandLineOption.INSPECT_JARS.isSetOn(commandLine));
         whisker.setLicenseDescriptor(
                 new StreamableResourceFactory().streamFromResource(
                         licenseDescriptorName(commandLine)));
@@ -140,6 +167,10 @@ public final class Main {
             whisker.setAct(Act.GENERATE);
         } else if (CommandLineOption.ACT_TO_SKELETON.isSetOn(commandLine)) {
             whisker.setAct(Act.SKELETON);
+        } else if (CommandLineOption.ACT_TO_WATCH.isSetOn(commandLine)) {
+            whisker.setAct(Act.WATCH);
+        } else if (CommandLineOption.ACT_TO_DIAGNOSE.isSetOn(commandLine)) {
+            whisker.setAct(Act.DIAGNOSE);
         }
 
         if (whisker.getSource() == null
@@ -151,6 +182,31 @@ public final class Main {
         return whisker;
     }
 
+    /**
+     * Extracts a numeric option value.
+     * @param option not null
+     * @param minimum smallest value allowed
+     * @param commandLine not null
+     * @return at least the minimum
+     * @throws ParseException when the value is not a number
+     * at least the minimum
+     */
+    private int number(final CommandLineOption option, final int minimum,
+            final CommandLine commandLine) throws ParseException {
+        final String value = option.getOptionValue(commandLine);
+        try {
+            final int result = Integer.parseInt(value);
+            if (result >= minimum) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new ParseException("-" + option.getShortName()
+                + " expects a number of at least " + minimum
+                + " but was '" + value + "'");
+    }
+
     /**
      * Extracts the license descriptor name value,
      * @param commandLine not null
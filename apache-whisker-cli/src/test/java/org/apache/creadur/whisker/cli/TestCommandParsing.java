@@ -18,6 +18,10 @@
  */
 package org.apache.creadur.whisker.cli;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
 import junit.framework.TestCase;
 
 import org.apache.commons.cli.AlreadySelectedException;
@@ -91,6 +95,14 @@ public class TestCommandParsing extends TestCase {
         checkSetActForOption(Act.SKELETON, CommandLineOption.ACT_TO_SKELETON);
     }
 
+    public void testSetWatchAct() throws Exception {
+        checkSetActForOption(Act.WATCH, CommandLineOption.ACT_TO_WATCH);
+    }
+
+    public void testSetDiagnoseAct() throws Exception {
+        checkSetActForOption(Act.DIAGNOSE, CommandLineOption.ACT_TO_DIAGNOSE);
+    }
+
 
     /**
      * @param act
@@ -113,6 +125,115 @@ public class TestCommandParsing extends TestCase {
         checkSourceWithPath("relative");
     }
 
+    public void testScanThreadsDefault() throws Exception {
+        assertEquals(1, subject.configure(args(
+                longOpt(CommandLineOption.ACT_TO_AUDIT.getLongName()),
+                shortOpt(CommandLineOption.SOURCE.getShortName()), "path",
+                shortOpt(CommandLineOption.LICENSE_DESCRIPTION.getShortName()), "some/path"))
+                    .getScanThreads());
+    }
+
+    public void testSetScanThreadsByCli() throws Exception {
+        assertEquals(4, subject.configure(args(
+                longOpt(CommandLineOption.ACT_TO_AUDIT.getLongName()),
+                shortOpt(CommandLineOption.SOURCE.getShortName()), "path",
+                longOpt(CommandLineOption.SCAN_THREADS.getLongName()), "4",
+                shortOpt(CommandLineOption.LICENSE_DESCRIPTION.getShortName()), "some/path"))
+                    .getScanThreads());
+    }
+
+    public void testScanThreadsMustBePositive() throws Exception {
+        checkScanThreadsRejected("0");
+        checkScanThreadsRejected("many");
+    }
+
+    private void checkScanThreadsRejected(String threads) {
+        try {
+            subject.configure(args(
+                    longOpt(CommandLineOption.ACT_TO_AUDIT.getLongName()),
+                    shortOpt(CommandLineOption.SOURCE.getShortName()), "path",
+                    shortOpt(CommandLineOption.SCAN_THREADS.getShortName()), threads,
+                    shortOpt(CommandLineOption.LICENSE_DESCRIPTION.getShortName()), "some/path"));
+            fail("Expected " + threads + " threads to be rejected");
+        } catch (ParseException e) {
+            // Expected
+        }
+    }
+
+    public void testSetArchiveNestingDepthByCli() throws Exception {
+        assertEquals(2, subject.configure(args(
+                longOpt(CommandLineOption.ACT_TO_AUDIT.getLongName()),
+                shortOpt(CommandLineOption.SOURCE.getShortName()), "app.tar.gz",
+                longOpt(CommandLineOption.ARCHIVE_NESTING_DEPTH.getLongName()), "2",
+                shortOpt(CommandLineOption.LICENSE_DESCRIPTION.getShortName()), "some/path"))
+                    .getArchiveNestingDepth());
+    }
+
+    public void testSetScanSnapshotByCli() throws Exception {
+        assertEquals(new File("target/scan.snapshot"), subject.configure(args(
+                longOpt(CommandLineOption.ACT_TO_AUDIT.getLongName()),
+                shortOpt(CommandLineOption.SOURCE.getShortName()), "path",
+                longOpt(CommandLineOption.SCAN_SNAPSHOT.getLongName()), "target/scan.snapshot",
+                shortOpt(CommandLineOption.LICENSE_DESCRIPTION.getShortName()), "some/path"))
+                    .getScanSnapshot());
+    }
+
+    public void testSetDescriptorCacheByCli() throws Exception {
+        assertEquals(new File("target/descriptors"), subject.configure(args(
+                longOpt(CommandLineOption.ACT_TO_GENERATE.getLongName()),
+                shortOpt(CommandLineOption.DESCRIPTOR_CACHE.getShortName()), "target/descriptors",
+                shortOpt(CommandLineOption.LICENSE_DESCRIPTION.getShortName()), "some/path"))
+                    .getDescriptorCache());
+    }
+
+    public void testSetScanExcludesByCli() throws Exception {
+        assertEquals(Arrays.asList("docs/apidocs/**", "**/*.html"), subject.configure(args(
+                longOpt(CommandLineOption.ACT_TO_AUDIT.getLongName()),
+                shortOpt(CommandLineOption.SOURCE.getShortName()), "path",
+                longOpt(CommandLineOption.SCAN_EXCLUDE.getLongName()), "docs/apidocs/**",
+                shortOpt(CommandLineOption.SCAN_EXCLUDE.getShortName()), "**/*.html",
+                shortOpt(CommandLineOption.LICENSE_DESCRIPTION.getShortName()), "some/path"))
+                    .getScanExcludes());
+    }
+
+    public void testSetScanIncludesByCli() throws Exception {
+        final Whisker whisker = subject.configure(args(
+                longOpt(CommandLineOption.ACT_TO_AUDIT.getLongName()),
+                shortOpt(CommandLineOption.SOURCE.getShortName()), "path",
+                longOpt(CommandLineOption.SCAN_INCLUDE.getLongName()), "lib/*.jar",
+                shortOpt(CommandLineOption.LICENSE_DESCRIPTION.getShortName()), "some/path"));
+        assertEquals(Collections.singletonList("lib/*.jar"), whisker.getScanIncludes());
+        assertTrue(whisker.getScanExcludes().isEmpty());
+    }
+
+    public void testSetHashResourcesByCli() throws Exception {
+        assertTrue(subject.configure(args(
+                longOpt(CommandLineOption.ACT_TO_SKELETON.getLongName()),
+                shortOpt(CommandLineOption.SOURCE.getShortName()), "path",
+                longOpt(CommandLineOption.HASH_RESOURCES.getLongName()),
+                shortOpt(CommandLineOption.LICENSE_DESCRIPTION.getShortName()), "some/path"))
+                    .isHashResources());
+        assertFalse(subject.configure(args(
+                longOpt(CommandLineOption.ACT_TO_SKELETON.getLongName()),
+                shortOpt(CommandLineOption.SOURCE.getShortName()), "path",
+                shortOpt(CommandLineOption.LICENSE_DESCRIPTION.getShortName()), "some/path"))
+                    .isHashResources());
+    }
+
+    public void testSetInspectJarsByCli() throws Exception {
+        assertTrue(subject.configure(args(
+                longOpt(CommandLineOption.ACT_TO_SKELETON.getLongName()),
+                shortOpt(CommandLineOption.SOURCE.getShortName()), "path",
+                shortOpt(CommandLineOption.INSPECT_JARS.getShortName()),
+                shortOpt(CommandLineOption.LICENSE_DESCRIPTION.getShortName()), "some/path"))
+                    .isInspectJars());
+        assertFalse(subject.configure(args(
+                longOpt(CommandLineOption.ACT_TO_SKELETON.getLongName()),
+                shortOpt(CommandLineOption.SOURCE.getShortName()), "path",
+                shortOpt(CommandLineOption.LICENSE_DESCRIPTION.getShortName()), "some/path"))
+                    .isInspectJars());
+    }
+
     public void testAuditRequiresSource() throws Exception {
         try {
             subject.configure(args(
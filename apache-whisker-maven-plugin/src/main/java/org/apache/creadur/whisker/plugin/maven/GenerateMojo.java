@@ -55,6 +55,14 @@ public class GenerateMojo extends AbstractMojo {
 	@Parameter(property = "apacheWhiskerDescriptor", required = true)
     private File descriptor;
 
+    /**
+     * Caches snapshots of parsed descriptors in this directory,
+     * so modules sharing a descriptor parse it only once.
+     * When unset, the descriptor is parsed every time.
+     */
+	@Parameter(property = "apacheWhiskerDescriptorCache")
+    private File descriptorCache;
+
     /**
      * Generate licensing related materials such as LICENSE and NOTICE documents.
      * @throws MojoExecutionException when Whisker fails,
@@ -67,6 +75,7 @@ public class GenerateMojo extends AbstractMojo {
             if (descriptor.canRead()) {
                  try {
                     new Whisker().setLicenseDescriptor(new StreamableResourceFactory().streamFromFileResource(descriptor))
+                        .setDescriptorCache(descriptorCache)
                         .setEngine(new LoggingVelocityEngine())
                         .setWriterFactory(new WriteResultsIntoDirectoryFactory(outputDirectory, outputEncoding))
                         .setAct(Act.GENERATE).act();
@@ -142,9 +142,13 @@ public class ByOrganisation implements Comparable<ByOrganisation>, ContentElemen
      * @param visitor possibly null
      */
     public void accept(final Visitor visitor) {
-        if (visitor != null && visitor.traverseByOrganisation()) {
+        if (visitor != null && !visitor.isDone()
+                && visitor.traverseByOrganisation()) {
             visitor.visit(this);
             for (final Resource resource : getResources()) {
+                if (visitor.isDone()) {
+                    return;
+                }
                 resource.accept(visitor);
             }
         }
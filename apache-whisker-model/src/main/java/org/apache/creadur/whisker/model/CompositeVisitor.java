@@ -0,0 +1,257 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Visits on behalf of several visitors, so that all share
+ * a single traversal.
+ * <p>
+ * Each element is passed on only to those visitors which would
+ * have been shown it, had each traversed alone. So, for example,
+ * a visitor which does not traverse the public domain sees
+ * no public domain organisations or resources, even when
+ * another visitor does. Visitors which are done are passed
+ * nothing more, and traversal ends once all are done.
+ * </p>
+ */
+public final class CompositeVisitor extends Visitor {
+
+    /**
+     * Steps taken during a traversal,
+     * each tuned by a visitor preference.
+     */
+    private enum Step {
+        /** Into public domain organisations. */
+        PUBLIC_DOMAIN {
+            @Override
+            boolean isTakenBy(final Visitor visitor) {
+                return visitor.traversePublicDomain();
+            }
+        },
+        /** Into {@link WithLicense} elements. */
+        WITH_LICENSE {
+            @Override
+            boolean isTakenBy(final Visitor visitor) {
+                return visitor.traverseWithLicense();
+            }
+        },
+        /** Into {@link ByOrganisation} elements. */
+        BY_ORGANISATION {
+            @Override
+            boolean isTakenBy(final Visitor visitor) {
+                return visitor.traverseByOrganisation();
+            }
+        },
+        /** Into {@link Resource} elements. */
+        RESOURCE {
+            @Override
+            boolean isTakenBy(final Visitor visitor) {
+                return visitor.traverseResource();
+            }
+        };
+
+        /**
+         * Does the visitor take this step?
+         * @param visitor not null
+         * @return true when the visitor traverses this step,
+         * false otherwise
+         */
+        abstract boolean isTakenBy(Visitor visitor);
+
+        /**
+         * Selects visitors taking this step, and not yet done.
+         * @param visitors not null
+         * @return not null
+         */
+        List<Visitor> takenBy(final List<Visitor> visitors) {
+            final List<Visitor> results = new ArrayList<Visitor>(visitors.size());
+            for (final Visitor visitor : visitors) {
+                if (!visitor.isDone() && isTakenBy(visitor)) {
+                    results.add(visitor);
+                }
+            }
+            return results;
+        }
+
+        /**
+         * Is this step taken by any of the visitors not yet done?
+         * @param visitors not null
+         * @return true when at least one visitor takes this step,
+         * false otherwise
+         */
+        boolean isTakenByAny(final List<Visitor> visitors) {
+            for (final Visitor visitor : visitors) {
+                if (!visitor.isDone() && isTakenBy(visitor)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /** All visitors. */
+    private final List<Visitor> visitors;
+    /**
+     * Visitors within the public domain,
+     * or {@link WithLicense}, currently traversed.
+     */
+    private List<Visitor> branch;
+    /** Visitors within the {@link ByOrganisation} currently traversed. */
+    private List<Visitor> organisation;
+
+    /**
+     * Constructs a visitor sharing a traversal.
+     * @param visitors not null, visited in order
+     */
+    public CompositeVisitor(final Visitor... visitors) {
+        this(Arrays.asList(visitors));
+    }
+
+    /**
+     * Constructs a visitor sharing a traversal.
+     * @param visitors not null, visited in iteration order
+     */
+    public CompositeVisitor(final Collection<? extends Visitor> visitors) {
+        super();
+        this.visitors = new ArrayList<Visitor>(visitors);
+        this.branch = this.visitors;
+        this.organisation = this.visitors;
+    }
+
+    /**
+     * Traverses the public domain when any visitor does.
+     * @return true when any visitor traverses the public domain,
+     * false otherwise
+     * @see Visitor#traversePublicDomain()
+     */
+    @Override
+    public boolean traversePublicDomain() {
+        return Step.PUBLIC_DOMAIN.isTakenByAny(this.visitors);
+    }
+
+    /**
+     * Traverses {@link WithLicense} elements when any visitor does.
+     * @return true when any visitor traverses licenses,
+     * false otherwise
+     * @see Visitor#traverseWithLicense()
+     */
+    @Override
+    public boolean traverseWithLicense() {
+        return Step.WITH_LICENSE.isTakenByAny(this.visitors);
+    }
+
+    /**
+     * Traverses {@link ByOrganisation} elements when any visitor
+     * within the current branch does.
+     * @return true when any visitor traverses organisations,
+     * false otherwise
+     * @see Visitor#traverseByOrganisation()
+     */
+    @Override
+    public boolean traverseByOrganisation() {
+        return Step.BY_ORGANISATION.isTakenByAny(this.branch);
+    }
+
+    /**
+     * Traverses {@link Resource} elements when any visitor
+     * within the current organisation does.
+     * @return true when any visitor traverses resources,
+     * false otherwise
+     * @see Visitor#traverseResource()
+     */
+    @Override
+    public boolean traverseResource() {
+        return Step.RESOURCE.isTakenByAny(this.organisation);
+    }
+
+    /**
+     * Done once every visitor is done.
+     * @return true when every visitor is done,
+     * false otherwise
+     * @see Visitor#isDone()
+     */
+    @Override
+    public boolean isDone() {
+        for (final Visitor visitor : this.visitors) {
+            if (!visitor.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Passes the directory to every visitor not yet done.
+     * Public domain organisations follow.
+     * @param directory not null
+     */
+    @Override
+    public void visit(final WithinDirectory directory) {
+        for (final Visitor visitor : this.visitors) {
+            if (!visitor.isDone()) {
+                visitor.visit(directory);
+            }
+        }
+        this.branch = Step.PUBLIC_DOMAIN.takenBy(this.visitors);
+    }
+
+    /**
+     * Passes the license to those visitors traversing licenses.
+     * @param license not null
+     */
+    @Override
+    public void visit(final WithLicense license) {
+        this.branch = Step.WITH_LICENSE.takenBy(this.visitors);
+        for (final Visitor visitor : this.branch) {
+            visitor.visit(license);
+        }
+    }
+
+    /**
+     * Passes the organisation to those visitors within the
+     * current branch traversing organisations.
+     * @param byOrganisation not null
+     */
+    @Override
+    public void visit(final ByOrganisation byOrganisation) {
+        this.organisation = Step.BY_ORGANISATION.takenBy(this.branch);
+        for (final Visitor visitor : this.organisation) {
+            visitor.visit(byOrganisation);
+        }
+    }
+
+    /**
+     * Passes the resource to those visitors within the
+     * current organisation traversing resources.
+     * @param resource not null
+     */
+    @Override
+    public void visit(final Resource resource) {
+        for (final Visitor visitor : this.organisation) {
+            if (!visitor.isDone() && visitor.traverseResource()) {
+                visitor.visit(resource);
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.creadur.whisker.model;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -43,7 +44,14 @@ public class Descriptor {
     private final Map<String, String> notices;
     /** Directories expected to be contained within the release. */
     private final Collection<WithinDirectory> contents;
-
+    /** Glob patterns for resources scanned, empty for all. */
+    private final Collection<String> scanIncludes;
+    /** Glob patterns for resources and directories not scanned. */
+    private final Collection<String> scanExcludes;
+    /** Indexes notices and resources within the contents. */
+    private final DescriptorIndex index;
+    /** Classifies elements within the contents, null until first needed. */
+    private PrimaryClassification primaryClassification;
 
     /**
      * Constructs a description of the expected licensing qualities of a
@@ -111,6 +119,55 @@ public class Descriptor {
             final Map<String, String> notices,
             final Map<String, Organisation> organisations,
             final Collection<WithinDirectory> contents) {
+        this(   primaryLicense,
+                primaryCopyrightNotice,
+                primaryOrganisationId,
+                primaryNotice,
+                licenses,
+                notices,
+                organisations,
+                contents,
+                Collections.<String>emptyList(),
+                Collections.<String>emptyList());
+    }
+
+    /**
+     * Constructs a description of the expected licensing qualities of a
+     * distribution, selecting the resources scanned.
+     *
+     * @param primaryLicense
+     *            not null
+     * @param primaryCopyrightNotice
+     *            optional primary copyright notice, possibly null
+     * @param primaryOrganisationId
+     *            not null
+     * @param primaryNotice
+     *            possibly null
+     * @param licenses
+     *            not null, possibly empty
+     * @param notices
+     *            not null, possibly empty
+     * @param organisations
+     *            not null, possibly empty
+     * @param contents
+     *            not null, possibly empty
+     * @param scanIncludes
+     *            glob patterns for resources scanned,
+     *            not null, empty for all
+     * @param scanExcludes
+     *            glob patterns for resources and directories not scanned,
+     *            not null, possibly empty
+     */
+    public Descriptor(final License primaryLicense,
+            final String primaryCopyrightNotice,
+            final String primaryOrganisationId,
+            final String primaryNotice,
+            final Map<String, License> licenses,
+            final Map<String, String> notices,
+            final Map<String, Organisation> organisations,
+            final Collection<WithinDirectory> contents,
+            final Collection<String> scanIncludes,
+            final Collection<String> scanExcludes) {
         super();
         this.primaryLicense = primaryLicense;
         this.primaryCopyrightNotice = primaryCopyrightNotice;
@@ -120,6 +177,35 @@ public class Descriptor {
         this.notices = notices;
         this.organisations = organisations;
         this.contents = contents;
+        this.scanIncludes = scanIncludes;
+        this.scanExcludes = scanExcludes;
+        this.index = new DescriptorIndex(contents, notices);
+    }
+
+    /**
+     * Gets the index of notices and resources within the contents,
+     * built when this descriptor was constructed.
+     * @return not null
+     */
+    public DescriptorIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the glob patterns for resources scanned.
+     * @return not null, empty when all resources are scanned
+     */
+    public Collection<String> getScanIncludes() {
+        return scanIncludes;
+    }
+
+    /**
+     * Gets the glob patterns for resources and directories
+     * not scanned, such as generated documentation.
+     * @return not null, possibly empty
+     */
+    public Collection<String> getScanExcludes() {
+        return scanExcludes;
     }
 
     /**
@@ -153,12 +239,35 @@ public class Descriptor {
     /**
      * Collates NOTICE meta-data for resources.
      *
-     * @return not null, possibly empty
+     * @return unmodifiable, not null, possibly empty
      */
     public Map<String, Collection<Resource>> getResourceNotices() {
-        final NoticeCollator collator = new NoticeCollator();
-        traverse(collator);
-        return collator.resourceNotices(this.notices);
+        return index.getResourceNotices();
+    }
+
+    /**
+     * Gets the licenses described.
+     * @return licenses indexed by id, not null
+     */
+    public Map<String, License> getLicenses() {
+        return licenses;
+    }
+
+    /**
+     * Gets the notices described.
+     * @return notice texts indexed by id, not null
+     */
+    public Map<String, String> getNotices() {
+        return notices;
+    }
+
+    /**
+     * Gets the id of the organisation primarily responsible
+     * for the main work.
+     * @return possibly null
+     */
+    public String getPrimaryOrganisationId() {
+        return primaryOrganisationId;
     }
 
     /**
@@ -172,12 +281,10 @@ public class Descriptor {
     /**
      * Collates NOTICE meta-data not linked to any resource.
      *
-     * @return not null, possibly empty
+     * @return unmodifiable, not null, possibly empty
      */
     public Set<String> getOtherNotices() {
-        final NoticeCollator collator = new NoticeCollator();
-        traverse(collator);
-        return collator.notices(this.notices);
+        return index.getNotices();
     }
 
     /**
@@ -236,6 +343,8 @@ public class Descriptor {
      * Is this collection of resources expected to contain only material
      * licensed under the primary license by the
      * primary organisation with the primary copyright notice?
+     * Directories, licenses and organisations within the contents
+     * are all classified together, when first asked for.
      *
      * @param contentElement
      *            not null
@@ -243,15 +352,35 @@ public class Descriptor {
      *         by the primary organisation
      */
     public boolean isOnlyPrimary(final ContentElement contentElement) {
+        final Boolean classified =
+                primaryClassification().isOnlyPrimary(contentElement);
+        if (classified != null) {
+            return classified.booleanValue();
+        }
         final NoCopyrightNoticeVerifier verifier = new NoCopyrightNoticeVerifier();
-        final LicenseAndOrganisationCollator collator = new LicenseAndOrganisationCollator();
-        contentElement.accept(collator);
-        contentElement.accept(verifier);
+        final LicenseAndOrganisationCollator collator =
+                new LicenseAndOrganisationCollator().stopAtSecondLicense();
+        contentElement.accept(new CompositeVisitor(collator, verifier));
         return collator.isOnlyLicense(getPrimaryLicense())
                 && collator.isOnlyOrganisation(this.primaryOrganisationId)
                 && !verifier.isCopyrightNoticePresent();
     }
 
+    /**
+     * Gets the classification of the contents, classifying them
+     * when first needed.
+     *
+     * @return not null
+     */
+    private synchronized PrimaryClassification primaryClassification() {
+        if (this.primaryClassification == null) {
+            this.primaryClassification = new PrimaryClassification(
+                    this.contents, this.primaryLicense,
+                    this.primaryOrganisationId);
+        }
+        return this.primaryClassification;
+    }
+
     /**
      * Traverses the content directories.
      *
@@ -260,6 +389,9 @@ public class Descriptor {
      */
     public void traverse(final Visitor visitor) {
         for (final WithinDirectory directory : getContents()) {
+            if (visitor != null && visitor.isDone()) {
+                return;
+            }
             directory.accept(visitor);
         }
     }
@@ -275,6 +407,9 @@ public class Descriptor {
     public void traverseDirectory(final Visitor visitor,
             final String directoryName) {
         for (final WithinDirectory directory : getContents()) {
+            if (visitor != null && visitor.isDone()) {
+                return;
+            }
             if (directory.isNamed(directoryName)) {
                 directory.accept(visitor);
             }
@@ -320,8 +455,12 @@ public class Descriptor {
     public boolean isPrimaryOnly() {
         final boolean result;
         if (!contents.isEmpty()) {
-            final LicenseAndOrganisationCollator collator = new LicenseAndOrganisationCollator();
+            final LicenseAndOrganisationCollator collator =
+                    new LicenseAndOrganisationCollator().stopAtSecondOrganisation();
             for (final WithinDirectory directory : contents) {
+                if (collator.isDone()) {
+                    break;
+                }
                 directory.accept(collator);
             }
             result = collator.isOnlyOrganisation(primaryOrganisationId);
@@ -0,0 +1,293 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Indexes the contents of a descriptor, in a single traversal,
+ * so that notices and resources are looked up without
+ * traversing the model again.
+ * <p>
+ * Indexes are built once, when the descriptor is constructed,
+ * so contents must not be changed afterwards.
+ * </p>
+ */
+public final class DescriptorIndex {
+
+    /** Resources, indexed by the id of the notice they require. */
+    private final Map<String, Collection<Resource>> resourcesByNoticeId =
+            new HashMap<String, Collection<Resource>>();
+    /** Where each resource is placed, indexed by name. */
+    private final Map<String, List<Placement>> placementsByName =
+            new HashMap<String, List<Placement>>();
+    /** Resources, indexed by the id of their organisation. */
+    private final Map<String, Collection<Resource>> resourcesByOrganisationId =
+            new HashMap<String, Collection<Resource>>();
+    /** Resources, indexed by the text of the notice they require. */
+    private final Map<String, Collection<Resource>> resourceNotices;
+    /** Texts of the notices required by resources. */
+    private final Set<String> notices;
+    /** A notice required but not described, null when all are. */
+    private final String missingNoticeId;
+
+    /**
+     * Indexes contents.
+     * @param contents not null
+     * @param notices texts indexed by id, possibly null when
+     * no resource requires a notice
+     */
+    public DescriptorIndex(final Collection<WithinDirectory> contents,
+            final Map<String, String> notices) {
+        super();
+        final Indexer indexer = new Indexer();
+        for (final WithinDirectory directory: contents) {
+            directory.accept(indexer);
+        }
+        final Map<String, Collection<Resource>> resourcesByNotice =
+                new HashMap<String, Collection<Resource>>();
+        final Set<String> texts = new HashSet<String>();
+        String missing = null;
+        for (final Map.Entry<String, Collection<Resource>> entry:
+                resourcesByNoticeId.entrySet()) {
+            final String id = entry.getKey();
+            if (notices != null && notices.containsKey(id)) {
+                final String text = notices.get(id);
+                resourcesByNotice.put(text,
+                        Collections.unmodifiableCollection(entry.getValue()));
+                texts.add(text);
+            } else if (missing == null) {
+                missing = id;
+            }
+        }
+        this.resourceNotices = Collections.unmodifiableMap(resourcesByNotice);
+        this.notices = Collections.unmodifiableSet(texts);
+        this.missingNoticeId = missing;
+    }
+
+    /**
+     * Gets the resources requiring a notice.
+     * @param noticeId not null
+     * @return not null, possibly empty
+     */
+    public Collection<Resource> resourcesWithNotice(final String noticeId) {
+        return unmodifiable(resourcesByNoticeId.get(noticeId));
+    }
+
+    /**
+     * Gets every placement of resources with a name.
+     * A resource may be placed in more than one directory.
+     * @param name not null
+     * @return not null, possibly empty
+     */
+    public List<Placement> placementsOf(final String name) {
+        final List<Placement> results = placementsByName.get(name);
+        if (results == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Gets the resources by an organisation.
+     * @param organisationId not null
+     * @return not null, possibly empty
+     */
+    public Collection<Resource> resourcesBy(final String organisationId) {
+        return unmodifiable(resourcesByOrganisationId.get(organisationId));
+    }
+
+    /**
+     * Gets the resources requiring each notice.
+     * @return resources indexed by notice text, not null, possibly empty
+     * @throws IllegalArgumentException when a notice required
+     * is not described
+     */
+    public Map<String, Collection<Resource>> getResourceNotices() {
+        checkNotices();
+        return resourceNotices;
+    }
+
+    /**
+     * Gets the texts of the notices required by resources.
+     * @return not null, possibly empty
+     * @throws IllegalArgumentException when a notice required
+     * is not described
+     */
+    public Set<String> getNotices() {
+        checkNotices();
+        return notices;
+    }
+
+    /**
+     * Checks that every notice required is described.
+     * @throws IllegalArgumentException when one is not
+     */
+    private void checkNotices() {
+        if (missingNoticeId != null) {
+            throw new IllegalArgumentException("Notice missing for id "
+                    + missingNoticeId);
+        }
+    }
+
+    /**
+     * Wraps resources, indexed.
+     * @param resources possibly null
+     * @return not null
+     */
+    private static Collection<Resource> unmodifiable(
+            final Collection<Resource> resources) {
+        if (resources == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableCollection(resources);
+    }
+
+    /**
+     * Adds a resource to an index.
+     * @param index not null
+     * @param key not null
+     * @param resource not null
+     */
+    private static void add(final Map<String, Collection<Resource>> index,
+            final String key, final Resource resource) {
+        Collection<Resource> resources = index.get(key);
+        if (resources == null) {
+            resources = new TreeSet<Resource>();
+            index.put(key, resources);
+        }
+        resources.add(resource);
+    }
+
+    /**
+     * Places a resource within a directory, under a license,
+     * by an organisation.
+     */
+    public static final class Placement {
+        /** The directory containing the resource. */
+        private final WithinDirectory directory;
+        /** The license, null when in the public domain. */
+        private final WithLicense license;
+        /** The organisation responsible. */
+        private final ByOrganisation organisation;
+        /** The resource placed. */
+        private final Resource resource;
+
+        /**
+         * Constructs a placement.
+         * @param directory not null
+         * @param license null when in the public domain
+         * @param organisation not null
+         * @param resource not null
+         */
+        Placement(final WithinDirectory directory, final WithLicense license,
+                final ByOrganisation organisation, final Resource resource) {
+            this.directory = directory;
+            this.license = license;
+            this.organisation = organisation;
+            this.resource = resource;
+        }
+
+        /**
+         * Gets the directory containing the resource.
+         * @return not null
+         */
+        public WithinDirectory getDirectory() {
+            return directory;
+        }
+
+        /**
+         * Gets the license of the resource.
+         * @return null when the resource is in the public domain
+         */
+        public WithLicense getLicense() {
+            return license;
+        }
+
+        /**
+         * Gets the organisation responsible for the resource.
+         * @return not null
+         */
+        public ByOrganisation getOrganisation() {
+            return organisation;
+        }
+
+        /**
+         * Gets the resource placed.
+         * @return not null
+         */
+        public Resource getResource() {
+            return resource;
+        }
+    }
+
+    /**
+     * Indexes each resource as the contents are traversed.
+     */
+    private final class Indexer extends Visitor {
+        /** Directory being traversed. */
+        private WithinDirectory directory;
+        /** License being traversed, null within the public domain. */
+        private WithLicense license;
+        /** Organisation being traversed. */
+        private ByOrganisation organisation;
+
+        @Override
+        public void visit(final WithinDirectory directory) {
+            this.directory = directory;
+            this.license = null;
+        }
+
+        @Override
+        public void visit(final WithLicense license) {
+            this.license = license;
+        }
+
+        @Override
+        public void visit(final ByOrganisation byOrganisation) {
+            this.organisation = byOrganisation;
+        }
+
+        @Override
+        public void visit(final Resource resource) {
+            final String noticeId = resource.getNoticeId();
+            if (noticeId != null) {
+                add(resourcesByNoticeId, noticeId, resource);
+            }
+            List<Placement> placements = placementsByName.get(resource.getName());
+            if (placements == null) {
+                placements = new ArrayList<Placement>(1);
+                placementsByName.put(resource.getName(), placements);
+            }
+            placements.add(new Placement(directory, license, organisation,
+                    resource));
+            if (organisation.getOrganisation() != null) {
+                add(resourcesByOrganisationId, organisation.getId(), resource);
+            }
+        }
+    }
+}
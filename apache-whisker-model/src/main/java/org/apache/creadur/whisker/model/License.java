@@ -20,8 +20,11 @@ package org.apache.creadur.whisker.model;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Describes a software license.
@@ -34,7 +37,7 @@ public class License implements Comparable<License> {
      */
     private final boolean isSourceRequired;
     /** Template for license wording. */
-    private final String baseText;
+    private final LicenseText baseText;
     /** Parameters expected by the template. */
     private final Collection<String> expectedParameters;
     /** Identifies this license. */
@@ -43,6 +46,11 @@ public class License implements Comparable<License> {
     private final String url;
     /** Names this license */
     private final String name;
+    /** Template compiled from the text, null until first rendered. */
+    private volatile LicenseTemplate template;
+    /** Texts rendered, indexed by the parameters substituted. */
+    private final ConcurrentMap<Map<String, String>, String> texts =
+            new ConcurrentHashMap<Map<String, String>, String>();
     
     /**
      * Constructs meta-data for a family of licenses.
@@ -58,6 +66,25 @@ public class License implements Comparable<License> {
     public License(final boolean isSourceRequired, final String baseText,
             final Collection<String> expectedParameters, final String id,
             final String url, final String name) {
+        this(isSourceRequired, LicenseText.of(baseText), expectedParameters,
+                id, url, name);
+    }
+
+    /**
+     * Constructs meta-data for a family of licenses
+     * whose text may be materialized only when first needed.
+     * @param isSourceRequired true if this license requires
+     * information about source distribution to be included
+     * within the distribution
+     * @param baseText supplies a template for the legal text, not null
+     * @param expectedParameters not null
+     * @param id not null
+     * @param url not null
+     * @param name not null
+     */
+    public License(final boolean isSourceRequired, final LicenseText baseText,
+            final Collection<String> expectedParameters, final String id,
+            final String url, final String name) {
         super();
         this.isSourceRequired = isSourceRequired;
         this.baseText = baseText;
@@ -90,6 +117,7 @@ public class License implements Comparable<License> {
 
     /**
      * Gets legal text expressing this license,
+     * rendered once for each distinct set of parameters.
      * 
      * @param parameters possibly null
      * @return not null
@@ -98,9 +126,45 @@ public class License implements Comparable<License> {
      */
     public String getText(final Map<String, String> parameters)
             throws LicenseTemplateException {
-        return substituteInto(validate(parameters), this.baseText);
+        final Map<String, String> values = parameters == null
+                ? Collections.<String, String>emptyMap() : parameters;
+        final String rendered = this.texts.get(values);
+        if (rendered != null) {
+            // Only validated parameters are cached
+            return rendered;
+        }
+        final String result = template().render(validate(values));
+        if (result != null) {
+            this.texts.putIfAbsent(Collections.unmodifiableMap(
+                    new HashMap<String, String>(values)), result);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the template compiled from the text,
+     * compiling it when first needed.
+     * @return not null
+     */
+    private LicenseTemplate template() {
+        LicenseTemplate result = this.template;
+        if (result == null) {
+            result = LicenseTemplate.compile(getBaseText(),
+                    this.expectedParameters);
+            this.template = result;
+        }
+        return result;
     }
     
+    /**
+     * Gets the template for the legal text,
+     * before any parameters are substituted.
+     * @return not null
+     */
+    public String getBaseText() {
+        return this.baseText.get();
+    }
+
     /**
      * Gets parameters required by the template
      * to generate a instance of this license family.
@@ -153,33 +217,6 @@ public class License implements Comparable<License> {
                 .containsAll(keySet);
     }
 
-    /**
-     * Translates a parameter name to 
-     * the variable style used by the template
-     * @param parameterName not null
-     * @return variable in template format, not null
-     */
-    private String variable(final String parameterName) {
-        return "${" + parameterName + "}";
-    }
-
-    /**
-     * Substitutes parameter values into the variable
-     * in the template legalise, parameterising 
-     * an instance of the license family.
-     * @param parameters not null
-     * @param text template text
-     * @return not null
-     */
-    private String substituteInto(final Map<String, String> parameters,
-            final String text) {
-        String result = text;
-        for (final Map.Entry<String, String> entry : parameters.entrySet()) {
-            result = result.replace(variable(entry.getKey()), entry.getValue());
-        }
-        return result;
-    }
-
     /**
      * Stores the license by its id.
      * @param map not null
@@ -238,7 +275,7 @@ public class License implements Comparable<License> {
             return false;
         }
         final License other = (License) obj;
-        return getId().equals(other);
+        return getId().equals(other.getId());
     }
 
     /**
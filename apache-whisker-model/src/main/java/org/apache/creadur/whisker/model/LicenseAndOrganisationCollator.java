@@ -29,6 +29,46 @@ public class LicenseAndOrganisationCollator extends Visitor {
     private final Set<License> licenses = new TreeSet<License>();
     /** The organisations currently collected. */
     private final Set<Organisation> organisations = new TreeSet<Organisation>();
+    /** Stop collating once a second license is collected? */
+    private boolean stopAtSecondLicense = false;
+    /** Stop collating once a second organisation is collected? */
+    private boolean stopAtSecondOrganisation = false;
+
+    /**
+     * Stops collating once a second license is collected,
+     * when {@link #isOnlyLicense(License)} is settled.
+     * Licenses and organisations collected are then incomplete.
+     * @return this, not null
+     */
+    public LicenseAndOrganisationCollator stopAtSecondLicense() {
+        this.stopAtSecondLicense = true;
+        return this;
+    }
+
+    /**
+     * Stops collating once a second organisation is collected,
+     * when {@link #isOnlyOrganisation(String)} is settled.
+     * Licenses and organisations collected are then incomplete.
+     * @return this, not null
+     */
+    public LicenseAndOrganisationCollator stopAtSecondOrganisation() {
+        this.stopAtSecondOrganisation = true;
+        return this;
+    }
+
+    /**
+     * Done once a second license or organisation has been
+     * collected, when asked to stop then.
+     * @see Visitor#isDone()
+     * @return true when collation has stopped,
+     * false otherwise
+     */
+    @Override
+    public boolean isDone() {
+        return (this.stopAtSecondLicense && this.licenses.size() > 1)
+                || (this.stopAtSecondOrganisation
+                        && this.organisations.size() > 1);
+    }
 
     /**
      * Gets the licenses collected.
@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Legal text compiled into literal segments and the parameters
+ * substituted between them, so that rendering scans the text
+ * only once, when compiled.
+ * <p>
+ * Variables are written <code>${name}</code>. Only variables naming
+ * an expected parameter are substituted. Others are left as written.
+ * Values substituted are not themselves scanned for variables.
+ * </p>
+ */
+final class LicenseTemplate {
+
+    /** Opens a variable. */
+    private static final String VARIABLE_START = "${";
+    /** Closes a variable. */
+    private static final char VARIABLE_END = '}';
+
+    /** Literal text, one more than the parameters, null for no text. */
+    private final String[] literals;
+    /** Names the parameter substituted after each literal but the last. */
+    private final String[] parameters;
+    /** Number of literal characters. */
+    private final int length;
+
+    /**
+     * Compiles a template.
+     * @param text possibly null
+     * @param expectedParameters names substituted, not null
+     * @return not null
+     */
+    static LicenseTemplate compile(final String text,
+            final Collection<String> expectedParameters) {
+        if (text == null) {
+            return new LicenseTemplate(null, new String[0]);
+        }
+        final List<String> literals = new ArrayList<String>();
+        final List<String> parameters = new ArrayList<String>();
+        int literalStart = 0;
+        int variableStart = text.indexOf(VARIABLE_START);
+        while (variableStart >= 0) {
+            final int variableEnd = text.indexOf(VARIABLE_END,
+                    variableStart + VARIABLE_START.length());
+            if (variableEnd < 0) {
+                break;
+            }
+            final String name = text.substring(
+                    variableStart + VARIABLE_START.length(), variableEnd);
+            if (expectedParameters.contains(name)) {
+                literals.add(text.substring(literalStart, variableStart));
+                parameters.add(name);
+                literalStart = variableEnd + 1;
+                variableStart = text.indexOf(VARIABLE_START, literalStart);
+            } else {
+                variableStart = text.indexOf(VARIABLE_START, variableStart + 1);
+            }
+        }
+        literals.add(text.substring(literalStart));
+        return new LicenseTemplate(literals.toArray(new String[literals.size()]),
+                parameters.toArray(new String[parameters.size()]));
+    }
+
+    /**
+     * Constructs a template.
+     * @param literals null for no text
+     * @param parameters not null
+     */
+    private LicenseTemplate(final String[] literals, final String[] parameters) {
+        this.literals = literals;
+        this.parameters = parameters;
+        int total = 0;
+        if (literals != null) {
+            for (final String literal: literals) {
+                total += literal.length();
+            }
+        }
+        this.length = total;
+    }
+
+    /**
+     * Renders the text, substituting values.
+     * @param values not null, indexed by parameter name,
+     * including every parameter expected
+     * @return null when there is no text
+     */
+    String render(final Map<String, String> values) {
+        if (literals == null) {
+            return null;
+        }
+        if (parameters.length == 0) {
+            return literals[0];
+        }
+        int capacity = length;
+        for (final String parameter: parameters) {
+            capacity += values.get(parameter).length();
+        }
+        final StringBuilder result = new StringBuilder(capacity);
+        for (int i = 0; i < parameters.length; i++) {
+            result.append(literals[i]).append(values.get(parameters[i]));
+        }
+        return result.append(literals[parameters.length]).toString();
+    }
+}
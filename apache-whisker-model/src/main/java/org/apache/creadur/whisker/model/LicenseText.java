@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.model;
+
+/**
+ * Supplies the template for the legal text of a license.
+ * <p>
+ * Texts may be held in memory, or only materialized when first
+ * asked for, so that licenses which are never rendered cost
+ * little heap. Implementations must be safe for concurrent use.
+ * </p>
+ */
+public abstract class LicenseText {
+
+    /**
+     * Gets text held in memory.
+     * @param text possibly null
+     * @return not null
+     */
+    public static LicenseText of(final String text) {
+        return new Literal(text);
+    }
+
+    /**
+     * Gets the template for the legal text.
+     * @return possibly null when the license has no text
+     */
+    public abstract String get();
+
+    /**
+     * Text held in memory.
+     */
+    private static final class Literal extends LicenseText {
+        /** The text, possibly null. */
+        private final String text;
+
+        /**
+         * Constructs text held in memory.
+         * @param text possibly null
+         */
+        Literal(final String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String get() {
+            return this.text;
+        }
+    }
+}
@@ -28,6 +28,28 @@ public class NoCopyrightNoticeVerifier extends Visitor {
      */
     private boolean isCopyrightNoticePresent = false;
 
+    /**
+     * Only licenses carry copyright notices,
+     * so organisations need not be traversed.
+     * @see Visitor#traverseByOrganisation()
+     * @return false
+     */
+    @Override
+    public boolean traverseByOrganisation() {
+        return false;
+    }
+
+    /**
+     * Done once a copyright notice is found.
+     * @see Visitor#isDone()
+     * @return true when a copyright notice is present,
+     * false otherwise
+     */
+    @Override
+    public boolean isDone() {
+        return isCopyrightNoticePresent;
+    }
+
     /**
      * Visits a license to determine whether a copyright notice
      * has been set.
@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.model;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Classifies, in a single bottom up pass, whether each directory,
+ * license and organisation within the contents holds only material
+ * licensed under the primary license by the primary organisation,
+ * with no additional copyright notice.
+ * <p>
+ * Each element is summarised from the summaries of its children,
+ * so classifying every element costs no more than traversing
+ * the contents once. Elements are classified by identity.
+ * </p>
+ */
+final class PrimaryClassification {
+
+    /** Classifications, indexed by element. */
+    private final Map<ContentElement, Boolean> onlyPrimary =
+            new IdentityHashMap<ContentElement, Boolean>();
+    /** Principle license for main work, possibly null. */
+    private final License primaryLicense;
+    /** Individual or group with main responsible for main work. */
+    private final String primaryOrganisationId;
+
+    /**
+     * Classifies contents.
+     * @param contents not null
+     * @param primaryLicense possibly null
+     * @param primaryOrganisationId possibly null
+     */
+    PrimaryClassification(final Collection<WithinDirectory> contents,
+            final License primaryLicense, final String primaryOrganisationId) {
+        this.primaryLicense = primaryLicense;
+        this.primaryOrganisationId = primaryOrganisationId;
+        for (final WithinDirectory directory: contents) {
+            classify(directory);
+        }
+    }
+
+    /**
+     * Gets the classification of an element.
+     * @param element not null
+     * @return null when the element is not a directory, license
+     * or organisation within the contents classified
+     */
+    Boolean isOnlyPrimary(final ContentElement element) {
+        return onlyPrimary.get(element);
+    }
+
+    /**
+     * Classifies a directory, and everything within.
+     * @param directory not null
+     */
+    private void classify(final WithinDirectory directory) {
+        final Summary summary = new Summary();
+        for (final ByOrganisation byOrganisation: directory.getPublicDomain()) {
+            summary.add(classify(byOrganisation));
+        }
+        for (final WithLicense license: directory.getLicenses()) {
+            summary.add(classify(license));
+        }
+        record(directory, summary);
+    }
+
+    /**
+     * Classifies a license, and the organisations within.
+     * @param license not null
+     * @return not null
+     */
+    private Summary classify(final WithLicense license) {
+        final Summary summary = new Summary();
+        summary.addLicense(license.getLicense());
+        summary.copyrightNotice = license.hasCopyrightNotice();
+        for (final ByOrganisation byOrganisation: license.getOrganisations()) {
+            summary.add(classify(byOrganisation));
+        }
+        return record(license, summary);
+    }
+
+    /**
+     * Classifies an organisation.
+     * @param byOrganisation not null
+     * @return not null
+     */
+    private Summary classify(final ByOrganisation byOrganisation) {
+        final Summary summary = new Summary();
+        summary.addOrganisation(byOrganisation.getOrganisation());
+        return record(byOrganisation, summary);
+    }
+
+    /**
+     * Records the classification of an element.
+     * @param element not null
+     * @param summary not null
+     * @return the summary
+     */
+    private Summary record(final ContentElement element, final Summary summary) {
+        onlyPrimary.put(element, Boolean.valueOf(isOnlyPrimary(summary)));
+        return summary;
+    }
+
+    /**
+     * Does the summary describe only primary material?
+     * Licenses and organisations are matched by their natural order,
+     * as when they are collated.
+     * @param summary not null
+     * @return true when the only license is primary, the only
+     * organisation is primary, and no copyright notice is present
+     */
+    private boolean isOnlyPrimary(final Summary summary) {
+        return !summary.manyLicenses && summary.license != null
+                && primaryLicense != null
+                && summary.license.compareTo(primaryLicense) == 0
+                && !summary.manyOrganisations && summary.organisation != null
+                && summary.organisation.getId() != null
+                && summary.organisation.getId().equals(primaryOrganisationId)
+                && !summary.copyrightNotice;
+    }
+
+    /**
+     * Summarises the licenses and organisations within an element.
+     */
+    private static final class Summary {
+        /** The first license found, null when none are. */
+        private License license;
+        /** Has more than one license been found? */
+        private boolean manyLicenses;
+        /** The first organisation found, null when none are. */
+        private Organisation organisation;
+        /** Has more than one organisation been found? */
+        private boolean manyOrganisations;
+        /** Has a copyright notice been found? */
+        private boolean copyrightNotice;
+
+        /**
+         * Adds a license.
+         * @param found possibly null when unknown
+         */
+        void addLicense(final License found) {
+            if (found == null) {
+                manyLicenses = true;
+            } else if (license == null) {
+                license = found;
+            } else if (license.compareTo(found) != 0) {
+                manyLicenses = true;
+            }
+        }
+
+        /**
+         * Adds an organisation.
+         * @param found possibly null when unknown
+         */
+        void addOrganisation(final Organisation found) {
+            if (found == null) {
+                manyOrganisations = true;
+            } else if (organisation == null) {
+                organisation = found;
+            } else if (organisation.compareTo(found) != 0) {
+                manyOrganisations = true;
+            }
+        }
+
+        /**
+         * Adds the summary of a child.
+         * @param child not null
+         */
+        void add(final Summary child) {
+            if (child.license != null) {
+                addLicense(child.license);
+            }
+            manyLicenses |= child.manyLicenses;
+            if (child.organisation != null) {
+                addOrganisation(child.organisation);
+            }
+            manyOrganisations |= child.manyOrganisations;
+            copyrightNotice |= child.copyrightNotice;
+        }
+    }
+}
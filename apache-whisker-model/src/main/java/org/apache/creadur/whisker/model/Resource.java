@@ -129,7 +129,8 @@ public class Resource implements Comparable<Resource>, ContentElement {
      * @param visitor possibly null
      */
     public void accept(final Visitor visitor) {
-        if (visitor != null && visitor.traverseResource()) {
+        if (visitor != null && !visitor.isDone()
+                && visitor.traverseResource()) {
             visitor.visit(this);
         }
     }
@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Deduplicates strings repeated throughout a model,
+ * such as identifiers and sources.
+ * <p>
+ * Builders intern values as they are read, so that every
+ * occurrence shares a single instance. Models then hold one copy
+ * of each, and equality checks between interned values succeed
+ * on identity without comparing characters.
+ * </p><p>
+ * Unlike {@link String#intern()}, a pool is scoped: typically to
+ * a single descriptor, or shared across a batch of loads, and
+ * released with them. Pools are safe for concurrent use.
+ * </p>
+ */
+public final class StringPool {
+
+    /** Canonical instances, indexed by themselves. */
+    private final ConcurrentMap<String, String> strings =
+            new ConcurrentHashMap<String, String>();
+
+    /**
+     * Gets the canonical instance equal to the value.
+     * @param value possibly null
+     * @return the instance first pooled, or null when the value is null
+     */
+    public String intern(final String value) {
+        if (value == null) {
+            return null;
+        }
+        final String pooled = strings.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        final String raced = strings.putIfAbsent(value, value);
+        return raced == null ? value : raced;
+    }
+
+    /**
+     * Gets the number of distinct values pooled.
+     * @return not negative
+     */
+    public int size() {
+        return strings.size();
+    }
+}
@@ -67,6 +67,17 @@ public abstract class Visitor {
         return true;
     }
 
+    /**
+     * Ends traversal early, once this visitor
+     * has seen all it needs to.
+     * No further elements are visited once done.
+     * @return true when this visitor needs to visit
+     * no more elements, false otherwise
+     */
+    public boolean isDone() {
+        return false;
+    }
+
     /**
      * Visits {@link WithinDirectory}.
      * @param directory not null
@@ -148,9 +148,13 @@ public class WithLicense implements Comparable<WithLicense>, ContentElement {
      * @param visitor possibly null
      */
     public void accept(final Visitor visitor) {
-        if (visitor != null && visitor.traverseWithLicense()) {
+        if (visitor != null && !visitor.isDone()
+                && visitor.traverseWithLicense()) {
             visitor.visit(this);
             for (final ByOrganisation organisation : getOrganisations()) {
+                if (visitor.isDone()) {
+                    return;
+                }
                 organisation.accept(visitor);
             }
         }
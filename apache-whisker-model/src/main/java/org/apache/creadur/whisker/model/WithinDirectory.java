@@ -132,15 +132,21 @@ public class WithinDirectory implements Comparable<WithinDirectory>, ContentElem
      * @param visitor possibly null
      */
     public void accept(final Visitor visitor) {
-        if (visitor != null) {
+        if (visitor != null && !visitor.isDone()) {
             visitor.visit(this);
             if (visitor.traversePublicDomain()) {
                 for (final ByOrganisation organisation : getPublicDomain()) {
+                    if (visitor.isDone()) {
+                        return;
+                    }
                     organisation.accept(visitor);
                 }
             }
 
             for (final ContentElement license : getLicenses()) {
+                if (visitor.isDone()) {
+                    return;
+                }
                 license.accept(visitor);
             }
         }
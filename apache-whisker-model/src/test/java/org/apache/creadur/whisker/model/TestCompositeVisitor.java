@@ -0,0 +1,191 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestCompositeVisitor extends TestCase {
+
+    private static class Recorder extends Visitor {
+        final List<String> visits = new ArrayList<String>();
+        boolean publicDomain = true;
+        boolean withLicense = true;
+        boolean byOrganisation = true;
+        boolean resource = true;
+        int limit = Integer.MAX_VALUE;
+
+        @Override
+        public boolean isDone() {
+            return visits.size() >= limit;
+        }
+
+        @Override
+        public boolean traversePublicDomain() {
+            return publicDomain;
+        }
+
+        @Override
+        public boolean traverseWithLicense() {
+            return withLicense;
+        }
+
+        @Override
+        public boolean traverseByOrganisation() {
+            return byOrganisation;
+        }
+
+        @Override
+        public boolean traverseResource() {
+            return resource;
+        }
+
+        @Override
+        public void visit(final WithinDirectory directory) {
+            visits.add(directory.getName());
+        }
+
+        @Override
+        public void visit(final WithLicense license) {
+            visits.add(license.getName());
+        }
+
+        @Override
+        public void visit(final ByOrganisation byOrganisation) {
+            visits.add(byOrganisation.getId());
+        }
+
+        @Override
+        public void visit(final Resource resource) {
+            visits.add(resource.getName());
+        }
+    }
+
+    private WithinDirectory directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final License license = new License(false, "text",
+                Collections.<String>emptyList(), "example", null, "Example");
+        directory = new WithinDirectory("lib", Collections.singletonList(
+                new WithLicense(license, null,
+                        Collections.<String, String>emptyMap(),
+                        Collections.singletonList(new ByOrganisation(
+                                new Organisation("third", "Third", null),
+                                Collections.singletonList(
+                                        new Resource("licensed.jar", null, null)))))),
+                Collections.singletonList(new ByOrganisation(
+                        new Organisation("primary", "Primary", null),
+                        Collections.singletonList(
+                                new Resource("pd.txt", null, null)))));
+    }
+
+    private List<String> alone(final Recorder recorder) {
+        directory.accept(recorder);
+        return recorder.visits;
+    }
+
+    public void testEveryVisitorSeesEveryElement() {
+        final Recorder one = new Recorder();
+        final Recorder two = new Recorder();
+
+        directory.accept(new CompositeVisitor(one, two));
+
+        final List<String> expected = alone(new Recorder());
+        assertEquals(Arrays.asList("lib", "primary", "pd.txt",
+                "Example", "third", "licensed.jar"), expected);
+        assertEquals(expected, one.visits);
+        assertEquals(expected, two.visits);
+    }
+
+    public void testEachVisitorTunesItsOwnTraversal() {
+        final Recorder all = new Recorder();
+        final Recorder licensedOnly = new Recorder();
+        licensedOnly.publicDomain = false;
+        final Recorder shallow = new Recorder();
+        shallow.byOrganisation = false;
+        final Recorder noResources = new Recorder();
+        noResources.resource = false;
+        final Recorder publicDomainOnly = new Recorder();
+        publicDomainOnly.withLicense = false;
+
+        directory.accept(new CompositeVisitor(all, licensedOnly, shallow,
+                noResources, publicDomainOnly));
+
+        assertEquals(all.visits, alone(new Recorder()));
+        final Recorder expected = new Recorder();
+        expected.publicDomain = false;
+        assertEquals(alone(expected), licensedOnly.visits);
+        final Recorder expectedShallow = new Recorder();
+        expectedShallow.byOrganisation = false;
+        assertEquals(alone(expectedShallow), shallow.visits);
+        final Recorder expectedNoResources = new Recorder();
+        expectedNoResources.resource = false;
+        assertEquals(alone(expectedNoResources), noResources.visits);
+        final Recorder expectedPublicDomainOnly = new Recorder();
+        expectedPublicDomainOnly.withLicense = false;
+        assertEquals(alone(expectedPublicDomainOnly), publicDomainOnly.visits);
+        assertEquals(Arrays.asList("lib", "primary", "pd.txt"),
+                publicDomainOnly.visits);
+    }
+
+    public void testVisitorsDoneAreShownNothingMore() {
+        final Recorder all = new Recorder();
+        final Recorder two = new Recorder();
+        two.limit = 2;
+
+        directory.accept(new CompositeVisitor(all, two));
+
+        assertEquals(6, all.visits.size());
+        assertEquals(Arrays.asList("lib", "primary"), two.visits);
+    }
+
+    public void testTraversalEndsOnceAllVisitorsAreDone() {
+        final Recorder one = new Recorder();
+        one.limit = 1;
+        final Recorder three = new Recorder();
+        three.limit = 3;
+        final CompositeVisitor subject = new CompositeVisitor(one, three);
+        final Recorder after = new Recorder();
+
+        directory.accept(new CompositeVisitor(subject, after));
+
+        assertTrue(subject.isDone());
+        assertEquals(Arrays.asList("lib", "primary", "pd.txt"), three.visits);
+        assertEquals(6, after.visits.size());
+    }
+
+    public void testNothingIsTraversedWhenNoVisitorAsks() {
+        final Recorder shallow = new Recorder();
+        shallow.publicDomain = false;
+        shallow.withLicense = false;
+        final CompositeVisitor subject = new CompositeVisitor(shallow);
+
+        directory.accept(subject);
+
+        assertFalse(subject.traversePublicDomain());
+        assertFalse(subject.traverseWithLicense());
+        assertEquals(Collections.singletonList("lib"), shallow.visits);
+    }
+}
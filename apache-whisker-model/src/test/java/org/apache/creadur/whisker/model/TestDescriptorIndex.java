@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class TestDescriptorIndex extends TestCase {
+
+    private License license;
+    private Organisation primary;
+    private Organisation third;
+    private Map<String, String> notices;
+    private Collection<WithinDirectory> contents;
+    private Resource shared;
+    private Resource noticed;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        license = new License(false, "text", Collections.<String>emptyList(),
+                "example", "http://example.org", "Example");
+        primary = new Organisation("primary", "Primary", null);
+        third = new Organisation("third", "Third", null);
+        notices = new HashMap<String, String>();
+        notices.put("n1", "Notice one");
+        shared = new Resource("shared.jar", null, null);
+        noticed = new Resource("noticed.jar", "n1", null);
+        contents = new ArrayList<WithinDirectory>();
+        contents.add(directory("lib", new ByOrganisation(third,
+                Arrays.asList(shared, noticed)), new ByOrganisation(primary,
+                        Arrays.asList(new Resource("pd.txt", null, null)))));
+        contents.add(directory("other", new ByOrganisation(primary,
+                Arrays.asList(new Resource("shared.jar", "n1", null))), null));
+    }
+
+    private WithinDirectory directory(final String name,
+            final ByOrganisation licensed, final ByOrganisation publicDomain) {
+        final Collection<ByOrganisation> publicDomainOrgs = publicDomain == null
+                ? Collections.<ByOrganisation>emptyList()
+                : Collections.singletonList(publicDomain);
+        return new WithinDirectory(name, Collections.singletonList(
+                new WithLicense(license, null, Collections.<String, String>emptyMap(),
+                        Collections.singletonList(licensed))), publicDomainOrgs);
+    }
+
+    private Descriptor descriptor() {
+        return new Descriptor(license, "primary", null,
+                Collections.singletonMap("example", license), notices,
+                new HashMap<String, Organisation>(), contents);
+    }
+
+    public void testResourcesAreIndexedByNotice() {
+        final DescriptorIndex index = descriptor().getIndex();
+        assertEquals(2, index.resourcesWithNotice("n1").size());
+        assertTrue(index.resourcesWithNotice("n2").isEmpty());
+    }
+
+    public void testResourcesAreIndexedByOrganisation() {
+        final DescriptorIndex index = descriptor().getIndex();
+        assertEquals(2, index.resourcesBy("third").size());
+        assertEquals(2, index.resourcesBy("primary").size());
+        assertTrue(index.resourcesBy("missing").isEmpty());
+    }
+
+    public void testEveryPlacementOfAResourceIsIndexed() {
+        final List<DescriptorIndex.Placement> placements =
+                descriptor().getIndex().placementsOf("shared.jar");
+        assertEquals(2, placements.size());
+        assertEquals("lib", placements.get(0).getDirectory().getName());
+        assertSame(license, placements.get(0).getLicense().getLicense());
+        assertEquals("third", placements.get(0).getOrganisation().getId());
+        assertSame(shared, placements.get(0).getResource());
+        assertEquals("other", placements.get(1).getDirectory().getName());
+    }
+
+    public void testPublicDomainPlacementsHaveNoLicense() {
+        final List<DescriptorIndex.Placement> placements =
+                descriptor().getIndex().placementsOf("pd.txt");
+        assertEquals(1, placements.size());
+        assertNull(placements.get(0).getLicense());
+    }
+
+    public void testNoticesAreResolvedOnce() {
+        final Descriptor subject = descriptor();
+        assertSame(subject.getResourceNotices(), subject.getResourceNotices());
+        assertEquals(2, subject.getResourceNotices().get("Notice one").size());
+        assertEquals(Collections.singleton("Notice one"), subject.getOtherNotices());
+    }
+
+    public void testMissingNoticeIsReportedWhenAskedFor() {
+        notices.clear();
+        final Descriptor subject = descriptor();
+        try {
+            subject.getResourceNotices();
+            fail("Expected missing notice to be reported");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Notice missing for id n1", e.getMessage());
+        }
+    }
+}
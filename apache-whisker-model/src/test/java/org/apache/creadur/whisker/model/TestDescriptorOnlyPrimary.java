@@ -18,6 +18,8 @@
  */
 package org.apache.creadur.whisker.model;
 
+import java.util.Iterator;
+
 import junit.framework.TestCase;
 
 public class TestDescriptorOnlyPrimary extends TestCase {
@@ -40,4 +42,33 @@ public class TestDescriptorOnlyPrimary extends TestCase {
         assertFalse("Work is not only primary when subsidary copyright notices exist.",
                 subject.isOnlyPrimary(builder.contents.iterator().next()));
     }
+
+    public void testIsOnlyPrimaryForPrimaryDirectoryAndLicense() throws Exception {
+        builder.withDirectory(".");
+        subject = builder.build();
+        final WithinDirectory directory = builder.contents.iterator().next();
+        final WithLicense license = directory.getLicenses().iterator().next();
+        assertTrue(subject.isOnlyPrimary(directory));
+        assertTrue(subject.isOnlyPrimary(license));
+        assertFalse("Organisations alone carry no license",
+                subject.isOnlyPrimary(license.getOrganisations().iterator().next()));
+    }
+
+    public void testIsNotOnlyPrimaryForThirdPartyDirectory() throws Exception {
+        builder.withDirectory(".").withThirdPartyDirectory("lib");
+        subject = builder.build();
+        final Iterator<WithinDirectory> directories = builder.contents.iterator();
+        assertTrue(subject.isOnlyPrimary(directories.next()));
+        final WithinDirectory thirdParty = directories.next();
+        assertFalse(subject.isOnlyPrimary(thirdParty));
+        assertFalse(subject.isOnlyPrimary(thirdParty.getLicenses().iterator().next()));
+    }
+
+    public void testIsOnlyPrimaryForElementsOutsideContents() throws Exception {
+        subject = builder.build();
+        assertFalse(subject.isOnlyPrimary(new Resource("resource", null, null)));
+        builder.withDirectory(".");
+        final WithinDirectory directory = builder.contents.iterator().next();
+        assertTrue(subject.isOnlyPrimary(directory));
+    }
 }
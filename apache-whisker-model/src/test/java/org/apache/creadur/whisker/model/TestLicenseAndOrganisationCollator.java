@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+public class TestLicenseAndOrganisationCollator extends TestCase {
+
+    private WithinDirectory directory;
+    private License first;
+    private License second;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        first = new License(false, "text", Collections.<String>emptyList(),
+                "first", null, "First");
+        second = new License(false, "text", Collections.<String>emptyList(),
+                "second", null, "Second");
+        directory = new WithinDirectory("lib", Arrays.asList(
+                withLicense(first, "one"), withLicense(second, "one"),
+                withLicense(first, "two"), withLicense(second, "three")),
+                Collections.<ByOrganisation>emptyList());
+    }
+
+    private WithLicense withLicense(final License license, final String id) {
+        return new WithLicense(license, null,
+                Collections.<String, String>emptyMap(),
+                Collections.singletonList(new ByOrganisation(
+                        new Organisation(id, id, null),
+                        Collections.<Resource>emptyList())));
+    }
+
+    public void testCollatesEverythingByDefault() {
+        final LicenseAndOrganisationCollator subject =
+                new LicenseAndOrganisationCollator();
+        directory.accept(subject);
+        assertFalse(subject.isDone());
+        assertEquals(2, subject.getLicenses().size());
+        assertEquals(3, subject.getOrganisation().size());
+    }
+
+    public void testStopsAtSecondLicense() {
+        final LicenseAndOrganisationCollator subject =
+                new LicenseAndOrganisationCollator().stopAtSecondLicense();
+        directory.accept(subject);
+        assertTrue(subject.isDone());
+        assertFalse(subject.isOnlyLicense(first));
+        assertEquals(1, subject.getOrganisation().size());
+    }
+
+    public void testStopsAtSecondOrganisation() {
+        final LicenseAndOrganisationCollator subject =
+                new LicenseAndOrganisationCollator().stopAtSecondOrganisation();
+        directory.accept(subject);
+        assertTrue(subject.isDone());
+        assertFalse(subject.isOnlyOrganisation("one"));
+        assertEquals(2, subject.getOrganisation().size());
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class TestLicenseTemplate extends TestCase {
+
+    private Map<String, String> values;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        values = new HashMap<String, String>();
+        values.put("owner", "Someone");
+        values.put("year", "2012");
+    }
+
+    public void testParametersAreSubstituted() {
+        assertEquals("Copyright 2012 Someone. Someone reserves all rights.",
+                LicenseTemplate.compile(
+                        "Copyright ${year} ${owner}. ${owner} reserves all rights.",
+                        Arrays.asList("owner", "year")).render(values));
+    }
+
+    public void testVariablesNotExpectedAreLeftAsWritten() {
+        assertEquals("${year} Someone ${owner",
+                LicenseTemplate.compile("${year} ${owner} ${owner",
+                        Collections.singleton("owner")).render(values));
+    }
+
+    public void testValuesAreNotScannedForVariables() {
+        values.put("owner", "${year}");
+        assertEquals("${year} 2012", LicenseTemplate.compile("${owner} ${year}",
+                Arrays.asList("owner", "year")).render(values));
+    }
+
+    public void testTextWithoutParametersIsReturnedAsIs() {
+        final String text = "Copyright";
+        assertSame(text, LicenseTemplate.compile(text,
+                Collections.<String>emptySet()).render(values));
+    }
+
+    public void testNoTextRendersNull() {
+        assertNull(LicenseTemplate.compile(null,
+                Collections.singleton("owner")).render(values));
+    }
+}
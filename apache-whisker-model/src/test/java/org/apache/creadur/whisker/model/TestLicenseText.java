@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class TestLicenseText extends TestCase {
+
+    private int materialized;
+
+    private License license;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        materialized = 0;
+        license = new License(false, new LicenseText() {
+            @Override
+            public String get() {
+                materialized++;
+                return "Copyright ${owner}";
+            }
+        }, Collections.singleton("owner"), "id", "url", "name");
+    }
+
+    public void testTextIsNotMaterializedUntilAskedFor() {
+        assertEquals(0, materialized);
+        assertEquals("name", license.getName());
+        assertEquals(0, materialized);
+    }
+
+    public void testTextIsMaterializedForRendering() throws Exception {
+        final Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("owner", "Someone");
+        assertEquals("Copyright Someone", license.getText(parameters));
+        assertEquals(1, materialized);
+    }
+
+    public void testTextIsRenderedOncePerParameters() throws Exception {
+        final Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("owner", "Someone");
+        final String text = license.getText(parameters);
+        assertSame(text, license.getText(
+                Collections.singletonMap("owner", "Someone")));
+        parameters.put("owner", "Another");
+        assertEquals("Copyright Another", license.getText(parameters));
+        assertEquals(1, materialized);
+    }
+
+    public void testCachedTextStillRequiresMatchingParameters() throws Exception {
+        license.getText(Collections.singletonMap("owner", "Someone"));
+        try {
+            license.getText(Collections.singletonMap("other", "Someone"));
+            fail("Expected parameter mismatch");
+        } catch (LicenseTemplateException e) {
+            // expected
+        }
+    }
+
+    public void testTextMayBeHeldInMemory() {
+        assertEquals("text", LicenseText.of("text").get());
+        assertNull(LicenseText.of(null).get());
+    }
+}
@@ -18,6 +18,9 @@
  */
 package org.apache.creadur.whisker.model;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import junit.framework.TestCase;
 
 public class TestNoCopyrightNoticeVerifier extends TestCase {
@@ -37,4 +40,18 @@ public class TestNoCopyrightNoticeVerifier extends TestCase {
         new WithLicenseBuilderForTesting().withCopyrightNotice().build().accept(subject);
         assertTrue(subject.isCopyrightNoticePresent());
     }
+
+    public void testStopsOnceCopyrightNoticeIsFound() throws Exception {
+        final WithLicense unseen = new WithLicenseBuilderForTesting().build();
+        new WithinDirectory("lib", Arrays.asList(
+                new WithLicenseBuilderForTesting().withCopyrightNotice().build(),
+                unseen), Collections.<ByOrganisation>emptyList()).accept(
+                        new NoCopyrightNoticeVerifier() {
+                            @Override
+                            public void visit(final WithLicense license) {
+                                assertNotSame(unseen, license);
+                                super.visit(license);
+                            }
+                        });
+    }
 }
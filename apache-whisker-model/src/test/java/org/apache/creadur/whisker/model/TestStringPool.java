@@ -0,0 +1,63 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.model;
+
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+public class TestStringPool extends TestCase {
+
+    private StringPool subject;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        subject = new StringPool();
+    }
+
+    public void testEqualValuesShareFirstInstance() {
+        final String first = new String("AL2");
+        final String second = new String("AL2");
+        assertSame(first, subject.intern(first));
+        assertSame(first, subject.intern(second));
+        assertEquals(1, subject.size());
+    }
+
+    public void testDistinctValuesArePooledSeparately() {
+        subject.intern("AL2");
+        subject.intern("BSD");
+        assertEquals(2, subject.size());
+    }
+
+    public void testNullIsNotPooled() {
+        assertNull(subject.intern(null));
+        assertEquals(0, subject.size());
+    }
+
+    public void testLicensesWithSameIdAreEqual() {
+        final License license = new License(false, "text",
+                Collections.<String>emptySet(), new String("AL2"), "url", "name");
+        final License other = new License(false, "other",
+                Collections.<String>emptySet(), new String("AL2"), "url", "other");
+        assertEquals(license, other);
+        assertFalse(license.equals(new License(false, "text",
+                Collections.<String>emptySet(), "BSD", "url", "name")));
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Collects directories from the entries of an archive.
+ * Archives need not contain entries for directories,
+ * so every parent of an entry is implied.
+ * Entries within excluded directories are skipped.
+ */
+class ArchiveDirectories {
+    /** Represents the base directory, as when scanning a file system. */
+    private static final String BASE_DIRECTORY = ".";
+    /** Separates path elements within entry names. */
+    private static final char SEPARATOR = '/';
+
+    /** Directories by name. */
+    private final Map<String, Directory> directories;
+    /** Number of levels of nested archives descended into. */
+    private final int nestingDepth;
+    /** Largest nested archive buffered in memory, in bytes. */
+    private final int bufferLimit;
+    /** Selects the resources scanned. */
+    private final ScanFilter filter;
+    /** Whether each directory met lies within an excluded directory. */
+    private final Map<String, Boolean> pruned;
+    /** Entries added, in order, when staged. Otherwise null. */
+    private final List<StagedEntry> staged;
+
+    /**
+     * An entry staged until its archive has been read completely.
+     */
+    private static final class StagedEntry {
+        /** Names the entry within the archive. */
+        private final String entryName;
+        /** Is the entry a directory? */
+        private final boolean isDirectory;
+
+        /**
+         * Stages an entry.
+         * @param entryName not null
+         * @param isDirectory true when the entry is a directory
+         */
+        private StagedEntry(final String entryName, final boolean isDirectory) {
+            this.entryName = entryName;
+            this.isDirectory = isDirectory;
+        }
+    }
+
+    /**
+     * Constructs directories containing only an empty base.
+     * @param nestingDepth number of levels of nested archives
+     * descended into, zero for none
+     * @param bufferLimit largest nested archive buffered
+     * in memory, in bytes
+     * @param filter selects the resources scanned, not null
+     */
+    ArchiveDirectories(final int nestingDepth, final int bufferLimit,
+            final ScanFilter filter) {
+        this(nestingDepth, bufferLimit, filter, null);
+    }
+
+    /**
+     * Constructs directories containing only an empty base.
+     * @param nestingDepth number of levels of nested archives
+     * descended into, zero for none
+     * @param bufferLimit largest nested archive buffered
+     * in memory, in bytes
+     * @param filter selects the resources scanned, not null
+     * @param staged collects entries added, or null when
+     * entries are not staged
+     */
+    private ArchiveDirectories(final int nestingDepth, final int bufferLimit,
+            final ScanFilter filter, final List<StagedEntry> staged) {
+        this.staged = staged;
+        directories = new TreeMap<String, Directory>();
+        pruned = new HashMap<String, Boolean>();
+        this.nestingDepth = nestingDepth;
+        this.bufferLimit = bufferLimit;
+        this.filter = filter;
+        directory(BASE_DIRECTORY);
+    }
+
+    /**
+     * Gets the number of levels of nested archives descended into.
+     * @return zero when nested archives are not descended into
+     */
+    public int getNestingDepth() {
+        return nestingDepth;
+    }
+
+    /**
+     * Gets the size of the largest nested archive buffered in memory.
+     * Larger nested archives are streamed.
+     * @return size in bytes
+     */
+    public int getBufferLimit() {
+        return bufferLimit;
+    }
+
+    /**
+     * Creates directories staging the entries of a nested archive.
+     * Staged entries are added to these directories by
+     * {@link #commit(ArchiveDirectories)}, once the nested archive
+     * has been read completely.
+     * @return not null
+     */
+    public ArchiveDirectories stage() {
+        return new ArchiveDirectories(nestingDepth, bufferLimit, filter,
+                new ArrayList<StagedEntry>());
+    }
+
+    /**
+     * Adds the entries staged.
+     * @param stage created by {@link #stage()}, not null
+     */
+    public void commit(final ArchiveDirectories stage) {
+        for (final StagedEntry entry: stage.staged) {
+            add(entry.entryName, entry.isDirectory);
+        }
+    }
+
+    /**
+     * Adds an archive entry.
+     * @param entryName names the entry within the archive, not null
+     * @param isDirectory true when the entry is a directory,
+     * false when the entry is a resource
+     * @return true when the entry may be descended into,
+     * false when it is excluded
+     */
+    public boolean add(final String entryName, final boolean isDirectory) {
+        final String path = normalise(entryName);
+        if (path.length() == 0) {
+            return true;
+        }
+        final int slash = path.lastIndexOf(SEPARATOR);
+        final String parent;
+        if (slash < 0) {
+            parent = BASE_DIRECTORY;
+        } else {
+            parent = path.substring(0, slash);
+        }
+        if (isPruned(parent) || filter.isExcluded(path)) {
+            return false;
+        }
+        if (staged != null) {
+            staged.add(new StagedEntry(entryName, isDirectory));
+        }
+        if (isDirectory) {
+            directory(path);
+        } else if (filter.isIncluded(path)) {
+            directory(parent).addResource(path.substring(slash + 1));
+        } else {
+            directory(parent);
+        }
+        return true;
+    }
+
+    /**
+     * Does the named directory lie within an excluded directory,
+     * or is it excluded itself?
+     * @param name names a directory, not null
+     * @return true when the contents of the directory are skipped,
+     * false otherwise
+     */
+    private boolean isPruned(final String name) {
+        if (filter.isEmpty() || BASE_DIRECTORY.equals(name)) {
+            return false;
+        }
+        Boolean result = pruned.get(name);
+        if (result == null) {
+            final int slash = name.lastIndexOf(SEPARATOR);
+            final String parent;
+            if (slash < 0) {
+                parent = BASE_DIRECTORY;
+            } else {
+                parent = name.substring(0, slash);
+            }
+            result = Boolean.valueOf(filter.isExcluded(name) || isPruned(parent));
+            pruned.put(name, result);
+        }
+        return result.booleanValue();
+    }
+
+    /**
+     * Gets the directories collected,
+     * with their contents compacted.
+     * @return directories ordered by name, not null
+     */
+    public Collection<Directory> getDirectories() {
+        for (final Directory directory: directories.values()) {
+            directory.getContents();
+        }
+        return new TreeSet<Directory>(directories.values());
+    }
+
+    /**
+     * Gets the named directory, adding it and its parents when missing.
+     * @param name not null
+     * @return not null
+     */
+    private Directory directory(final String name) {
+        Directory result = directories.get(name);
+        if (result == null) {
+            result = new Directory().setName(name);
+            directories.put(name, result);
+            if (!BASE_DIRECTORY.equals(name)) {
+                final int slash = name.lastIndexOf(SEPARATOR);
+                if (slash < 0) {
+                    directory(BASE_DIRECTORY);
+                } else {
+                    directory(name.substring(0, slash));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts an entry name into a path relative to the base.
+     * Leading and trailing separators, empty elements
+     * and current directory elements are dropped.
+     * @param entryName not null
+     * @return not null, empty for the base
+     */
+    private static String normalise(final String entryName) {
+        final StringBuilder result = new StringBuilder(entryName.length());
+        for (final String element: entryName.replace('\\', SEPARATOR).split("/")) {
+            if (element.length() > 0 && !BASE_DIRECTORY.equals(element)) {
+                if (result.length() > 0) {
+                    result.append(SEPARATOR);
+                }
+                result.append(element);
+            }
+        }
+        return result.toString();
+    }
+}
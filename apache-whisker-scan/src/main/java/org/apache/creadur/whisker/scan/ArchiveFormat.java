@@ -0,0 +1,304 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.Locale;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+
+/**
+ * Enumerates archive formats which can be scanned without extraction.
+ */
+enum ArchiveFormat {
+
+    /**
+     * Zip based archives, read from the central directory
+     * without reading the contents of any entry.
+     * Nested archives small enough to be buffered are read
+     * in the same way, larger ones are streamed.
+     */
+    ZIP(".zip", ".jar", ".war", ".ear") {
+        @Override
+        void list(final File archive, final ArchiveDirectories directories)
+                throws IOException {
+            final ZipFile zip = ZipFile.builder().setFile(archive).get();
+            try {
+                listZip(zip, "", 0, directories);
+            } finally {
+                zip.close();
+            }
+        }
+
+        @Override
+        void list(final InputStream in, final long size, final String prefix,
+                final int depth, final ArchiveDirectories directories)
+                throws IOException {
+            if (size >= 0 && size <= directories.getBufferLimit()) {
+                final byte[] buffer;
+                try {
+                    buffer = IOUtils.toByteArray(in, (int) size);
+                } finally {
+                    in.close();
+                }
+                final ZipFile zip = ZipFile.builder()
+                        .setSeekableByteChannel(
+                                new SeekableInMemoryByteChannel(buffer))
+                        .get();
+                try {
+                    listZip(zip, prefix, depth, directories);
+                } finally {
+                    zip.close();
+                }
+            } else {
+                final ZipArchiveInputStream zip =
+                        new ZipArchiveInputStream(in, null, true, true);
+                try {
+                    listStream(zip, prefix, depth, directories);
+                } finally {
+                    zip.close();
+                }
+            }
+        }
+    },
+    /** Tape archives. */
+    TAR(".tar") {
+        @Override
+        void list(final InputStream in, final long size, final String prefix,
+                final int depth, final ArchiveDirectories directories)
+                throws IOException {
+            listTape(in, prefix, depth, directories);
+        }
+    },
+    /** Tape archives compressed by gzip. */
+    TAR_GZIP(".tar.gz", ".tgz") {
+        @Override
+        void list(final InputStream in, final long size, final String prefix,
+                final int depth, final ArchiveDirectories directories)
+                throws IOException {
+            listTape(new GzipCompressorInputStream(in, true),
+                    prefix, depth, directories);
+        }
+    },
+    /** Tape archives compressed by bzip2. */
+    TAR_BZIP2(".tar.bz2", ".tbz2") {
+        @Override
+        void list(final InputStream in, final long size, final String prefix,
+                final int depth, final ArchiveDirectories directories)
+                throws IOException {
+            listTape(new BZip2CompressorInputStream(in, true),
+                    prefix, depth, directories);
+        }
+    };
+
+    /** Separates the name of a nested archive from its entries. */
+    static final String NESTED_SEPARATOR = "!/";
+
+    /**
+     * Finds the format for the named archive.
+     * @param name not null
+     * @return the format matching the name's extension,
+     * or null when the name is not an archive
+     */
+    static ArchiveFormat of(final String name) {
+        final String lowerCaseName = name.toLowerCase(Locale.ROOT);
+        for (final ArchiveFormat format: values()) {
+            for (final String extension: format.extensions) {
+                if (lowerCaseName.endsWith(extension)) {
+                    return format;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Lower case file name extensions used by this format. */
+    private final String[] extensions;
+
+    /**
+     * Constructs a format.
+     * @param extensions lower case file name extensions, not null
+     */
+    ArchiveFormat(final String... extensions) {
+        this.extensions = extensions;
+    }
+
+    /**
+     * Lists the entries in the given archive.
+     * @param archive not null
+     * @param directories collects the entries, not null
+     * @throws IOException when the archive cannot be read
+     */
+    void list(final File archive, final ArchiveDirectories directories)
+            throws IOException {
+        final InputStream in = new BufferedInputStream(
+                Files.newInputStream(archive.toPath()));
+        try {
+            list(in, archive.length(), "", 0, directories);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Lists the entries in an archive read from a stream.
+     * @param in the archive, closed when listed, not null
+     * @param size length of the archive in bytes, negative when unknown
+     * @param prefix prepended to entry names, not null
+     * @param depth number of archives enclosing this one
+     * @param directories collects the entries, not null
+     * @throws IOException when the archive cannot be read
+     */
+    abstract void list(InputStream in, long size, String prefix,
+            int depth, ArchiveDirectories directories) throws IOException;
+
+    /**
+     * Lists the entries in a zip archive from its central directory.
+     * @param zip not null
+     * @param prefix prepended to entry names, not null
+     * @param depth number of archives enclosing this one
+     * @param directories collects the entries, not null
+     * @throws IOException when the archive cannot be read
+     */
+    private static void listZip(final ZipFile zip, final String prefix,
+            final int depth, final ArchiveDirectories directories)
+            throws IOException {
+        final Enumeration<ZipArchiveEntry> entries = zip.getEntries();
+        while (entries.hasMoreElements()) {
+            final ZipArchiveEntry entry = entries.nextElement();
+            final String name = prefix + entry.getName();
+            final ArchiveFormat nested;
+            if (directories.add(name, entry.isDirectory())) {
+                nested = nested(entry, depth, directories);
+            } else {
+                nested = null;
+            }
+            if (nested != null) {
+                nested.descend(zip.getInputStream(entry), entry.getSize(),
+                        name, depth, directories);
+            }
+        }
+    }
+
+    /**
+     * Lists the entries in a tape archive.
+     * Tape archives have no central directory so the entry
+     * headers are streamed, skipping over the contents.
+     * @param in the decompressed archive, closed when listed, not null
+     * @param prefix prepended to entry names, not null
+     * @param depth number of archives enclosing this one
+     * @param directories collects the entries, not null
+     * @throws IOException when the archive cannot be read
+     */
+    private static void listTape(final InputStream in, final String prefix,
+            final int depth, final ArchiveDirectories directories)
+            throws IOException {
+        final TarArchiveInputStream tar = new TarArchiveInputStream(in);
+        try {
+            listStream(tar, prefix, depth, directories);
+        } finally {
+            tar.close();
+        }
+    }
+
+    /**
+     * Lists the entries streamed from an archive.
+     * Nested archives are streamed from the enclosing entry's content.
+     * @param archive positioned before the first entry, not null
+     * @param prefix prepended to entry names, not null
+     * @param depth number of archives enclosing this one
+     * @param directories collects the entries, not null
+     * @throws IOException when the archive cannot be read
+     */
+    private static void listStream(
+            final ArchiveInputStream<?> archive,
+            final String prefix, final int depth,
+            final ArchiveDirectories directories) throws IOException {
+        ArchiveEntry entry = archive.getNextEntry();
+        while (entry != null) {
+            final String name = prefix + entry.getName();
+            final ArchiveFormat nested;
+            if (directories.add(name, entry.isDirectory())) {
+                nested = nested(entry, depth, directories);
+            } else {
+                nested = null;
+            }
+            if (nested != null) {
+                nested.descend(CloseShieldInputStream.wrap(archive),
+                        entry.getSize(), name, depth, directories);
+            }
+            entry = archive.getNextEntry();
+        }
+    }
+
+    /**
+     * Descends into a nested archive, listing its entries
+     * within a virtual directory named after the archive.
+     * A nested archive which cannot be read completely is reported
+     * only as a resource within the enclosing archive,
+     * since entries are staged until the whole archive is read.
+     * @param in the nested archive, closed when listed, not null
+     * @param size length of the nested archive, negative when unknown
+     * @param name names the nested archive, not null
+     * @param depth number of archives enclosing the nested archive
+     * @param directories collects the entries, not null
+     */
+    private void descend(final InputStream in, final long size,
+            final String name, final int depth,
+            final ArchiveDirectories directories) {
+        final ArchiveDirectories stage = directories.stage();
+        try {
+            list(in, size, name + NESTED_SEPARATOR, depth + 1, stage);
+            directories.commit(stage);
+        } catch (IOException e) {
+            // Unreadable, so the nested archive remains a resource
+        }
+    }
+
+    /**
+     * Finds the format of a nested archive to be descended into.
+     * @param entry not null
+     * @param depth number of archives enclosing the entry
+     * @param directories collects the entries, not null
+     * @return the format of the nested archive, or null when
+     * the entry is not an archive or is nested too deeply
+     */
+    private static ArchiveFormat nested(final ArchiveEntry entry,
+            final int depth, final ArchiveDirectories directories) {
+        if (entry.isDirectory() || depth >= directories.getNestingDepth()) {
+            return null;
+        }
+        return of(entry.getName());
+    }
+}
@@ -18,8 +18,11 @@
  */
 package org.apache.creadur.whisker.scan;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * Describes a directory.
@@ -27,8 +30,14 @@ import java.util.TreeSet;
 public class Directory implements Comparable<Directory> {
     /** Names this directory. */
     private String name;
-    /** Names resources contained. */
-    private Set<String> contents = new TreeSet<String>();
+    /** Names resources contained, compactly. */
+    private Set<String> contents = FrontCodedStringSet.EMPTY;
+    /** Names resources added since compacted, null when none. */
+    private Collection<String> added;
+    /** Hashes of resources contained, by name, empty unless hashed. */
+    private Map<String, ResourceHashes> hashes = Collections.emptyMap();
+    /** Metadata of jars contained, by name, empty unless inspected. */
+    private Map<String, JarMetadata> jarMetadata = Collections.emptyMap();
 
 
     /**
@@ -50,18 +59,83 @@ public class Directory implements Comparable<Directory> {
 
     /**
      * Gets the directory contents.
-     * @return the contents
+     * Resources added since last called are first
+     * compacted into a front coded set.
+     * @return the contents, immutable, iterated in name order
      */
     public Set<String> getContents() {
+        if (added != null) {
+            if (!contents.isEmpty()) {
+                added.addAll(contents);
+            }
+            contents = FrontCodedStringSet.of(added);
+            added = null;
+        }
         return contents;
     }
 
     /**
      * Sets the directory contents.
+     * The names are copied into a compact, immutable set.
      * @param contents the contents to set
      */
     public void setContents(final Set<String> contents) {
-        this.contents = contents;
+        this.contents = FrontCodedStringSet.of(contents);
+        this.added = null;
+    }
+
+    /**
+     * Gets the content hashes of the resources contained.
+     * @return hashes indexed by resource name,
+     * not null, empty unless hashed
+     * @see ResourceHasher
+     */
+    public Map<String, ResourceHashes> getHashes() {
+        return hashes;
+    }
+
+    /**
+     * Gets the content hashes of the named resource.
+     * @param name names a resource contained, not null
+     * @return null when not hashed
+     */
+    public ResourceHashes getHashes(final String name) {
+        return hashes.get(name);
+    }
+
+    /**
+     * Sets the content hashes of the resources contained.
+     * @param hashes indexed by resource name, not null
+     */
+    public void setHashes(final Map<String, ResourceHashes> hashes) {
+        this.hashes = Collections.unmodifiableMap(hashes);
+    }
+
+    /**
+     * Gets the metadata embedded within the jars contained.
+     * @return metadata indexed by resource name,
+     * not null, empty unless inspected
+     * @see JarInspector
+     */
+    public Map<String, JarMetadata> getJarMetadata() {
+        return jarMetadata;
+    }
+
+    /**
+     * Gets the metadata embedded within the named jar.
+     * @param name names a resource contained, not null
+     * @return null when not an inspected jar
+     */
+    public JarMetadata getJarMetadata(final String name) {
+        return jarMetadata.get(name);
+    }
+
+    /**
+     * Sets the metadata embedded within the jars contained.
+     * @param jarMetadata indexed by resource name, not null
+     */
+    public void setJarMetadata(final Map<String, JarMetadata> jarMetadata) {
+        this.jarMetadata = Collections.unmodifiableMap(jarMetadata);
     }
 
     /**
@@ -111,7 +185,10 @@ public class Directory implements Comparable<Directory> {
      * @param name not null
      */
     public void addResource(final String name) {
-        contents.add(name);
+        if (added == null) {
+            added = new ArrayList<String>();
+        }
+        added.add(name);
     }
 
     /**
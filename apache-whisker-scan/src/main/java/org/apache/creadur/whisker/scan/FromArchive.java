@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Scans directories for resources, within an archive.
+ * The archive is read in place, without extraction,
+ * and scanned as if extracted into an empty base directory.
+ */
+public class FromArchive {
+
+    /** By default, nested archives are not descended into. */
+    public static final int DEFAULT_NESTING_DEPTH = 0;
+    /** By default, buffer nested archives up to 16MiB in memory. */
+    public static final int DEFAULT_BUFFER_LIMIT = 16 * 1024 * 1024;
+
+    /**
+     * Can the given source be scanned as an archive?
+     * @param source names a file, not null
+     * @return true when the source is an existing file
+     * in a known archive format, false otherwise
+     */
+    public static boolean isArchive(final String source) {
+        return ArchiveFormat.of(source) != null && new File(source).isFile();
+    }
+
+    /** Number of levels of nested archives descended into. */
+    private int nestingDepth = DEFAULT_NESTING_DEPTH;
+    /** Largest nested archive buffered in memory, in bytes. */
+    private int bufferLimit = DEFAULT_BUFFER_LIMIT;
+    /** Selects the resources scanned. */
+    private ScanFilter filter = ScanFilter.ALL;
+
+    /**
+     * Base constructor.
+     */
+    public FromArchive() {
+        super();
+    }
+
+    /**
+     * Gets the number of levels of nested archives descended into.
+     * @return zero when nested archives are not descended into
+     */
+    public int getNestingDepth() {
+        return nestingDepth;
+    }
+
+    /**
+     * Sets the number of levels of nested archives descended into.
+     * The contents of a nested archive are reported within
+     * virtual directories named after the archive,
+     * for example {@code app.war!/WEB-INF/lib}.
+     * @param nestingDepth zero or more
+     * @return this, not null
+     */
+    public FromArchive setNestingDepth(final int nestingDepth) {
+        if (nestingDepth < 0) {
+            throw new IllegalArgumentException(
+                    "Expected a nesting depth of at least zero but was "
+                    + nestingDepth);
+        }
+        this.nestingDepth = nestingDepth;
+        return this;
+    }
+
+    /**
+     * Gets the size of the largest nested archive buffered in memory.
+     * @return size in bytes
+     */
+    public int getBufferLimit() {
+        return bufferLimit;
+    }
+
+    /**
+     * Sets the size of the largest nested archive buffered in memory.
+     * Nested zip archives within this limit are read from their
+     * central directory. Larger ones, and nested tape archives,
+     * are streamed. Nothing is written to disk.
+     * @param bufferLimit size in bytes, zero or more
+     * @return this, not null
+     */
+    public FromArchive setBufferLimit(final int bufferLimit) {
+        if (bufferLimit < 0) {
+            throw new IllegalArgumentException(
+                    "Expected a buffer limit of at least zero but was "
+                    + bufferLimit);
+        }
+        this.bufferLimit = bufferLimit;
+        return this;
+    }
+
+    /**
+     * Gets the filter selecting the resources scanned.
+     * @return not null
+     */
+    public ScanFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sets the filter selecting the resources scanned.
+     * Entries within excluded directories are skipped,
+     * and excluded nested archives are not descended into.
+     * @param filter not null
+     * @return this, not null
+     */
+    public FromArchive setFilter(final ScanFilter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Expected a filter");
+        }
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * Builds description based on given archive.
+     * @param base names the archive, not null
+     * @return collected directories within the archive, not null
+     * @throws IOException when the archive cannot be read
+     */
+    public Collection<Directory> withBase(final String base)
+            throws IOException {
+        final File archive = new File(base);
+        if (!archive.isFile()) {
+            throw new IllegalArgumentException(
+                    "Expected '" + archive.getAbsolutePath() + "' to be a file");
+        }
+        final ArchiveFormat format = ArchiveFormat.of(archive.getName());
+        if (format == null) {
+            throw new IllegalArgumentException(
+                    "Expected '" + archive.getAbsolutePath() + "' to be an archive");
+        }
+        final ArchiveDirectories directories = new ArchiveDirectories(
+                nestingDepth, bufferLimit, filter);
+        format.list(archive, directories);
+        return directories.getDirectories();
+    }
+}
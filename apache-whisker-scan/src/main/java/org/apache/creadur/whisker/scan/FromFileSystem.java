@@ -20,18 +20,47 @@ package org.apache.creadur.whisker.scan;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Scans directories for resources, within a file system.
  */
 public class FromFileSystem {
 
+    /** By default, scan on a single thread. */
+    public static final int DEFAULT_THREADS = 1;
+
+    /** Number of threads scanning. */
+    private int threads = DEFAULT_THREADS;
+    /** Are symbolic links followed? */
+    private boolean followLinks = true;
+    /** Snapshot of the last scan, null when every scan is complete. */
+    private File snapshot;
+    /** Selects the resources scanned. */
+    private ScanFilter filter = ScanFilter.ALL;
+
     /**
      * Base constructor.
      */
@@ -39,6 +68,128 @@ public class FromFileSystem {
         super();
     }
 
+    /**
+     * Gets the number of threads scanning.
+     * @return at least one
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads scanning.
+     * With more than one thread, subdirectories are
+     * scanned in parallel.
+     * @param threads at least one
+     * @return this, not null
+     */
+    public FromFileSystem setThreads(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(
+                    "Expected at least one thread but was " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Are symbolic links followed?
+     * @return true when links to directories are scanned as directories,
+     * false when all links are reported as resources
+     */
+    public boolean isFollowLinks() {
+        return followLinks;
+    }
+
+    /**
+     * Sets whether symbolic links are followed.
+     * Links that would lead back into a directory being
+     * scanned are skipped, so loops terminate.
+     * @param followLinks true when links to directories should be
+     * scanned as directories, false when all links should be
+     * reported as resources
+     * @return this, not null
+     */
+    public FromFileSystem setFollowLinks(final boolean followLinks) {
+        this.followLinks = followLinks;
+        return this;
+    }
+
+    /**
+     * Gets the file storing a snapshot of the last scan.
+     * @return null when every scan is complete
+     */
+    public File getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Sets the file storing a snapshot of the last scan.
+     * Scans then list only those directories modified since the
+     * snapshot was taken, reusing the contents of the others,
+     * and replace the snapshot when complete.
+     * A missing or unusable snapshot results in a complete scan.
+     * @param snapshot null when every scan should be complete
+     * @return this, not null
+     */
+    public FromFileSystem setSnapshot(final File snapshot) {
+        this.snapshot = snapshot;
+        return this;
+    }
+
+    /**
+     * Gets the filter selecting the resources scanned.
+     * @return not null
+     */
+    public ScanFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sets the filter selecting the resources scanned.
+     * Excluded directories are pruned during the walk,
+     * so their contents are never listed.
+     * @param filter not null
+     * @return this, not null
+     */
+    public FromFileSystem setFilter(final ScanFilter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Expected a filter");
+        }
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * Describes the given directory lazily.
+     * Each iteration scans the base afresh, on a single thread,
+     * yielding each directory as soon as it is listed.
+     * Directories are yielded in the order discovered
+     * (not sorted by name) and are not retained,
+     * so memory use is bounded by the breadth of the tree
+     * rather than the total number of resources.
+     * @param base names the base directory, not null
+     * @return directories within the base, not null
+     * @see #withBase(String) for a sorted, possibly parallel, scan
+     */
+    public Iterable<Directory> lazilyWithBase(final String base) {
+        return new Iterable<Directory>() {
+            public Iterator<Directory> iterator() {
+                try {
+                    return new Builder(base, DEFAULT_THREADS,
+                            followLinks, snapshot, filter).iterator();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "Directories [base=" + base + "]";
+            }
+        };
+    }
+
     /**
      * Builds description based on given directory.
      * @param base names the base directory, not null
@@ -47,44 +198,60 @@ public class FromFileSystem {
      */
     public Collection<Directory> withBase(final String base)
             throws IOException {
-        return new Builder(base).build();
+        return new Builder(base, threads, followLinks, snapshot, filter)
+                .build();
     }
 
     /**
      * Builds a description of a file system.
      */
     private final static class Builder {
-        /** Initial capacity for the backing array. */
-        private static final int DEFAULT_INITIAL_CAPACITY = 64;
         /** Directory scanning base. */
         private final File base;
         /** Directories scanned. */
         private final Set<Directory> directories;
         /** Queues work not yet complete. */
         private final Queue<Work> workInProgress;
-        /** Stores work done. */
-        private final Collection<Work> workDone;
-
-        /**
-         * Constructs a builder with given base
-         * (and default backing array).
-         * @param base not null
-         */
-        public Builder(final String base) {
-            this(base, DEFAULT_INITIAL_CAPACITY);
-        }
+        /** Number of threads scanning. */
+        private final int threads;
+        /** Are symbolic links followed? */
+        private final boolean followLinks;
+        /** Snapshot of the last scan, and record of this one. */
+        private final ScanSnapshot snapshot;
+        /** Selects the resources scanned. */
+        private final ScanFilter filter;
+        /** Directories scanned in parallel, in no particular order. */
+        private final Queue<Directory> scanned;
+        /** Scans in parallel, null when scanning serially. */
+        private ForkJoinPool pool;
+        /** Parallel scan, null when scanning serially. */
+        private ForkJoinTask<Void> scan;
 
         /**
          * Constructs a builder.
          * @param base not null
-         * @param initialCapacity initial capacity for backing array
+         * @param threads number of threads scanning, at least one
+         * @param followLinks true when symbolic links are followed
+         * @param snapshot snapshot file, null when the scan is complete
+         * @param filter selects the resources scanned, not null
          */
-        public Builder(final String base, final int initialCapacity) {
+        public Builder(final String base, final int threads,
+                final boolean followLinks, final File snapshot,
+                final ScanFilter filter) {
             super();
             this.base = new File(base);
+            this.threads = threads;
+            this.followLinks = followLinks;
+            this.filter = filter;
+            if (snapshot == null) {
+                this.snapshot = ScanSnapshot.none();
+            } else {
+                this.snapshot = ScanSnapshot.load(
+                        snapshot, this.base, followLinks, filter);
+            }
             directories = new TreeSet<Directory>();
             workInProgress = new LinkedList<Work>();
-            workDone = new ArrayList<Work>(initialCapacity);
+            scanned = new ConcurrentLinkedQueue<Directory>();
         }
 
         /**
@@ -94,54 +261,87 @@ public class FromFileSystem {
          */
         public Collection<Directory> build() throws IOException {
             put(base).andWork().untilDone();
+            snapshot.save();
             return directories;
         }
 
         /**
          * Waiting until work done.
+         * Directories scanned in parallel are then sorted
+         * into the same order as a serial scan.
+         * @throws IOException when a directory cannot be listed
          */
-        private void untilDone() { }
+        private void untilDone() throws IOException {
+            if (scan != null) {
+                try {
+                    scan.get();
+                    directories.addAll(scanned);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException(
+                            "Interrupted whilst scanning " + base);
+                } catch (ExecutionException e) {
+                    throw failure(e);
+                } finally {
+                    pool.shutdownNow();
+                }
+            }
+        }
+
+        /**
+         * Converts the failure of a parallel scan.
+         * @param e not null
+         * @return the cause, when an input output failure,
+         * or a wrapper when the cause is checked
+         */
+        private IOException failure(final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                return ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            return new IOException("Failed to scan " + base, cause);
+        }
 
         /**
          * Adds file work to the queue.
          * @param file not null
          * @return this, not null
+         * @throws IOException when the file attributes cannot be read
          */
-        private Builder put(final File file) {
-            return put(new Work(file));
+        private Builder put(final File file) throws IOException {
+            return put(new Work(file, followLinks, filter));
         }
 
         /**
          * Queues work.
+         * Work is never repeated: within a tree each directory is
+         * reached from exactly one parent, and links leading
+         * back to an ancestor are never queued.
          * @param work not null
          * @return this, not null
          */
         private Builder put(final Work work) {
-            if (work != null) {
-                if (workDone.contains(work)) {
-                    alreadyDone(work);
-                } else {
-                    this.workInProgress.add(work);
-                }
-            }
+            this.workInProgress.add(work);
             return this;
         }
 
-        /**
-         * Notes that work has already been done.
-         * @param work not null
-         */
-        private void alreadyDone(final Work work) {
-            System.out.println("Already done " + work);
-        }
-
         /**
          * Starts work.
          * @return this, not null
+         * @throws IOException when a directory cannot be listed
          */
-        private Builder andWork() {
-            while (!workInProgress.isEmpty()) {
-                workDone.add(workOn(workInProgress.poll()));
+        private Builder andWork() throws IOException {
+            if (threads > 1) {
+                pool = new ForkJoinPool(threads);
+                scan = pool.submit(new Scan(workInProgress.poll()));
+            } else {
+                while (!workInProgress.isEmpty()) {
+                    directories.add(workOn(workInProgress.poll()));
+                }
             }
             return this;
         }
@@ -149,18 +349,98 @@ public class FromFileSystem {
         /**
          * Performs work.
          * @param next not null
-         * @return the work done, not null
+         * @return the directory built, not null
+         * @throws IOException when the directory cannot be listed
          */
-        private Work workOn(final Work next) {
-            for (final String name: next.contents()) {
-                put(next.whenDirectory(name));
+        private Directory workOn(final Work next) throws IOException {
+            final Directory result = next.build(snapshot);
+            for (final Work subdirectory: next.subdirectories()) {
+                put(subdirectory);
+            }
+            next.subdirectories().clear();
+            return result;
+        }
+
+        /**
+         * Builds directories lazily, in the order discovered.
+         * Only work not yet done is held, so directories
+         * no longer referenced by the caller may be collected.
+         * @return not null
+         * @throws IOException when the base cannot be read
+         */
+        public Iterator<Directory> iterator() throws IOException {
+            put(base);
+            return new Iterator<Directory>() {
+                public boolean hasNext() {
+                    return !workInProgress.isEmpty();
+                }
+
+                public Directory next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    try {
+                        final Directory result = workOn(workInProgress.poll());
+                        if (!hasNext()) {
+                            snapshot.save();
+                        }
+                        return result;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            };
+        }
+
+        /**
+         * Performs work in parallel, forking a scan
+         * for each subdirectory.
+         */
+        private final class Scan extends RecursiveAction {
+            /** Serialization version. */
+            private static final long serialVersionUID = 1L;
+            /** The work to be performed. */
+            private final Work work;
+
+            /**
+             * Constructs a scan.
+             * @param work not null
+             */
+            Scan(final Work work) {
+                this.work = work;
+            }
+
+            /**
+             * Scans the work directory then, in parallel,
+             * its subdirectories.
+             */
+            @Override
+            protected void compute() {
+                try {
+                    scanned.add(work.build(snapshot));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                final Collection<Scan> subdirectories = new ArrayList<Scan>();
+                for (final Work subdirectory: work.subdirectories()) {
+                    subdirectories.add(new Scan(subdirectory));
+                }
+                invokeAll(subdirectories);
             }
-            directories.add(next.build());
-            return next;
         }
 
         /**
          * Computes the contents of a directory.
+         * Each directory is listed once, and the attributes
+         * of each entry read once, during {@link #build(ScanSnapshot)}.
+         * A directory unmodified since the last snapshot is not listed:
+         * only its subdirectories are read.
+         * Excluded entries are skipped before their attributes are read.
+         * When links are followed, a link is read again to
+         * resolve its target and is skipped when that target
+         * is the directory being worked on or one of its parents.
+         * As with {@link Files#walkFileTree}, parents are compared
+         * by {@link BasicFileAttributes#fileKey()} when available.
          */
         private static final class Work {
             /** Represents base directory. */
@@ -168,22 +448,63 @@ public class FromFileSystem {
             /** Names the directory. */
             private final String name;
             /** The directory worked on. */
-            private final File file;
+            private final Path file;
+            /** Identifies the directory, possibly null. */
+            private final Object key;
+            /** When the directory was last modified. */
+            private final FileTime modified;
+            /** Work on the parent directory, null for the base. */
+            private final Work parent;
+            /** Are symbolic links followed? */
+            private final boolean followLinks;
+            /** Selects the resources scanned. */
+            private final ScanFilter filter;
+            /** Work for subdirectories, collected when built. */
+            private final Collection<Work> subdirectories;
 
             /**
              * Constructs work.
              * @param file not null
+             * @param followLinks true when symbolic links are followed
+             * @param filter selects the resources scanned, not null
+             * @throws IOException when the file attributes cannot be read
              */
-            public Work(final File file) {
-                this(BASE_DIRECTORY, file);
+            public Work(final File file, final boolean followLinks,
+                    final ScanFilter filter) throws IOException {
+                this(BASE_DIRECTORY, checked(file),
+                        Files.readAttributes(file.toPath(),
+                                BasicFileAttributes.class),
+                        null, followLinks, filter);
             }
 
             /**
-             * Constructs work.
+             * Constructs work for a directory already known to exist.
              * @param name not null
              * @param file not null
+             * @param attributes of the directory, not null
+             * @param parent work on the parent, null for the base
+             * @param followLinks true when symbolic links are followed
+             * @param filter selects the resources scanned, not null
              */
-            public Work(final String name, final File file) {
+            private Work(final String name, final Path file,
+                    final BasicFileAttributes attributes, final Work parent,
+                    final boolean followLinks, final ScanFilter filter) {
+                this.name = name;
+                this.file = file;
+                this.key = attributes.fileKey();
+                this.modified = attributes.lastModifiedTime();
+                this.parent = parent;
+                this.followLinks = followLinks;
+                this.filter = filter;
+                this.subdirectories = new ArrayList<Work>();
+            }
+
+            /**
+             * Checks that the given file is an existing directory.
+             * @param file not null
+             * @return path for the file, not null
+             */
+            private static Path checked(final File file) {
                 if (!file.exists()) {
                     throw new IllegalArgumentException(
                             "Expected '" + file.getAbsolutePath() + "' to exist");
@@ -192,73 +513,170 @@ public class FromFileSystem {
                     throw new IllegalArgumentException(
                             "Expected '" + file.getAbsolutePath() + "' to be a directory");
                 }
-                this.name = name;
-                this.file = file;
+                return file.toPath();
             }
 
             /**
-             * Gets the contents of the work directory.
-             * @return not null
+             * Gets work for the subdirectories found when built.
+             * @return not null, empty before build
              */
-            public String[] contents() {
-                final String[] contents = file.list();
-                if (contents == null) {
-                    throw new IllegalArgumentException("Cannot list content of " + file);
-                }
-                return contents;
+            public Collection<Work> subdirectories() {
+                return subdirectories;
             }
 
             /**
-             * Builds a directory.
+             * Builds a directory, listing the contents in a single pass
+             * unless unmodified since the last scan.
+             * @param snapshot of the last scan, not null
              * @return not null
+             * @throws IOException when the directory cannot be listed
              */
-            public Directory build() {
+            public Directory build(final ScanSnapshot snapshot)
+                    throws IOException {
                 final Directory result = new Directory().setName(name);
-                for (final String name : contents()) {
-                    if (isResource(name)) {
-                        result.addResource(name);
-                    }
+                final ScanSnapshot.Entry unmodified =
+                        snapshot.unmodified(name, modified);
+                if (unmodified == null || !reuse(unmodified, result)) {
+                    list(result);
                 }
+                final Collection<String> subdirectoryNames =
+                        new ArrayList<String>(subdirectories.size());
+                for (final Work subdirectory: subdirectories) {
+                    subdirectoryNames.add(
+                            subdirectory.file.getFileName().toString());
+                }
+                snapshot.record(name, modified,
+                        result.getContents(), subdirectoryNames);
                 return result;
             }
 
             /**
-             * Is the named file a resource?
-             * @param name not null
-             * @return true when the named file is a resource,
-             * false otherwise
+             * Lists the contents of the directory.
+             * @param result collects resources, not null
+             * @throws IOException when the directory cannot be listed
              */
-            private boolean isResource(final String name) {
-                return !isDirectory(name);
+            private void list(final Directory result) throws IOException {
+                final DirectoryStream<Path> contents = Files.newDirectoryStream(file);
+                try {
+                    for (final Path entry: contents) {
+                        final String name = entry.getFileName().toString();
+                        final String path = path(name);
+                        if (filter.isExcluded(path)) {
+                            continue;
+                        }
+                        final BasicFileAttributes attributes = attributes(entry);
+                        if (attributes == null) {
+                            continue;
+                        }
+                        if (attributes.isDirectory()) {
+                            subdirectories.add(new Work(path, entry,
+                                    attributes, this, followLinks, filter));
+                        } else if (filter.isIncluded(path)) {
+                            result.addResource(name);
+                        }
+                    }
+                } finally {
+                    contents.close();
+                }
             }
 
             /**
-             * Is the named file a directory?
-             * @param name not null
-             * @return true when the named file is a directory,
-             * false otherwise
+             * Reuses the contents of an unmodified directory.
+             * Only the subdirectories are read.
+             * @param unmodified the directory as last scanned, not null
+             * @param result collects resources, not null
+             * @return true when reused, false when inconsistent
+             * so the directory must be listed
+             * @throws IOException when the subdirectories cannot be read
              */
-            private boolean isDirectory(final String name) {
-                return file(name).isDirectory();
+            private boolean reuse(final ScanSnapshot.Entry unmodified,
+                    final Directory result) throws IOException {
+                for (final String name: unmodified.getSubdirectories()) {
+                    final Path entry = file.resolve(name);
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = attributes(entry);
+                    } catch (NoSuchFileException e) {
+                        attributes = null;
+                    }
+                    if (attributes == null || !attributes.isDirectory()) {
+                        subdirectories.clear();
+                        return false;
+                    }
+                    subdirectories.add(new Work(path(name), entry,
+                            attributes, this, followLinks, filter));
+                }
+                for (final String name: unmodified.getResources()) {
+                    result.addResource(name);
+                }
+                return true;
             }
 
             /**
-             * Creates new work.
-             * @param name not null
-             * @return work for the named directory,
-             * or null when the resource named is not a directory
+             * Reads the attributes of an entry.
+             * When links are followed, the attributes of the target
+             * are read.
+             * @param entry not null
+             * @return attributes, or null when the entry
+             * is a link leading back to this directory or a parent
+             * @throws IOException when the attributes cannot be read
              */
-            public Work whenDirectory(final String name) {
-                final File file = file(name);
-                final Work result;
-                if (file.isDirectory()) {
-                    result = new Work(path(name), file);
-                } else {
-                    result = null;
+            private BasicFileAttributes attributes(final Path entry)
+                    throws IOException {
+                BasicFileAttributes result = Files.readAttributes(
+                        entry, BasicFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS);
+                if (followLinks && result.isSymbolicLink()) {
+                    result = target(entry, result);
+                    if (result.isDirectory()
+                            && isLoop(entry, result.fileKey())) {
+                        return null;
+                    }
                 }
                 return result;
             }
 
+            /**
+             * Reads the attributes of the target of a link.
+             * @param link not null
+             * @param attributes attributes of the link itself, not null
+             * @return attributes of the target, or of the link itself
+             * when the link cannot be resolved
+             * @throws IOException when the attributes cannot be read
+             */
+            private static BasicFileAttributes target(final Path link,
+                    final BasicFileAttributes attributes) throws IOException {
+                try {
+                    return Files.readAttributes(link, BasicFileAttributes.class);
+                } catch (FileSystemException e) {
+                    // Dangling or circular links are resources
+                    return attributes;
+                }
+            }
+
+            /**
+             * Does the linked directory lead back to this directory
+             * or one of its parents?
+             * @param link not null
+             * @param key identifies the linked directory, possibly null
+             * @return true when following the link would loop,
+             * false otherwise
+             * @throws IOException when the files cannot be compared
+             */
+            private boolean isLoop(final Path link, final Object key)
+                    throws IOException {
+                for (Work work = this; work != null; work = work.parent) {
+                    if (key != null && work.key != null) {
+                        if (key.equals(work.key)) {
+                            return true;
+                        }
+                    } else if (Files.isSameFile(work.file, link)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
             /**
              * Converts a name to a path relative to base.
              * @param name not null
@@ -282,15 +700,6 @@ public class FromFileSystem {
                 return BASE_DIRECTORY.equals(this.name);
             }
 
-            /**
-             * Creates a file.
-             * @param name not null
-             * @return file with given name
-             */
-            private File file(String name) {
-                return new File(this.file, name);
-            }
-
             /**
              * Computes some suitable hash.
              * @return a hash code
@@ -0,0 +1,311 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable set of strings, iterated in natural order,
+ * stored front coded.
+ * <p>
+ * Names within a directory tend to share long prefixes
+ * (for example {@code commons-} or {@code org.apache.}) so,
+ * once sorted, each name is stored as the length of the prefix
+ * shared with the previous name followed by the remaining
+ * UTF-8 bytes. Names are grouped into blocks, each starting
+ * with a name stored in full, so that {@link #contains(Object)}
+ * need only binary search the block heads then decode
+ * a single block.
+ * </p>
+ * <p>
+ * All names share a single byte array, replacing the tree node
+ * and string held for each name by a sorted set.
+ * </p>
+ */
+final class FrontCodedStringSet extends AbstractSet<String> {
+
+    /** Number of names in each block. */
+    private static final int BLOCK_SIZE = 16;
+    /** Continues a variable length integer. */
+    private static final int MORE = 0x80;
+    /** Bits of a variable length integer within each byte. */
+    private static final int SEVEN_BITS = 0x7f;
+
+    /** Contains nothing. */
+    static final FrontCodedStringSet EMPTY =
+            new FrontCodedStringSet(new byte[0], new int[0], 0);
+
+    /**
+     * Encodes the given names.
+     * @param names not null, possibly unsorted and possibly
+     * containing duplicates
+     * @return not null
+     */
+    static FrontCodedStringSet of(final Collection<String> names) {
+        if (names.isEmpty()) {
+            return EMPTY;
+        }
+        final String[] sorted = names.toArray(new String[names.size()]);
+        Arrays.sort(sorted);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final int[] blocks = new int[(sorted.length + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        byte[] previous = null;
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i > 0 && sorted[i].equals(sorted[i - 1])) {
+                continue;
+            }
+            final byte[] name = sorted[i].getBytes(StandardCharsets.UTF_8);
+            final int shared;
+            if (size % BLOCK_SIZE == 0) {
+                blocks[size / BLOCK_SIZE] = out.size();
+                shared = 0;
+            } else {
+                shared = sharedPrefix(previous, name);
+            }
+            write(shared, out);
+            write(name.length - shared, out);
+            out.write(name, shared, name.length - shared);
+            previous = name;
+            size++;
+        }
+        return new FrontCodedStringSet(out.toByteArray(),
+                Arrays.copyOf(blocks, (size + BLOCK_SIZE - 1) / BLOCK_SIZE),
+                size);
+    }
+
+    /**
+     * Counts the bytes shared at the start of both names.
+     * @param previous not null
+     * @param next not null
+     * @return length of the prefix shared
+     */
+    private static int sharedPrefix(final byte[] previous, final byte[] next) {
+        final int limit = Math.min(previous.length, next.length);
+        int result = 0;
+        while (result < limit && previous[result] == next[result]) {
+            result++;
+        }
+        return result;
+    }
+
+    /**
+     * Writes a variable length integer.
+     * @param value zero or more
+     * @param out not null
+     */
+    private static void write(final int value, final ByteArrayOutputStream out) {
+        int remaining = value;
+        while (remaining > SEVEN_BITS) {
+            out.write((remaining & SEVEN_BITS) | MORE);
+            remaining >>>= 7;
+        }
+        out.write(remaining);
+    }
+
+    /** Encoded names. */
+    private final byte[] data;
+    /** Offset within the data of the start of each block. */
+    private final int[] blocks;
+    /** Number of names. */
+    private final int size;
+
+    /**
+     * Constructs a set from encoded names.
+     * @param data not null
+     * @param blocks not null
+     * @param size number of names encoded
+     */
+    private FrontCodedStringSet(final byte[] data, final int[] blocks,
+            final int size) {
+        super();
+        this.data = data;
+        this.blocks = blocks;
+        this.size = size;
+    }
+
+    /**
+     * Gets the number of names.
+     * @return zero or more
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Iterates the names in natural order.
+     * @return not null
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            /** Decodes the names. */
+            private final Cursor cursor = new Cursor(0);
+            /** Number of names returned. */
+            private int returned = 0;
+
+            public boolean hasNext() {
+                return returned < size;
+            }
+
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                returned++;
+                cursor.next();
+                return cursor.toString();
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Is the given name contained?
+     * The block heads are binary searched then
+     * only the block which could contain the name is decoded.
+     * @param object possibly null
+     * @return true when the object is a name contained,
+     * false otherwise
+     */
+    @Override
+    public boolean contains(final Object object) {
+        if (!(object instanceof String) || size == 0) {
+            return false;
+        }
+        final String name = (String) object;
+        int low = 0;
+        int high = blocks.length - 1;
+        int block = -1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final Cursor head = new Cursor(blocks[middle]);
+            head.next();
+            final int comparison = head.toString().compareTo(name);
+            if (comparison == 0) {
+                return true;
+            } else if (comparison < 0) {
+                block = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (block < 0) {
+            return false;
+        }
+        final byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        final Cursor cursor = new Cursor(blocks[block]);
+        final int count = Math.min(BLOCK_SIZE, size - block * BLOCK_SIZE);
+        for (int i = 0; i < count; i++) {
+            cursor.next();
+            if (cursor.matches(encoded)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decodes names in sequence from a block head.
+     */
+    private final class Cursor {
+        /** Offset of the next name within the data. */
+        private int position;
+        /** Bytes of the current name. */
+        private byte[] name = new byte[64];
+        /** Length of the current name. */
+        private int length = 0;
+
+        /**
+         * Constructs a cursor positioned at a block head.
+         * @param position offset of the block within the data
+         */
+        Cursor(final int position) {
+            this.position = position;
+        }
+
+        /**
+         * Decodes the next name.
+         */
+        void next() {
+            final int shared = read();
+            final int suffix = read();
+            final int nextLength = shared + suffix;
+            if (nextLength > name.length) {
+                name = Arrays.copyOf(name, Math.max(nextLength, name.length * 2));
+            }
+            System.arraycopy(data, position, name, shared, suffix);
+            position += suffix;
+            length = nextLength;
+        }
+
+        /**
+         * Reads a variable length integer.
+         * @return zero or more
+         */
+        private int read() {
+            int result = 0;
+            int shift = 0;
+            int next;
+            do {
+                next = data[position++];
+                result |= (next & SEVEN_BITS) << shift;
+                shift += 7;
+            } while ((next & MORE) != 0);
+            return result;
+        }
+
+        /**
+         * Is the current name the given name?
+         * @param encoded UTF-8 encoded name, not null
+         * @return true when equal, false otherwise
+         */
+        boolean matches(final byte[] encoded) {
+            if (encoded.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (encoded[i] != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Decodes the current name.
+         * @return not null
+         */
+        @Override
+        public String toString() {
+            return new String(name, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
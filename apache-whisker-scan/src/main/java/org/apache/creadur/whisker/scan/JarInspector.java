@@ -0,0 +1,242 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+/**
+ * Reads licensing hints from the metadata embedded within
+ * jars scanned from a file system, in parallel.
+ * <p>
+ * Only the zip central directory, the manifest and
+ * the Maven <code>pom.properties</code> are read from each jar.
+ * Jars which cannot be read as zips are skipped.
+ * </p>
+ */
+public class JarInspector {
+
+    /** By default, inspect on every available processor. */
+    public static final int DEFAULT_THREADS =
+            Runtime.getRuntime().availableProcessors();
+
+    /** Suffix identifying jars. */
+    private static final String JAR_SUFFIX = ".jar";
+    /** Names the manifest entry. */
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+    /** Prefix of entries written by Maven. */
+    private static final String MAVEN_PREFIX = "META-INF/maven/";
+    /** Suffix of the Maven properties entry. */
+    private static final String POM_PROPERTIES = "/pom.properties";
+    /** Prefix of the license entry, which may have an extension. */
+    private static final String LICENSE = "META-INF/LICENSE";
+    /** Prefix of the notice entry, which may have an extension. */
+    private static final String NOTICE = "META-INF/NOTICE";
+
+    /** Number of threads inspecting. */
+    private int threads = DEFAULT_THREADS;
+
+    /**
+     * Base constructor.
+     */
+    public JarInspector() {
+        super();
+    }
+
+    /**
+     * Gets the number of threads inspecting.
+     * @return at least one
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads inspecting.
+     * @param threads at least one
+     * @return this, not null
+     */
+    public JarInspector setThreads(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(
+                    "Expected at least one thread but was " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Inspects every jar within the given directories,
+     * setting the metadata read on each directory.
+     * @param base names the base directory scanned, not null
+     * @param directories scanned from the base, not null
+     * @return the directories, now with metadata, not null
+     * @throws IOException when inspection fails
+     */
+    public Collection<Directory> inspect(final String base,
+            final Collection<Directory> directories) throws IOException {
+        new ResourceReader<JarMetadata>(threads) {
+            @Override
+            boolean accepts(final String name) {
+                return name.toLowerCase(Locale.ROOT).endsWith(JAR_SUFFIX);
+            }
+
+            @Override
+            JarMetadata read(final Path file) throws IOException {
+                if (!Files.isRegularFile(file)) {
+                    return null;
+                }
+                return inspect(file);
+            }
+
+            @Override
+            void store(final Directory directory,
+                    final Map<String, JarMetadata> results) {
+                directory.setJarMetadata(results);
+            }
+        }.readAll(base, directories);
+        return directories;
+    }
+
+    /**
+     * Reads the metadata embedded within a jar.
+     * @param file not null
+     * @return null when the file is not a readable zip
+     */
+    static JarMetadata inspect(final Path file) {
+        final ZipFile zip;
+        try {
+            zip = ZipFile.builder().setPath(file).get();
+        } catch (IOException e) {
+            return null;
+        }
+        try {
+            return inspect(zip);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            ZipFile.closeQuietly(zip);
+        }
+    }
+
+    /**
+     * Reads the metadata embedded within an open jar.
+     * @param zip not null
+     * @return not null
+     * @throws IOException when an entry cannot be read
+     */
+    private static JarMetadata inspect(final ZipFile zip) throws IOException {
+        Attributes attributes = null;
+        Properties pom = null;
+        boolean license = false;
+        boolean notice = false;
+        final Enumeration<ZipArchiveEntry> entries = zip.getEntries();
+        while (entries.hasMoreElements()) {
+            final ZipArchiveEntry entry = entries.nextElement();
+            if (entry.isDirectory()) {
+                continue;
+            }
+            final String name = entry.getName();
+            if (MANIFEST.equalsIgnoreCase(name)) {
+                attributes = manifest(zip, entry);
+            } else if (pom == null && name.startsWith(MAVEN_PREFIX)
+                    && name.endsWith(POM_PROPERTIES)) {
+                pom = properties(zip, entry);
+            } else if (isNamed(name, LICENSE)) {
+                license = true;
+            } else if (isNamed(name, NOTICE)) {
+                notice = true;
+            }
+        }
+        if (attributes == null) {
+            attributes = new Attributes();
+        }
+        if (pom == null) {
+            pom = new Properties();
+        }
+        return new JarMetadata(
+                attributes.getValue("Bundle-License"),
+                attributes.getValue("Bundle-Vendor"),
+                attributes.getValue(Attributes.Name.IMPLEMENTATION_VENDOR),
+                pom.getProperty("groupId"),
+                pom.getProperty("artifactId"),
+                pom.getProperty("version"),
+                license, notice);
+    }
+
+    /**
+     * Is the entry named by the prefix, with an optional extension?
+     * @param name names an entry, not null
+     * @param prefix not null
+     * @return true when named, false otherwise
+     */
+    private static boolean isNamed(final String name, final String prefix) {
+        return name.regionMatches(true, 0, prefix, 0, prefix.length())
+                && (name.length() == prefix.length()
+                    || name.charAt(prefix.length()) == '.');
+    }
+
+    /**
+     * Reads the main attributes of a manifest entry.
+     * @param zip not null
+     * @param entry not null
+     * @return not null
+     * @throws IOException when the entry cannot be read
+     */
+    private static Attributes manifest(final ZipFile zip,
+            final ZipArchiveEntry entry) throws IOException {
+        final InputStream in = zip.getInputStream(entry);
+        try {
+            return new Manifest(in).getMainAttributes();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads a properties entry.
+     * @param zip not null
+     * @param entry not null
+     * @return not null
+     * @throws IOException when the entry cannot be read
+     */
+    private static Properties properties(final ZipFile zip,
+            final ZipArchiveEntry entry) throws IOException {
+        final Properties properties = new Properties();
+        final InputStream in = zip.getInputStream(entry);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        return properties;
+    }
+}
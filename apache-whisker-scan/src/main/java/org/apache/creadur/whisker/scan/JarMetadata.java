@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+/**
+ * Licensing hints read from the metadata embedded within a jar.
+ * Each hint is null when the jar does not provide it.
+ */
+public final class JarMetadata {
+
+    /** Value of the manifest <code>Bundle-License</code> header. */
+    private final String bundleLicense;
+    /** Value of the manifest <code>Bundle-Vendor</code> header. */
+    private final String bundleVendor;
+    /** Value of the manifest <code>Implementation-Vendor</code> header. */
+    private final String implementationVendor;
+    /** Maven group id, from <code>pom.properties</code>. */
+    private final String groupId;
+    /** Maven artifact id, from <code>pom.properties</code>. */
+    private final String artifactId;
+    /** Maven version, from <code>pom.properties</code>. */
+    private final String version;
+    /** Is <code>META-INF/LICENSE</code> present? */
+    private final boolean license;
+    /** Is <code>META-INF/NOTICE</code> present? */
+    private final boolean notice;
+
+    /**
+     * Constructs metadata.
+     * @param bundleLicense possibly null
+     * @param bundleVendor possibly null
+     * @param implementationVendor possibly null
+     * @param groupId possibly null
+     * @param artifactId possibly null
+     * @param version possibly null
+     * @param license true when <code>META-INF/LICENSE</code> is present
+     * @param notice true when <code>META-INF/NOTICE</code> is present
+     */
+    public JarMetadata(final String bundleLicense, final String bundleVendor,
+            final String implementationVendor, final String groupId,
+            final String artifactId, final String version,
+            final boolean license, final boolean notice) {
+        super();
+        this.bundleLicense = bundleLicense;
+        this.bundleVendor = bundleVendor;
+        this.implementationVendor = implementationVendor;
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.version = version;
+        this.license = license;
+        this.notice = notice;
+    }
+
+    /**
+     * Gets the manifest <code>Bundle-License</code> header.
+     * @return possibly null
+     */
+    public String getBundleLicense() {
+        return bundleLicense;
+    }
+
+    /**
+     * Gets the manifest <code>Bundle-Vendor</code> header.
+     * @return possibly null
+     */
+    public String getBundleVendor() {
+        return bundleVendor;
+    }
+
+    /**
+     * Gets the manifest <code>Implementation-Vendor</code> header.
+     * @return possibly null
+     */
+    public String getImplementationVendor() {
+        return implementationVendor;
+    }
+
+    /**
+     * Gets the organisation most likely to have produced the jar,
+     * preferring the bundle vendor.
+     * @return possibly null
+     */
+    public String getOrganisation() {
+        if (bundleVendor == null) {
+            return implementationVendor;
+        }
+        return bundleVendor;
+    }
+
+    /**
+     * Gets the Maven group id.
+     * @return possibly null
+     */
+    public String getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * Gets the Maven artifact id.
+     * @return possibly null
+     */
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    /**
+     * Gets the Maven version.
+     * @return possibly null
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the Maven coordinates.
+     * @return <code>groupId:artifactId:version</code>,
+     * or null when the jar was not built by Maven
+     */
+    public String getCoordinates() {
+        if (groupId == null || artifactId == null) {
+            return null;
+        }
+        if (version == null) {
+            return groupId + ":" + artifactId;
+        }
+        return groupId + ":" + artifactId + ":" + version;
+    }
+
+    /**
+     * Is a license shipped within the jar?
+     * @return true when <code>META-INF/LICENSE</code> is present
+     */
+    public boolean hasLicense() {
+        return license;
+    }
+
+    /**
+     * Is a notice shipped within the jar?
+     * @return true when <code>META-INF/NOTICE</code> is present
+     */
+    public boolean hasNotice() {
+        return notice;
+    }
+
+    /**
+     * Suitable for logging.
+     * @return not null
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "JarMetadata [bundleLicense=" + bundleLicense
+                + ", bundleVendor=" + bundleVendor
+                + ", implementationVendor=" + implementationVendor
+                + ", coordinates=" + getCoordinates()
+                + ", license=" + license + ", notice=" + notice + "]";
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Hashes the contents of resources scanned from a file system,
+ * in parallel.
+ * <p>
+ * Resources which are not regular files, such as dangling links,
+ * are not hashed.
+ * Each resource is read once, updating both SHA-256 and SHA-1
+ * digests. Large resources are memory mapped a region at a time,
+ * so their contents are never copied onto the heap.
+ * </p>
+ */
+public class ResourceHasher {
+
+    /** By default, hash on every available processor. */
+    public static final int DEFAULT_THREADS =
+            Runtime.getRuntime().availableProcessors();
+
+    /** Resources at least this large are memory mapped. */
+    private static final long MAP_THRESHOLD = 64 * 1024;
+    /** Size of each region mapped. */
+    private static final long REGION = 64 * 1024 * 1024;
+    /** Hexadecimal digits. */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    /** Represents the base directory. */
+    private static final String BASE_DIRECTORY = ".";
+
+    /**
+     * Groups resources shipped more than once, perhaps under
+     * different names, by content.
+     * @param directories hashed, not null
+     * @return paths relative to the base, ordered by name,
+     * indexed by SHA-256 hash, for contents found more than once,
+     * not null, possibly empty
+     */
+    public static Map<String, Collection<String>> duplicates(
+            final Collection<Directory> directories) {
+        final Map<String, Collection<String>> byHash =
+                new HashMap<String, Collection<String>>();
+        for (final Directory directory: directories) {
+            for (final Map.Entry<String, ResourceHashes> resource:
+                    directory.getHashes().entrySet()) {
+                final String hash = resource.getValue().getSha256();
+                Collection<String> paths = byHash.get(hash);
+                if (paths == null) {
+                    paths = new TreeSet<String>();
+                    byHash.put(hash, paths);
+                }
+                paths.add(path(directory.getName(), resource.getKey()));
+            }
+        }
+        final Map<String, Collection<String>> results =
+                new TreeMap<String, Collection<String>>();
+        for (final Map.Entry<String, Collection<String>> entry: byHash.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                results.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Converts a resource name to a path relative to base.
+     * @param directory names the directory, not null
+     * @param name names the resource, not null
+     * @return not null
+     */
+    private static String path(final String directory, final String name) {
+        if (BASE_DIRECTORY.equals(directory)) {
+            return name;
+        }
+        return directory + "/" + name;
+    }
+
+    /** Number of threads hashing. */
+    private int threads = DEFAULT_THREADS;
+
+    /**
+     * Base constructor.
+     */
+    public ResourceHasher() {
+        super();
+    }
+
+    /**
+     * Gets the number of threads hashing.
+     * @return at least one
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads hashing.
+     * @param threads at least one
+     * @return this, not null
+     */
+    public ResourceHasher setThreads(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(
+                    "Expected at least one thread but was " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Hashes every resource within the given directories,
+     * setting the hashes on each directory.
+     * @param base names the base directory scanned, not null
+     * @param directories scanned from the base, not null
+     * @return the directories, not null
+     * @throws IOException when a resource cannot be read
+     */
+    public Collection<Directory> hash(final String base,
+            final Collection<Directory> directories) throws IOException {
+        new ResourceReader<ResourceHashes>(threads) {
+            @Override
+            boolean accepts(final String name) {
+                return true;
+            }
+
+            @Override
+            ResourceHashes read(final Path file) throws IOException {
+                if (!Files.isRegularFile(file)) {
+                    return null;
+                }
+                return hash(file);
+            }
+
+            @Override
+            void store(final Directory directory,
+                    final Map<String, ResourceHashes> results) {
+                directory.setHashes(results);
+            }
+        }.readAll(base, directories);
+        return directories;
+    }
+
+    /**
+     * Hashes the contents of a file.
+     * @param file not null
+     * @return not null
+     * @throws IOException when the file cannot be read
+     */
+    static ResourceHashes hash(final Path file) throws IOException {
+        final MessageDigest sha256 = digest("SHA-256");
+        final MessageDigest sha1 = digest("SHA-1");
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            final long size = channel.size();
+            if (size < MAP_THRESHOLD) {
+                final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    continue;
+                }
+                buffer.flip();
+                update(buffer, sha256, sha1);
+            } else {
+                for (long position = 0; position < size; position += REGION) {
+                    final MappedByteBuffer region = channel.map(
+                            FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(REGION, size - position));
+                    update(region, sha256, sha1);
+                }
+            }
+        } finally {
+            channel.close();
+        }
+        return new ResourceHashes(hex(sha256.digest()), hex(sha1.digest()));
+    }
+
+    /**
+     * Updates both digests with the remaining content.
+     * @param buffer not null
+     * @param sha256 not null
+     * @param sha1 not null
+     */
+    private static void update(final ByteBuffer buffer,
+            final MessageDigest sha256, final MessageDigest sha1) {
+        buffer.mark();
+        sha256.update(buffer);
+        buffer.reset();
+        sha1.update(buffer);
+    }
+
+    /**
+     * Creates a digest for an algorithm every platform supports.
+     * @param algorithm not null
+     * @return not null
+     */
+    private static MessageDigest digest(final String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " is unsupported", e);
+        }
+    }
+
+    /**
+     * Converts bytes to lower case hexadecimal.
+     * @param bytes not null
+     * @return not null
+     */
+    private static String hex(final byte[] bytes) {
+        final char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            result[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(result);
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+/**
+ * Content hashes of a resource, as lower case hexadecimal.
+ */
+public final class ResourceHashes {
+
+    /** SHA-256 hash. */
+    private final String sha256;
+    /** SHA-1 hash, as published by Maven Central. */
+    private final String sha1;
+
+    /**
+     * Constructs hashes.
+     * @param sha256 not null
+     * @param sha1 not null
+     */
+    public ResourceHashes(final String sha256, final String sha1) {
+        super();
+        this.sha256 = sha256;
+        this.sha1 = sha1;
+    }
+
+    /**
+     * Gets the SHA-256 hash.
+     * @return lower case hexadecimal, not null
+     */
+    public String getSha256() {
+        return sha256;
+    }
+
+    /**
+     * Gets the SHA-1 hash, for comparison with
+     * the checksums published by Maven repositories.
+     * @return lower case hexadecimal, not null
+     */
+    public String getSha1() {
+        return sha1;
+    }
+
+    /**
+     * Based on the SHA-256 hash.
+     * @return hash code
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return sha256.hashCode();
+    }
+
+    /**
+     * Equal when both hashes are equal.
+     * @param obj possibly null
+     * @return true when equal, false otherwise
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final ResourceHashes other = (ResourceHashes) obj;
+        return sha256.equals(other.sha256) && sha1.equals(other.sha1);
+    }
+
+    /**
+     * Suitable for logging.
+     * @return not null
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ResourceHashes [sha256=" + sha256 + ", sha1=" + sha1 + "]";
+    }
+}
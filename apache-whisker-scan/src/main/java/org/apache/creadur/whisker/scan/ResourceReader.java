@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads resources scanned from a file system, in parallel,
+ * storing what is read on each directory.
+ * @param <T> what is read from each resource
+ */
+abstract class ResourceReader<T> {
+
+    /** Number of threads reading. */
+    private final int threads;
+
+    /**
+     * Constructs a reader.
+     * @param threads number of threads reading, at least one
+     */
+    ResourceReader(final int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Should the named resource be read?
+     * @param name names a resource within its directory, not null
+     * @return true when the resource should be read,
+     * false when it should be skipped
+     */
+    abstract boolean accepts(String name);
+
+    /**
+     * Reads a resource.
+     * Called concurrently.
+     * @param file not null
+     * @return null when nothing should be stored
+     * @throws IOException when the resource cannot be read
+     */
+    abstract T read(Path file) throws IOException;
+
+    /**
+     * Stores what was read from the resources of a directory.
+     * @param directory not null
+     * @param results indexed by resource name, not null
+     */
+    abstract void store(Directory directory, Map<String, T> results);
+
+    /**
+     * Reads every accepted resource within the given directories,
+     * one task per resource, then stores the results.
+     * @param base names the base directory scanned, not null
+     * @param directories scanned from the base, not null
+     * @throws IOException when a resource cannot be read
+     */
+    final void readAll(final String base,
+            final Collection<Directory> directories) throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(new ReadDirectories(new File(base), directories)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted whilst reading " + base);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Failed to read " + base, cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the resources in every directory, in parallel.
+     */
+    private final class ReadDirectories extends RecursiveAction {
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+        /** Base directory scanned. */
+        private final File base;
+        /** Directories to be read. */
+        private final Collection<Directory> directories;
+
+        /**
+         * Constructs an action.
+         * @param base not null
+         * @param directories not null
+         */
+        ReadDirectories(final File base,
+                final Collection<Directory> directories) {
+            this.base = base;
+            this.directories = directories;
+        }
+
+        /**
+         * Forks a task for every resource, then stores
+         * the results for each directory.
+         */
+        @Override
+        protected void compute() {
+            final Map<Directory, List<ReadResource>> tasks =
+                    new HashMap<Directory, List<ReadResource>>();
+            final List<ReadResource> all = new ArrayList<ReadResource>();
+            for (final Directory directory: directories) {
+                final File parent = new File(base, directory.getName());
+                final List<ReadResource> resources = new ArrayList<ReadResource>();
+                for (final String name: directory.getContents()) {
+                    if (accepts(name)) {
+                        resources.add(new ReadResource(name,
+                                new File(parent, name).toPath()));
+                    }
+                }
+                tasks.put(directory, resources);
+                all.addAll(resources);
+            }
+            invokeAll(all);
+            for (final Map.Entry<Directory, List<ReadResource>> entry: tasks.entrySet()) {
+                final Map<String, T> results = new HashMap<String, T>();
+                for (final ReadResource resource: entry.getValue()) {
+                    final T result = resource.join();
+                    if (result != null) {
+                        results.put(resource.name, result);
+                    }
+                }
+                store(entry.getKey(), results);
+            }
+        }
+    }
+
+    /**
+     * Reads a single resource.
+     */
+    private final class ReadResource extends RecursiveTask<T> {
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+        /** Names the resource within its directory. */
+        private final String name;
+        /** The resource file. */
+        private final Path file;
+
+        /**
+         * Constructs a task.
+         * @param name not null
+         * @param file not null
+         */
+        ReadResource(final String name, final Path file) {
+            this.name = name;
+            this.file = file;
+        }
+
+        /**
+         * Reads the resource.
+         * @return possibly null
+         */
+        @Override
+        protected T compute() {
+            try {
+                return read(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Selects the resources scanned by glob patterns,
+ * matched against paths relative to the base
+ * such as {@code lib/commons-io.jar}.
+ * <p>
+ * Patterns follow {@link java.nio.file.FileSystem#getPathMatcher(String)}
+ * so, for example, {@code *.html} matches only within the base.
+ * As with Ant, a leading {@code **}{@code /} also matches
+ * within the base, so {@code **}{@code /*.html} matches at any depth,
+ * and an exclude pattern ending {@code /**} also excludes the
+ * directory itself, so {@code docs/apidocs/**} prunes
+ * {@code docs/apidocs}.
+ * </p>
+ * <p>
+ * Excluded directories are pruned, so nothing within them
+ * is listed. When include patterns are given,
+ * only matching resources are reported, though every
+ * directory not excluded is still descended into.
+ * </p>
+ * <p>
+ * Patterns are compiled once, when constructed.
+ * </p>
+ */
+public class ScanFilter {
+
+    /** Accepts everything. */
+    public static final ScanFilter ALL = new ScanFilter(
+            Collections.<String>emptyList(), Collections.<String>emptyList());
+
+    /** Glob syntax for path matchers. */
+    private static final String GLOB_SYNTAX = "glob:";
+    /** Prefix matching any directory, including the base. */
+    private static final String ANY_ANCESTOR = "**/";
+    /** Suffix matching everything within a directory. */
+    private static final String ANY_DESCENDANT = "/**";
+
+    /** Include patterns, as given. */
+    private final List<String> includes;
+    /** Exclude patterns, as given. */
+    private final List<String> excludes;
+    /** Compiled include patterns. */
+    private final Collection<PathMatcher> includeMatchers;
+    /** Compiled exclude patterns. */
+    private final Collection<PathMatcher> excludeMatchers;
+
+    /**
+     * Compiles a filter.
+     * @param includes glob patterns for resources reported,
+     * not null, empty to report every resource not excluded
+     * @param excludes glob patterns for resources and directories
+     * skipped, not null, possibly empty
+     * @throws IllegalArgumentException when a pattern is invalid
+     */
+    public ScanFilter(final Collection<String> includes,
+            final Collection<String> excludes) {
+        super();
+        this.includes = Collections.unmodifiableList(
+                new ArrayList<String>(includes));
+        this.excludes = Collections.unmodifiableList(
+                new ArrayList<String>(excludes));
+        this.includeMatchers = new ArrayList<PathMatcher>(includes.size());
+        for (final String include: includes) {
+            compile(include, includeMatchers);
+        }
+        this.excludeMatchers = new ArrayList<PathMatcher>(excludes.size());
+        for (final String exclude: excludes) {
+            compile(exclude, excludeMatchers);
+            if (exclude.endsWith(ANY_DESCENDANT)) {
+                compile(exclude.substring(0,
+                        exclude.length() - ANY_DESCENDANT.length()),
+                        excludeMatchers);
+            }
+        }
+    }
+
+    /**
+     * Compiles a glob pattern.
+     * A pattern starting {@code **}{@code /} is also compiled
+     * without that prefix, to match within the base.
+     * @param pattern not null
+     * @param matchers collects the compiled pattern, not null
+     */
+    private static void compile(final String pattern,
+            final Collection<PathMatcher> matchers) {
+        matchers.add(FileSystems.getDefault().getPathMatcher(
+                GLOB_SYNTAX + pattern));
+        if (pattern.startsWith(ANY_ANCESTOR)) {
+            compile(pattern.substring(ANY_ANCESTOR.length()), matchers);
+        }
+    }
+
+    /**
+     * Gets the include patterns.
+     * @return not null, possibly empty
+     */
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    /**
+     * Gets the exclude patterns.
+     * @return not null, possibly empty
+     */
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    /**
+     * Does this filter accept everything?
+     * @return true when there are no patterns,
+     * false otherwise
+     */
+    public boolean isEmpty() {
+        return includes.isEmpty() && excludes.isEmpty();
+    }
+
+    /**
+     * Is the given resource or directory excluded?
+     * Excluded directories are not descended into.
+     * @param path relative to the base, not null
+     * @return true when any exclude pattern matches,
+     * false otherwise
+     */
+    public boolean isExcluded(final String path) {
+        return !excludeMatchers.isEmpty()
+                && matches(excludeMatchers, Paths.get(path));
+    }
+
+    /**
+     * Is the given resource reported?
+     * @param path relative to the base, not null
+     * @return true when not excluded and either there are no
+     * include patterns or any include pattern matches,
+     * false otherwise
+     */
+    public boolean isIncluded(final String path) {
+        if (isEmpty()) {
+            return true;
+        }
+        final Path file = Paths.get(path);
+        return !matches(excludeMatchers, file)
+                && (includeMatchers.isEmpty() || matches(includeMatchers, file));
+    }
+
+    /**
+     * Does any matcher match the given path?
+     * @param matchers not null
+     * @param path not null
+     * @return true when any matches, false otherwise
+     */
+    private static boolean matches(final Collection<PathMatcher> matchers,
+            final Path path) {
+        for (final PathMatcher matcher: matchers) {
+            if (matcher.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Describes the patterns.
+     * Filters with equal descriptions select the same resources.
+     * @return not null
+     */
+    @Override
+    public String toString() {
+        return "ScanFilter [includes=" + includes
+                + ", excludes=" + excludes + "]";
+    }
+}
@@ -0,0 +1,337 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the directories found by the last scan of a base,
+ * so that the next scan need only list directories
+ * modified since.
+ * <p>
+ * A directory is modified whenever an entry is added,
+ * removed or renamed, so an unmodified directory has the
+ * same resources and subdirectories as when last scanned.
+ * Subdirectories are still checked, since their modification
+ * does not modify their parent. As with the racy git problem,
+ * directories modified just before the last scan started
+ * are not trusted, since further modifications within the
+ * same file system clock tick would not be visible.
+ * </p>
+ */
+class ScanSnapshot {
+
+    /** Identifies snapshot files. */
+    private static final int MAGIC = 0x57534b53;
+    /** Version of the snapshot file format. */
+    private static final int VERSION = 2;
+    /**
+     * Modification times closer than this to the start of the
+     * last scan are not trusted, allowing for coarse file system clocks.
+     */
+    private static final long RACY_MILLIS = 2000;
+
+    /**
+     * Creates a snapshot which is neither loaded nor saved,
+     * so every directory is listed.
+     * @return not null
+     */
+    static ScanSnapshot none() {
+        return new ScanSnapshot(null, null, false, null,
+                Long.MIN_VALUE, Collections.<String, Entry>emptyMap());
+    }
+
+    /**
+     * Loads the snapshot saved by the last scan of the given base.
+     * A missing or unreadable snapshot, or one for a different
+     * base or settings, is ignored and every directory is listed.
+     * @param file the snapshot file, not null
+     * @param base the base about to be scanned, not null
+     * @param followLinks true when symbolic links are followed
+     * @param filter selects the resources scanned, not null
+     * @return not null
+     */
+    static ScanSnapshot load(final File file, final File base,
+            final boolean followLinks, final ScanFilter filter) {
+        final String filterDescription = filter.toString();
+        final String basePath = base.getAbsolutePath();
+        Map<String, Entry> previous = Collections.<String, Entry>emptyMap();
+        long previousStarted = Long.MIN_VALUE;
+        if (file.isFile()) {
+            try {
+                final DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(
+                                Files.newInputStream(file.toPath())));
+                try {
+                    if (in.readInt() == MAGIC
+                            && in.readInt() == VERSION
+                            && basePath.equals(in.readUTF())
+                            && followLinks == in.readBoolean()
+                            && filterDescription.equals(in.readUTF())) {
+                        previousStarted = in.readLong();
+                        previous = read(in);
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                // Corrupt snapshots are rescanned
+                previous = Collections.<String, Entry>emptyMap();
+            }
+        }
+        return new ScanSnapshot(file, basePath, followLinks,
+                filterDescription, previousStarted, previous);
+    }
+
+    /**
+     * Reads the directory entries.
+     * @param in not null
+     * @return entries by directory name, not null
+     * @throws IOException when the entries cannot be read
+     */
+    private static Map<String, Entry> read(final DataInputStream in)
+            throws IOException {
+        final int directories = in.readInt();
+        final Map<String, Entry> results = new HashMap<String, Entry>(
+                Math.max(16, directories * 4 / 3 + 1));
+        for (int i = 0; i < directories; i++) {
+            final String name = in.readUTF();
+            final long modified = in.readLong();
+            results.put(name, new Entry(modified, readNames(in), readNames(in)));
+        }
+        return results;
+    }
+
+    /**
+     * Reads names.
+     * @param in not null
+     * @return not null
+     * @throws IOException when the names cannot be read
+     */
+    private static String[] readNames(final DataInputStream in)
+            throws IOException {
+        final String[] results = new String[in.readInt()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = in.readUTF();
+        }
+        return results;
+    }
+
+    /** Snapshot file, null when not persisted. */
+    private final File file;
+    /** Absolute path of the base scanned. */
+    private final String basePath;
+    /** Are symbolic links followed? */
+    private final boolean followLinks;
+    /** Describes the filter selecting the resources scanned. */
+    private final String filterDescription;
+    /** When the previous scan started, in milliseconds. */
+    private final long previousStarted;
+    /** Directories found by the previous scan, by name. */
+    private final Map<String, Entry> previous;
+    /** Directories found by this scan, by name. */
+    private final Map<String, Entry> current;
+    /** When this scan started, in milliseconds. */
+    private final long started;
+
+    /**
+     * Constructs a snapshot.
+     * @param file snapshot file, null when not persisted
+     * @param basePath absolute path of the base, null when not persisted
+     * @param followLinks true when symbolic links are followed
+     * @param filterDescription describes the filter,
+     * null when not persisted
+     * @param previousStarted when the previous scan started
+     * @param previous directories found by the previous scan, not null
+     */
+    private ScanSnapshot(final File file, final String basePath,
+            final boolean followLinks, final String filterDescription,
+            final long previousStarted, final Map<String, Entry> previous) {
+        this.file = file;
+        this.basePath = basePath;
+        this.followLinks = followLinks;
+        this.filterDescription = filterDescription;
+        this.previousStarted = previousStarted;
+        this.previous = previous;
+        this.current = new ConcurrentHashMap<String, Entry>();
+        this.started = System.currentTimeMillis();
+    }
+
+    /**
+     * Finds the named directory when unmodified since the last scan.
+     * @param name names the directory relative to the base, not null
+     * @param modified when the directory was last modified, not null
+     * @return the directory as last scanned,
+     * or null when the directory must be listed
+     */
+    Entry unmodified(final String name, final FileTime modified) {
+        final Entry result = previous.get(name);
+        if (result != null
+                && result.modified == nanos(modified)
+                && modified.toMillis() + RACY_MILLIS < previousStarted) {
+            return result;
+        }
+        return null;
+    }
+
+    /**
+     * Records a directory scanned.
+     * Safe to call concurrently.
+     * @param name names the directory relative to the base, not null
+     * @param modified when the directory was last modified, not null
+     * @param resources names the resources, not null
+     * @param subdirectories names the subdirectories, not null
+     */
+    void record(final String name, final FileTime modified,
+            final Collection<String> resources,
+            final Collection<String> subdirectories) {
+        if (file != null) {
+            current.put(name, new Entry(nanos(modified),
+                    resources.toArray(new String[resources.size()]),
+                    subdirectories.toArray(new String[subdirectories.size()])));
+        }
+    }
+
+    /**
+     * Saves the directories recorded, replacing the snapshot file.
+     * @throws IOException when the snapshot cannot be written
+     */
+    void save() throws IOException {
+        if (file != null) {
+            final Path target = file.getAbsoluteFile().toPath();
+            final Path temporary = Files.createTempFile(
+                    target.getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                final DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(
+                                Files.newOutputStream(temporary)));
+                try {
+                    write(out);
+                } finally {
+                    out.close();
+                }
+                Files.move(temporary, target,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * Writes the directories recorded.
+     * @param out not null
+     * @throws IOException when writing fails
+     */
+    private void write(final DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(basePath);
+        out.writeBoolean(followLinks);
+        out.writeUTF(filterDescription);
+        out.writeLong(started);
+        out.writeInt(current.size());
+        for (final Map.Entry<String, Entry> directory: current.entrySet()) {
+            final Entry entry = directory.getValue();
+            out.writeUTF(directory.getKey());
+            out.writeLong(entry.modified);
+            writeNames(out, entry.resources);
+            writeNames(out, entry.subdirectories);
+        }
+    }
+
+    /**
+     * Writes names.
+     * @param out not null
+     * @param names not null
+     * @throws IOException when writing fails
+     */
+    private static void writeNames(final DataOutputStream out,
+            final String[] names) throws IOException {
+        out.writeInt(names.length);
+        for (final String name: names) {
+            out.writeUTF(name);
+        }
+    }
+
+    /**
+     * Converts a modification time into nanoseconds.
+     * @param modified not null
+     * @return nanoseconds since the epoch
+     */
+    private static long nanos(final FileTime modified) {
+        return modified.to(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * A directory as scanned.
+     */
+    static final class Entry {
+        /** When the directory was last modified, in nanoseconds. */
+        private final long modified;
+        /** Names the resources. */
+        private final String[] resources;
+        /** Names the subdirectories. */
+        private final String[] subdirectories;
+
+        /**
+         * Constructs an entry.
+         * @param modified when the directory was last modified
+         * @param resources names the resources, not null
+         * @param subdirectories names the subdirectories, not null
+         */
+        Entry(final long modified, final String[] resources,
+                final String[] subdirectories) {
+            this.modified = modified;
+            this.resources = resources;
+            this.subdirectories = subdirectories;
+        }
+
+        /**
+         * Gets the names of the resources.
+         * @return not null
+         */
+        String[] getResources() {
+            return resources;
+        }
+
+        /**
+         * Gets the names of the subdirectories.
+         * @return not null
+         */
+        String[] getSubdirectories() {
+            return subdirectories;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the directories within a file system base up to date,
+ * as resources are added, removed or renamed.
+ * <p>
+ * The base is scanned once, then every directory is watched
+ * using a {@link WatchService}. When a directory changes only
+ * that directory is listed again, together with any subdirectories
+ * created within it. Symbolic links are reported as resources,
+ * since changes to their targets are not watched.
+ * </p>
+ * <p>
+ * Not thread safe: directories should be read by the thread polling.
+ * </p>
+ */
+public class WatchedDirectories implements Closeable {
+
+    /** Represents the base directory. */
+    private static final String BASE_DIRECTORY = ".";
+
+    /** The base directory watched. */
+    private final Path base;
+    /** Selects the resources scanned. */
+    private final ScanFilter filter;
+    /** Watches every directory. */
+    private final WatchService watcher;
+    /** Directories, by name. */
+    private final Map<String, Directory> directories;
+    /** Names of the subdirectories of each directory, by name. */
+    private final Map<String, Collection<String>> subdirectories;
+    /** Watch registrations, by directory name. */
+    private final Map<String, WatchKey> keysByName;
+    /** Directory names, by watch registration. */
+    private final Map<WatchKey, String> namesByKey;
+
+    /**
+     * Scans the given base then watches it for changes.
+     * @param base names the base directory, not null
+     * @param filter selects the resources scanned, not null
+     * @throws IOException when the base cannot be scanned or watched
+     */
+    public WatchedDirectories(final String base, final ScanFilter filter)
+            throws IOException {
+        super();
+        this.base = new File(base).toPath();
+        this.filter = filter;
+        this.directories = new TreeMap<String, Directory>();
+        this.subdirectories = new HashMap<String, Collection<String>>();
+        this.keysByName = new HashMap<String, WatchKey>();
+        this.namesByKey = new HashMap<WatchKey, String>();
+        final Collection<Directory> scanned = new FromFileSystem()
+                .setFollowLinks(false)
+                .setFilter(filter)
+                .withBase(base);
+        this.watcher = this.base.getFileSystem().newWatchService();
+        try {
+            for (final Directory directory: scanned) {
+                directories.put(directory.getName(), directory);
+                subdirectories.put(directory.getName(), new ArrayList<String>());
+            }
+            for (final String name: directories.keySet()) {
+                if (!BASE_DIRECTORY.equals(name)) {
+                    subdirectories.get(parent(name)).add(name);
+                }
+                watch(name);
+            }
+        } catch (IOException e) {
+            watcher.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the directories as last updated.
+     * @return directories ordered by name, not null
+     */
+    public Collection<Directory> getDirectories() {
+        return Collections.unmodifiableCollection(
+                new ArrayList<Directory>(directories.values()));
+    }
+
+    /**
+     * Gets the named directory as last updated.
+     * @param name names a directory relative to the base, not null
+     * @return null when no such directory is watched
+     */
+    public Directory getDirectory(final String name) {
+        return directories.get(name);
+    }
+
+    /**
+     * Waits for changes then updates the directories affected.
+     * Changes arriving together are applied together,
+     * each directory being listed once.
+     * @param timeout longest wait
+     * @param unit of the timeout, not null
+     * @return names of the directories added, changed or removed,
+     * ordered by name, not null, empty when nothing changed in time
+     * @throws IOException when a directory cannot be listed
+     * @throws InterruptedException when interrupted whilst waiting
+     */
+    public Collection<String> poll(final long timeout, final TimeUnit unit)
+            throws IOException, InterruptedException {
+        final Set<String> affected = new TreeSet<String>();
+        boolean overflow = false;
+        WatchKey key = watcher.poll(timeout, unit);
+        while (key != null) {
+            for (final WatchEvent<?> event: key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                }
+            }
+            final String name = namesByKey.get(key);
+            if (name != null) {
+                affected.add(name);
+            }
+            key.reset();
+            key = watcher.poll();
+        }
+        if (overflow) {
+            // Events were lost, so every directory is listed again
+            affected.addAll(directories.keySet());
+        }
+        final Set<String> changed = new TreeSet<String>();
+        for (final String name: affected) {
+            if (directories.containsKey(name)) {
+                update(name, changed);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Stops watching.
+     * @throws IOException when the watch service cannot be closed
+     */
+    public void close() throws IOException {
+        watcher.close();
+    }
+
+    /**
+     * Lists a directory again, then adds new subdirectories
+     * and removes those no longer present.
+     * Subdirectories which remain are updated only
+     * when they change themselves.
+     * @param name names a watched directory, not null
+     * @param changed collects the names of directories changed, not null
+     * @throws IOException when the directory cannot be listed
+     */
+    private void update(final String name, final Collection<String> changed)
+            throws IOException {
+        final Collection<String> previous = subdirectories.get(name);
+        final Collection<String> current = new ArrayList<String>();
+        final Directory directory;
+        try {
+            directory = list(name, current);
+        } catch (NoSuchFileException e) {
+            // Removed, so dropped when the parent is updated
+            return;
+        } catch (NotDirectoryException e) {
+            return;
+        }
+        directories.put(name, directory);
+        changed.add(name);
+        for (final String subdirectory: previous) {
+            if (!current.contains(subdirectory)) {
+                remove(subdirectory, changed);
+            }
+        }
+        for (final String subdirectory: current) {
+            if (!previous.contains(subdirectory)) {
+                add(subdirectory, changed);
+            }
+        }
+        subdirectories.put(name, current);
+    }
+
+    /**
+     * Adds a new directory and everything within it.
+     * The directory is watched before it is listed,
+     * so no change is missed.
+     * @param name names the directory, not null
+     * @param changed collects the names of directories changed, not null
+     * @throws IOException when the directory cannot be listed
+     */
+    private void add(final String name, final Collection<String> changed)
+            throws IOException {
+        subdirectories.put(name, Collections.<String>emptyList());
+        directories.put(name, new Directory().setName(name));
+        try {
+            watch(name);
+        } catch (NoSuchFileException e) {
+            // Removed again, so dropped when the parent is updated
+            return;
+        }
+        update(name, changed);
+    }
+
+    /**
+     * Removes a directory and everything within it.
+     * @param name names the directory, not null
+     * @param changed collects the names of directories changed, not null
+     */
+    private void remove(final String name, final Collection<String> changed) {
+        final Collection<String> removed = subdirectories.remove(name);
+        if (removed != null) {
+            for (final String subdirectory: removed) {
+                remove(subdirectory, changed);
+            }
+        }
+        directories.remove(name);
+        final WatchKey key = keysByName.remove(name);
+        if (key != null) {
+            key.cancel();
+            namesByKey.remove(key);
+        }
+        changed.add(name);
+    }
+
+    /**
+     * Watches a directory for entries created or deleted.
+     * Renames are reported as both.
+     * @param name names the directory, not null
+     * @throws IOException when the directory cannot be watched
+     */
+    private void watch(final String name) throws IOException {
+        final WatchKey key = path(name).register(watcher,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        keysByName.put(name, key);
+        namesByKey.put(key, name);
+    }
+
+    /**
+     * Lists a directory.
+     * @param name names the directory, not null
+     * @param subdirectoryNames collects the names of subdirectories,
+     * not null
+     * @return not null
+     * @throws IOException when the directory cannot be listed
+     */
+    private Directory list(final String name,
+            final Collection<String> subdirectoryNames) throws IOException {
+        final Directory result = new Directory().setName(name);
+        final DirectoryStream<Path> contents = Files.newDirectoryStream(path(name));
+        try {
+            for (final Path entry: contents) {
+                final String entryName = entry.getFileName().toString();
+                final String path = child(name, entryName);
+                if (filter.isExcluded(path)) {
+                    continue;
+                }
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    subdirectoryNames.add(path);
+                } else if (filter.isIncluded(path)) {
+                    result.addResource(entryName);
+                }
+            }
+        } finally {
+            contents.close();
+        }
+        result.getContents();
+        return result;
+    }
+
+    /**
+     * Resolves a directory name against the base.
+     * @param name not null
+     * @return not null
+     */
+    private Path path(final String name) {
+        if (BASE_DIRECTORY.equals(name)) {
+            return base;
+        }
+        return base.resolve(name);
+    }
+
+    /**
+     * Names an entry within a directory, relative to the base.
+     * @param name names the directory, not null
+     * @param entryName names the entry, not null
+     * @return not null
+     */
+    private static String child(final String name, final String entryName) {
+        if (BASE_DIRECTORY.equals(name)) {
+            return entryName;
+        }
+        return name + "/" + entryName;
+    }
+
+    /**
+     * Names the parent of a directory.
+     * @param name names a directory other than the base, not null
+     * @return not null
+     */
+    private static String parent(final String name) {
+        final int slash = name.lastIndexOf('/');
+        if (slash < 0) {
+            return BASE_DIRECTORY;
+        }
+        return name.substring(0, slash);
+    }
+}
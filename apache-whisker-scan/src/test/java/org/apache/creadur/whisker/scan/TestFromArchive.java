@@ -0,0 +1,303 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+
+import junit.framework.TestCase;
+
+public class TestFromArchive extends TestCase {
+
+    private static final String[] ENTRIES = {
+        "README", "lib/", "lib/commons-io.jar", "lib/ext/jdom.jar", "empty/"};
+
+    private Path base;
+    private FromArchive subject;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        base = Files.createTempDirectory("whisker-archive");
+        subject = new FromArchive();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        final File[] files = base.toFile().listFiles();
+        if (files != null) {
+            for (final File file: files) {
+                file.delete();
+            }
+        }
+        base.toFile().delete();
+        super.tearDown();
+    }
+
+    public void testZip() throws Exception {
+        checkEntries(zip("sample.zip", ENTRIES));
+    }
+
+    public void testJar() throws Exception {
+        checkEntries(zip("sample.jar", ENTRIES));
+    }
+
+    public void testTar() throws Exception {
+        checkEntries(tar("sample.tar", false, ENTRIES));
+    }
+
+    public void testTarGzip() throws Exception {
+        checkEntries(tar("sample.tar.gz", true, ENTRIES));
+    }
+
+    public void testParentsAreImplied() throws Exception {
+        final List<Directory> results = new ArrayList<Directory>(
+                subject.withBase(zip("sample.zip", "./a/b/c.txt").toString()));
+        assertEquals(Arrays.asList(".", "a", "a/b"), names(results));
+        assertEquals(Arrays.asList("c.txt"),
+                new ArrayList<String>(results.get(2).getContents()));
+    }
+
+    public void testNestedArchivesAreNotDescendedByDefault() throws Exception {
+        assertEquals(Arrays.asList("."),
+                names(subject.withBase(tar("sample.tgz", true, webapp()).toString())));
+    }
+
+    public void testNestedArchivesInTar() throws Exception {
+        checkNested(tar("sample.tgz", true, webapp()));
+    }
+
+    public void testNestedArchivesInZip() throws Exception {
+        checkNested(zip("sample.zip", webapp()));
+    }
+
+    public void testNestedArchivesStreamedWhenOverBufferLimit() throws Exception {
+        subject.setBufferLimit(0);
+        checkNested(tar("sample.tgz", true, webapp()));
+        checkNested(zip("sample.zip", webapp()));
+    }
+
+    public void testNestingDepthLimitsDescent() throws Exception {
+        final List<Directory> results = new ArrayList<Directory>(
+                subject.setNestingDepth(1).withBase(zip("sample.zip", webapp()).toString()));
+        assertEquals(Arrays.asList(".", "app.war!", "app.war!/WEB-INF",
+                "app.war!/WEB-INF/lib"), names(results));
+        assertEquals(Arrays.asList("inner.jar"),
+                new ArrayList<String>(results.get(3).getContents()));
+    }
+
+    public void testUnreadableNestedArchiveIsResource() throws Exception {
+        final List<Directory> results = new ArrayList<Directory>(
+                subject.setNestingDepth(1).withBase(
+                        zip("sample.zip", new Object[] {"broken.jar", "not a zip"}).toString()));
+        assertEquals(Arrays.asList("."), names(results));
+        assertEquals(Arrays.asList("broken.jar"),
+                new ArrayList<String>(results.get(0).getContents()));
+    }
+
+    public void testTruncatedNestedArchiveIsResource() throws Exception {
+        final byte[] inner = zipped("META-INF/MANIFEST.MF", "Manifest-Version: 1.0",
+                "org/example/Big.class", new byte[4096],
+                "org/example/Other.class", "");
+        final byte[] truncated = Arrays.copyOf(inner, inner.length / 2);
+        subject.setNestingDepth(1).setBufferLimit(0);
+        for (final Path archive: Arrays.asList(
+                zip("sample.zip", new Object[] {"truncated.jar", truncated}),
+                tar("sample.tar", false, new Object[] {"truncated.jar", truncated}))) {
+            final List<Directory> results = new ArrayList<Directory>(
+                    subject.withBase(archive.toString()));
+            assertEquals(Arrays.asList("."), names(results));
+            assertEquals(Arrays.asList("truncated.jar"),
+                    new ArrayList<String>(results.get(0).getContents()));
+        }
+    }
+
+    public void testExcludedDirectoriesArePruned() throws Exception {
+        final List<Directory> results = new ArrayList<Directory>(subject
+                .setFilter(new ScanFilter(Collections.<String>emptyList(),
+                        Arrays.asList("docs/apidocs/**", "**/*.html")))
+                .withBase(zip("sample.zip", "README", "index.html",
+                        "docs/guide.txt", "docs/apidocs/index.html",
+                        "docs/apidocs/a/b.html").toString()));
+        assertEquals(Arrays.asList(".", "docs"), names(results));
+        assertEquals(Arrays.asList("README"),
+                new ArrayList<String>(results.get(0).getContents()));
+        assertEquals(Arrays.asList("guide.txt"),
+                new ArrayList<String>(results.get(1).getContents()));
+    }
+
+    public void testExcludedNestedArchivesAreNotDescended() throws Exception {
+        assertEquals(Arrays.asList("."), names(subject.setNestingDepth(1)
+                .setFilter(new ScanFilter(Collections.<String>emptyList(),
+                        Arrays.asList("*.war")))
+                .withBase(zip("sample.zip", webapp()).toString())));
+    }
+
+    public void testIsArchive() throws Exception {
+        assertTrue(FromArchive.isArchive(zip("sample.ZIP", ENTRIES).toString()));
+        assertFalse(FromArchive.isArchive(base.resolve("missing.zip").toString()));
+        assertFalse(FromArchive.isArchive(base.toString()));
+    }
+
+    public void testUnknownFormat() throws Exception {
+        try {
+            subject.withBase(Files.createFile(base.resolve("sample.txt")).toString());
+            fail("Expected unknown format to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private void checkEntries(final Path archive) throws IOException {
+        final List<Directory> results = new ArrayList<Directory>(
+                subject.withBase(archive.toString()));
+        assertEquals(Arrays.asList(".", "empty", "lib", "lib/ext"), names(results));
+        assertEquals(Arrays.asList("README"),
+                new ArrayList<String>(results.get(0).getContents()));
+        assertTrue(results.get(1).getContents().isEmpty());
+        assertEquals(Arrays.asList("commons-io.jar"),
+                new ArrayList<String>(results.get(2).getContents()));
+        assertEquals(Arrays.asList("jdom.jar"),
+                new ArrayList<String>(results.get(3).getContents()));
+    }
+
+    private void checkNested(final Path archive) throws IOException {
+        final List<Directory> results = new ArrayList<Directory>(
+                subject.setNestingDepth(2).withBase(archive.toString()));
+        assertEquals(Arrays.asList(".", "app.war!", "app.war!/WEB-INF",
+                "app.war!/WEB-INF/lib", "app.war!/WEB-INF/lib/inner.jar!",
+                "app.war!/WEB-INF/lib/inner.jar!/META-INF"), names(results));
+        assertEquals(Arrays.asList("app.war"),
+                new ArrayList<String>(results.get(0).getContents()));
+        assertEquals(Arrays.asList("index.html"),
+                new ArrayList<String>(results.get(1).getContents()));
+        assertEquals(Arrays.asList("inner.jar"),
+                new ArrayList<String>(results.get(3).getContents()));
+        assertEquals(Arrays.asList("MANIFEST.MF"),
+                new ArrayList<String>(results.get(5).getContents()));
+    }
+
+    /**
+     * Entries, alternating name then content, for a tarball
+     * containing a web application which contains a jar.
+     */
+    private Object[] webapp() throws IOException {
+        return new Object[] {"app.war", zipped(
+                "index.html", "<html/>",
+                "WEB-INF/lib/inner.jar", zipped("META-INF/MANIFEST.MF", "Manifest-Version: 1.0"))};
+    }
+
+    private byte[] zipped(final Object... entries) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        writeZip(result, entries);
+        return result.toByteArray();
+    }
+
+    private Path zip(final String name, final String... entries) throws IOException {
+        final Object[] contents = new Object[entries.length * 2];
+        for (int i = 0; i < entries.length; i++) {
+            contents[i * 2] = entries[i];
+        }
+        return zip(name, contents);
+    }
+
+    private Path zip(final String name, final Object... entries) throws IOException {
+        final Path result = base.resolve(name);
+        writeZip(Files.newOutputStream(result), entries);
+        return result;
+    }
+
+    private void writeZip(final OutputStream file, final Object... entries) throws IOException {
+        final ZipOutputStream out = new ZipOutputStream(file);
+        try {
+            for (int i = 0; i < entries.length; i += 2) {
+                out.putNextEntry(new ZipEntry((String) entries[i]));
+                out.write(bytes(entries[i + 1]));
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private Path tar(final String name, final boolean gzip, final String... entries)
+            throws IOException {
+        final Object[] contents = new Object[entries.length * 2];
+        for (int i = 0; i < entries.length; i++) {
+            contents[i * 2] = entries[i];
+        }
+        return tar(name, gzip, contents);
+    }
+
+    private Path tar(final String name, final boolean gzip, final Object... entries)
+            throws IOException {
+        final Path result = base.resolve(name);
+        OutputStream file = Files.newOutputStream(result);
+        if (gzip) {
+            file = new GZIPOutputStream(file);
+        }
+        final TarArchiveOutputStream out = new TarArchiveOutputStream(file);
+        try {
+            for (int i = 0; i < entries.length; i += 2) {
+                final byte[] content = bytes(entries[i + 1]);
+                final TarArchiveEntry entry = new TarArchiveEntry((String) entries[i]);
+                entry.setSize(content.length);
+                out.putArchiveEntry(entry);
+                out.write(content);
+                out.closeArchiveEntry();
+            }
+        } finally {
+            out.close();
+        }
+        return result;
+    }
+
+    private byte[] bytes(final Object content) {
+        if (content == null) {
+            return new byte[0];
+        } else if (content instanceof byte[]) {
+            return (byte[]) content;
+        }
+        return ((String) content).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private List<String> names(final Collection<Directory> directories) {
+        final List<String> results = new ArrayList<String>();
+        for (final Directory directory: directories) {
+            results.add(directory.getName());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,353 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+public class TestFromFileSystem extends TestCase {
+
+    private Path base;
+    private FromFileSystem subject;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        base = Files.createTempDirectory("whisker-scan");
+        subject = new FromFileSystem();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(base.toFile());
+        super.tearDown();
+    }
+
+    public void testEmptyBase() throws Exception {
+        final Collection<Directory> results = subject.withBase(base.toString());
+        assertEquals(names("."), names(results));
+        assertTrue(results.iterator().next().getContents().isEmpty());
+    }
+
+    public void testResourcesAreCollectedByDirectory() throws Exception {
+        resource("README");
+        resource("lib/commons-lang.jar");
+        resource("lib/commons-io.jar");
+        resource("lib/ext/jdom.jar");
+        directory("empty");
+
+        final List<Directory> results = new ArrayList<Directory>(
+                subject.withBase(base.toString()));
+
+        assertEquals(names(".", "empty", "lib", "lib/ext"), names(results));
+        assertEquals(Arrays.asList("README"),
+                new ArrayList<String>(results.get(0).getContents()));
+        assertTrue(results.get(1).getContents().isEmpty());
+        assertEquals(Arrays.asList("commons-io.jar", "commons-lang.jar"),
+                new ArrayList<String>(results.get(2).getContents()));
+        assertEquals(Arrays.asList("jdom.jar"),
+                new ArrayList<String>(results.get(3).getContents()));
+    }
+
+    public void testMissingBase() throws Exception {
+        try {
+            subject.withBase(base.resolve("missing").toString());
+            fail("Expected missing base to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testBaseMustBeDirectory() throws Exception {
+        try {
+            subject.withBase(resource("README").toString());
+            fail("Expected resource base to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testLazyScanMatchesScan() throws Exception {
+        resource("README");
+        resource("lib/a.jar");
+        resource("lib/ext/b.jar");
+        directory("docs");
+
+        final List<Directory> lazy = new ArrayList<Directory>();
+        for (final Directory directory: subject.lazilyWithBase(base.toString())) {
+            lazy.add(directory);
+        }
+        assertEquals(".", lazy.get(0).getName());
+        final List<Directory> sorted = new ArrayList<Directory>(
+                new TreeSet<Directory>(lazy));
+        final List<Directory> eager = new ArrayList<Directory>(
+                subject.withBase(base.toString()));
+        assertEquals(names(eager), names(sorted));
+        for (int i = 0; i < eager.size(); i++) {
+            assertEquals(eager.get(i).getContents(), sorted.get(i).getContents());
+        }
+    }
+
+    public void testLazyScanMissingBase() throws Exception {
+        try {
+            subject.lazilyWithBase(base.resolve("missing").toString()).iterator();
+            fail("Expected missing base to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testParallelScanMatchesSerialScan() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            resource("lib/" + i + "/a.jar");
+            resource("lib/" + i + "/b.jar");
+            resource("lib/" + i + "/nested/" + i + ".txt");
+            directory("docs/" + i);
+        }
+        final List<Directory> serial = new ArrayList<Directory>(
+                subject.withBase(base.toString()));
+        final List<Directory> parallel = new ArrayList<Directory>(
+                new FromFileSystem().setThreads(4).withBase(base.toString()));
+
+        assertEquals(names(serial), names(parallel));
+        for (int i = 0; i < serial.size(); i++) {
+            assertEquals(serial.get(i).getContents(), parallel.get(i).getContents());
+        }
+    }
+
+    public void testThreadsMustBePositive() throws Exception {
+        try {
+            subject.setThreads(0);
+            fail("Expected zero threads to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testLinksToDirectoriesAreFollowed() throws Exception {
+        resource("lib/a.jar");
+        Files.createSymbolicLink(base.resolve("alias"), base.resolve("lib"));
+
+        final List<Directory> results = new ArrayList<Directory>(
+                subject.withBase(base.toString()));
+
+        assertEquals(names(".", "alias", "lib"), names(results));
+        assertTrue(results.get(0).getContents().isEmpty());
+        assertEquals(results.get(2).getContents(), results.get(1).getContents());
+    }
+
+    public void testLinksAreResourcesWhenNotFollowed() throws Exception {
+        resource("lib/a.jar");
+        Files.createSymbolicLink(base.resolve("alias"), base.resolve("lib"));
+
+        final List<Directory> results = new ArrayList<Directory>(
+                subject.setFollowLinks(false).withBase(base.toString()));
+
+        assertEquals(names(".", "lib"), names(results));
+        assertEquals(Arrays.asList("alias"),
+                new ArrayList<String>(results.get(0).getContents()));
+    }
+
+    public void testDanglingLinksAreResources() throws Exception {
+        Files.createSymbolicLink(base.resolve("dangling"), base.resolve("missing"));
+
+        final Collection<Directory> results = subject.withBase(base.toString());
+
+        assertEquals(names("."), names(results));
+        assertEquals(Arrays.asList("dangling"),
+                new ArrayList<String>(results.iterator().next().getContents()));
+    }
+
+    public void testLinkLoopsTerminate() throws Exception {
+        resource("lib/a.jar");
+        Files.createSymbolicLink(base.resolve("lib/parent"), base);
+        Files.createSymbolicLink(base.resolve("lib/self"), base.resolve("lib"));
+
+        assertEquals(names(".", "lib"),
+                names(subject.withBase(base.toString())));
+        assertEquals(names(".", "lib"),
+                names(new FromFileSystem().setThreads(2).withBase(base.toString())));
+    }
+
+    public void testExcludedDirectoriesArePruned() throws Exception {
+        resource("README");
+        resource("docs/guide.txt");
+        resource("docs/apidocs/index.html");
+        resource("docs/apidocs/org/Example.html");
+        resource("lib/a.jar");
+        resource("lib/a.html");
+
+        final List<Directory> results = new ArrayList<Directory>(subject
+                .setFilter(new ScanFilter(Collections.<String>emptyList(),
+                        Arrays.asList("docs/apidocs/**", "**/*.html")))
+                .withBase(base.toString()));
+
+        assertEquals(names(".", "docs", "lib"), names(results));
+        assertEquals(Arrays.asList("guide.txt"),
+                new ArrayList<String>(results.get(1).getContents()));
+        assertEquals(Arrays.asList("a.jar"),
+                new ArrayList<String>(results.get(2).getContents()));
+    }
+
+    public void testOnlyIncludedResourcesAreReported() throws Exception {
+        resource("README");
+        resource("lib/a.jar");
+        resource("lib/a.txt");
+        resource("lib/ext/b.jar");
+
+        final List<Directory> results = new ArrayList<Directory>(subject
+                .setFilter(new ScanFilter(Arrays.asList("**/*.jar"),
+                        Collections.<String>emptyList()))
+                .withBase(base.toString()));
+
+        assertEquals(names(".", "lib", "lib/ext"), names(results));
+        assertTrue(results.get(0).getContents().isEmpty());
+        assertEquals(Arrays.asList("a.jar"),
+                new ArrayList<String>(results.get(1).getContents()));
+        assertEquals(Arrays.asList("b.jar"),
+                new ArrayList<String>(results.get(2).getContents()));
+    }
+
+    public void testSnapshotIsIgnoredWhenFilterChanges() throws Exception {
+        resource("README");
+        resource("docs/index.html");
+        ageDirectories();
+        subject.setSnapshot(snapshot()).setFilter(new ScanFilter(
+                Collections.<String>emptyList(), Arrays.asList("docs")));
+        assertEquals(names("."), names(subject.withBase(base.toString())));
+
+        subject.setFilter(ScanFilter.ALL);
+        assertEquals(names(".", "docs"), names(subject.withBase(base.toString())));
+    }
+
+    public void testSnapshotReusesUnmodifiedDirectories() throws Exception {
+        resource("lib/a.jar");
+        resource("lib/ext/b.jar");
+        final File snapshot = snapshot();
+        ageDirectories();
+        subject.setSnapshot(snapshot).withBase(base.toString());
+        assertTrue(snapshot.isFile());
+
+        // added without modifying the directory, so invisible to the snapshot
+        final FileTime modified = Files.getLastModifiedTime(base.resolve("lib"));
+        resource("lib/unseen.jar");
+        Files.setLastModifiedTime(base.resolve("lib"), modified);
+        resource("lib/ext/c.jar");
+
+        final List<Directory> results = new ArrayList<Directory>(
+                subject.withBase(base.toString()));
+        assertEquals(names(".", "lib", "lib/ext"), names(results));
+        assertEquals(Arrays.asList("a.jar"),
+                new ArrayList<String>(results.get(1).getContents()));
+        assertEquals(Arrays.asList("b.jar", "c.jar"),
+                new ArrayList<String>(results.get(2).getContents()));
+    }
+
+    public void testSnapshotDetectsModifiedDirectories() throws Exception {
+        resource("lib/a.jar");
+        resource("lib/ext/b.jar");
+        subject.setSnapshot(snapshot());
+        ageDirectories();
+        subject.withBase(base.toString());
+
+        resource("lib/new.jar");
+        directory("lib/ext/new");
+        Files.delete(base.resolve("lib/ext/b.jar"));
+
+        final List<Directory> incremental = new ArrayList<Directory>(
+                subject.setThreads(2).withBase(base.toString()));
+        final List<Directory> complete = new ArrayList<Directory>(
+                new FromFileSystem().withBase(base.toString()));
+        assertEquals(names(complete), names(incremental));
+        for (int i = 0; i < complete.size(); i++) {
+            assertEquals(complete.get(i).getContents(), incremental.get(i).getContents());
+        }
+    }
+
+    public void testCorruptSnapshotIsIgnored() throws Exception {
+        resource("lib/a.jar");
+        final File snapshot = snapshot();
+        Files.write(snapshot.toPath(), new byte[] {1, 2, 3});
+
+        final List<Directory> results = new ArrayList<Directory>(
+                subject.setSnapshot(snapshot).withBase(base.toString()));
+        assertEquals(names(".", "lib"), names(results));
+        assertEquals(Arrays.asList("a.jar"),
+                new ArrayList<String>(results.get(1).getContents()));
+    }
+
+    private File snapshot() throws IOException {
+        final File result = File.createTempFile("whisker-snapshot", ".bin");
+        result.deleteOnExit();
+        return result;
+    }
+
+    /**
+     * Backdates every directory, as if created well before the scan.
+     */
+    private void ageDirectories() throws IOException {
+        final FileTime past = FileTime.fromMillis(System.currentTimeMillis() - 60000);
+        for (final Directory directory: new FromFileSystem().withBase(base.toString())) {
+            Files.setLastModifiedTime(base.resolve(directory.getName()), past);
+        }
+    }
+
+    private Path resource(final String name) throws IOException {
+        final Path result = base.resolve(name);
+        Files.createDirectories(result.getParent());
+        return Files.createFile(result);
+    }
+
+    private Path directory(final String name) throws IOException {
+        return Files.createDirectories(base.resolve(name));
+    }
+
+    private List<String> names(final String... names) {
+        return Arrays.asList(names);
+    }
+
+    private List<String> names(final Collection<Directory> directories) {
+        final List<String> results = new ArrayList<String>();
+        for (final Directory directory: directories) {
+            results.add(directory.getName());
+        }
+        return results;
+    }
+
+    private void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null && !Files.isSymbolicLink(file.toPath())) {
+            for (final File child: children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+public class TestFrontCodedStringSet extends TestCase {
+
+    public void testEmpty() throws Exception {
+        final Set<String> subject = FrontCodedStringSet.of(Collections.<String>emptyList());
+        assertTrue(subject.isEmpty());
+        assertFalse(subject.contains(""));
+        assertFalse(subject.iterator().hasNext());
+    }
+
+    public void testIteratesInNaturalOrderWithoutDuplicates() throws Exception {
+        final Set<String> subject = FrontCodedStringSet.of(Arrays.asList(
+                "commons-lang.jar", "README", "commons-io.jar", "commons-io.jar", ""));
+        assertEquals(Arrays.asList("", "README", "commons-io.jar", "commons-lang.jar"),
+                new ArrayList<String>(subject));
+        assertEquals(4, subject.size());
+    }
+
+    public void testMatchesSortedSet() throws Exception {
+        final List<String> names = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            names.add("commons-" + Integer.toString(i * 7919 % 1000, 36) + ".jar");
+            names.add("org.apache." + i);
+        }
+        names.add("\u00e9l\u00e8ve-\ud83d\ude00.txt");
+        names.add("\uffff");
+        final Set<String> expected = new TreeSet<String>(names);
+        final Set<String> subject = FrontCodedStringSet.of(names);
+
+        assertEquals(new ArrayList<String>(expected), new ArrayList<String>(subject));
+        assertEquals(expected, subject);
+        assertEquals(expected.hashCode(), subject.hashCode());
+        for (final String name: expected) {
+            assertTrue(name, subject.contains(name));
+        }
+    }
+
+    public void testDoesNotContainOthers() throws Exception {
+        final Set<String> subject = FrontCodedStringSet.of(
+                Arrays.asList("b", "bb", "bbb", "d"));
+        assertFalse(subject.contains("a"));
+        assertFalse(subject.contains("bbbb"));
+        assertFalse(subject.contains("c"));
+        assertFalse(subject.contains("e"));
+        assertFalse(subject.contains(null));
+        assertFalse(subject.contains(Integer.valueOf(1)));
+    }
+
+    public void testImmutable() throws Exception {
+        try {
+            FrontCodedStringSet.of(Arrays.asList("a")).add("b");
+            fail("Expected set to be immutable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    public void testDirectoryCompactsResourcesAdded() throws Exception {
+        final Directory directory = new Directory().setName("lib");
+        directory.addResource("b.jar");
+        directory.addResource("a.jar");
+        assertEquals(Arrays.asList("a.jar", "b.jar"),
+                new ArrayList<String>(directory.getContents()));
+        directory.addResource("c.jar");
+        assertEquals(Arrays.asList("a.jar", "b.jar", "c.jar"),
+                new ArrayList<String>(directory.getContents()));
+    }
+}
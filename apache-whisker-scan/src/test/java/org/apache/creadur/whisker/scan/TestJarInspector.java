@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import junit.framework.TestCase;
+
+public class TestJarInspector extends TestCase {
+
+    private Path base;
+    private JarInspector subject;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        base = Files.createTempDirectory("whisker-jars");
+        subject = new JarInspector().setThreads(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(base.toFile());
+        super.tearDown();
+    }
+
+    public void testReadsManifestAndMavenMetadata() throws Exception {
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Bundle-License", "Apache-2.0");
+        manifest.getMainAttributes().putValue("Implementation-Vendor", "Example Inc.");
+        jar("lib/example.jar", manifest,
+                "META-INF/maven/org.example/example/pom.properties",
+                "groupId=org.example\nartifactId=example\nversion=1.2\n",
+                "META-INF/LICENSE.txt", "Licensed...",
+                "META-INF/NOTICE", "Example");
+
+        final JarMetadata result = JarInspector.inspect(base.resolve("lib/example.jar"));
+
+        assertEquals("Apache-2.0", result.getBundleLicense());
+        assertEquals("Example Inc.", result.getOrganisation());
+        assertEquals("org.example:example:1.2", result.getCoordinates());
+        assertTrue(result.hasLicense());
+        assertTrue(result.hasNotice());
+    }
+
+    public void testBundleVendorIsPreferred() throws Exception {
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Bundle-Vendor", "Bundler");
+        manifest.getMainAttributes().putValue("Implementation-Vendor", "Implementer");
+        jar("plain.jar", manifest);
+
+        final JarMetadata result = JarInspector.inspect(base.resolve("plain.jar"));
+
+        assertEquals("Bundler", result.getOrganisation());
+        assertNull(result.getBundleLicense());
+        assertNull(result.getCoordinates());
+        assertFalse(result.hasLicense());
+        assertFalse(result.hasNotice());
+    }
+
+    public void testOnlyJarsAreInspected() throws Exception {
+        jar("lib/a.jar", null, "META-INF/NOTICE", "A");
+        resource("lib/a.txt", "not a jar");
+        resource("lib/broken.jar", "not a zip");
+
+        final List<Directory> results = new ArrayList<Directory>(
+                subject.inspect(base.toString(),
+                        new FromFileSystem().withBase(base.toString())));
+
+        final Directory lib = results.get(1);
+        assertEquals(1, lib.getJarMetadata().size());
+        assertTrue(lib.getJarMetadata("a.jar").hasNotice());
+        assertNull(lib.getJarMetadata("broken.jar"));
+        assertTrue(results.get(0).getJarMetadata().isEmpty());
+    }
+
+    private void jar(final String name, final Manifest manifest,
+            final String... entries) throws Exception {
+        final Path path = base.resolve(name);
+        Files.createDirectories(path.getParent());
+        final OutputStream out = Files.newOutputStream(path);
+        final JarOutputStream jar = manifest == null
+                ? new JarOutputStream(out) : new JarOutputStream(out, manifest);
+        try {
+            for (int i = 0; i < entries.length; i += 2) {
+                jar.putNextEntry(new ZipEntry(entries[i]));
+                jar.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+                jar.closeEntry();
+            }
+        } finally {
+            jar.close();
+        }
+    }
+
+    private void resource(final String name, final String content) throws Exception {
+        final Path result = base.resolve(name);
+        Files.createDirectories(result.getParent());
+        Files.write(result, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void delete(final File file) {
+        if (file.isDirectory()) {
+            for (final File child: file.listFiles()) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
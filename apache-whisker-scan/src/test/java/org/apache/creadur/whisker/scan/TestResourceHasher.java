@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class TestResourceHasher extends TestCase {
+
+    private static final String ABC_SHA256 =
+            "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+    private static final String ABC_SHA1 =
+            "a9993e364706816aba3e25717850c26c9cd0d89d";
+
+    private Path base;
+    private ResourceHasher subject;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        base = Files.createTempDirectory("whisker-hash");
+        subject = new ResourceHasher().setThreads(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(base.toFile());
+        super.tearDown();
+    }
+
+    public void testHashesEveryResource() throws Exception {
+        resource("README", "abc".getBytes(StandardCharsets.US_ASCII));
+        resource("lib/a.jar", "abc".getBytes(StandardCharsets.US_ASCII));
+        resource("lib/empty.jar", new byte[0]);
+
+        final List<Directory> results = new ArrayList<Directory>(
+                subject.hash(base.toString(),
+                        new FromFileSystem().withBase(base.toString())));
+
+        assertEquals(new ResourceHashes(ABC_SHA256, ABC_SHA1),
+                results.get(0).getHashes("README"));
+        assertEquals(ABC_SHA256, results.get(1).getHashes("a.jar").getSha256());
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+                results.get(1).getHashes("empty.jar").getSha256());
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709",
+                results.get(1).getHashes("empty.jar").getSha1());
+    }
+
+    public void testLargeResourcesAreMapped() throws Exception {
+        final byte[] content = new byte[3 * 1024 * 1024 + 17];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        final ResourceHashes hashes = ResourceHasher.hash(resource("big.jar", content));
+        assertEquals(hex(MessageDigest.getInstance("SHA-256").digest(content)),
+                hashes.getSha256());
+        assertEquals(hex(MessageDigest.getInstance("SHA-1").digest(content)),
+                hashes.getSha1());
+    }
+
+    public void testDuplicatesAreFoundByContent() throws Exception {
+        resource("lib/a.jar", "abc".getBytes(StandardCharsets.US_ASCII));
+        resource("lib/ext/renamed.jar", "abc".getBytes(StandardCharsets.US_ASCII));
+        resource("lib/b.jar", "other".getBytes(StandardCharsets.US_ASCII));
+
+        final Map<String, Collection<String>> results = ResourceHasher.duplicates(
+                subject.hash(base.toString(), new FromFileSystem().withBase(base.toString())));
+
+        assertEquals(1, results.size());
+        assertEquals(Arrays.asList("lib/a.jar", "lib/ext/renamed.jar"),
+                new ArrayList<String>(results.get(ABC_SHA256)));
+    }
+
+    public void testDanglingLinksAreNotHashed() throws Exception {
+        Files.createSymbolicLink(base.resolve("dangling"), base.resolve("missing"));
+
+        final Directory result = subject.hash(base.toString(),
+                new FromFileSystem().withBase(base.toString())).iterator().next();
+
+        assertEquals(Arrays.asList("dangling"), new ArrayList<String>(result.getContents()));
+        assertTrue(result.getHashes().isEmpty());
+    }
+
+    private String hex(final byte[] bytes) {
+        final StringBuilder result = new StringBuilder();
+        for (final byte b: bytes) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    private Path resource(final String name, final byte[] content) throws Exception {
+        final Path result = base.resolve(name);
+        Files.createDirectories(result.getParent());
+        return Files.write(result, content);
+    }
+
+    private void delete(final File file) {
+        if (file.isDirectory() && !Files.isSymbolicLink(file.toPath())) {
+            for (final File child: file.listFiles()) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
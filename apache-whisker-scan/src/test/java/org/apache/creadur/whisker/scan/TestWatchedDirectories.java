@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.scan;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class TestWatchedDirectories extends TestCase {
+
+    private Path base;
+    private WatchedDirectories subject;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        base = Files.createTempDirectory("whisker-watch");
+        Files.createDirectories(base.resolve("lib"));
+        Files.createFile(base.resolve("lib/a.jar"));
+        Files.createDirectories(base.resolve("docs/apidocs"));
+        subject = new WatchedDirectories(base.toString(), new ScanFilter(
+                Collections.<String>emptyList(), Arrays.asList("docs/apidocs/**")));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        subject.close();
+        delete(base.toFile());
+        super.tearDown();
+    }
+
+    public void testInitiallyScanned() throws Exception {
+        assertEquals(Arrays.asList(".", "docs", "lib"), names(subject.getDirectories()));
+        assertEquals(Arrays.asList("a.jar"),
+                new ArrayList<String>(subject.getDirectory("lib").getContents()));
+    }
+
+    public void testResourcesAdded() throws Exception {
+        Files.createFile(base.resolve("lib/b.jar"));
+        assertTrue(changes().contains("lib"));
+        assertEquals(Arrays.asList("a.jar", "b.jar"),
+                new ArrayList<String>(subject.getDirectory("lib").getContents()));
+    }
+
+    public void testResourcesRenamed() throws Exception {
+        Files.move(base.resolve("lib/a.jar"), base.resolve("lib/c.jar"));
+        assertTrue(changes().contains("lib"));
+        assertEquals(Arrays.asList("c.jar"),
+                new ArrayList<String>(subject.getDirectory("lib").getContents()));
+    }
+
+    public void testDirectoriesAddedThenRemoved() throws Exception {
+        Files.createDirectories(base.resolve("lib/ext"));
+        Files.createFile(base.resolve("lib/ext/d.jar"));
+        assertTrue(changes().contains("lib/ext"));
+        assertEquals(Arrays.asList("d.jar"),
+                new ArrayList<String>(subject.getDirectory("lib/ext").getContents()));
+
+        delete(base.resolve("lib").toFile());
+        final Collection<String> changed = changes();
+        assertTrue(changed.containsAll(Arrays.asList("lib", "lib/ext")));
+        assertEquals(Arrays.asList(".", "docs"), names(subject.getDirectories()));
+        assertNull(subject.getDirectory("lib/ext"));
+    }
+
+    public void testExcludedDirectoriesAreNotWatched() throws Exception {
+        Files.createFile(base.resolve("docs/apidocs/index.html"));
+        Files.createFile(base.resolve("docs/guide.txt"));
+        final Collection<String> changed = changes();
+        assertEquals(Arrays.asList("docs"), new ArrayList<String>(changed));
+        assertNull(subject.getDirectory("docs/apidocs"));
+    }
+
+    /**
+     * Collects changes until things settle down.
+     */
+    private Collection<String> changes() throws Exception {
+        final Collection<String> results = new TreeSet<String>(
+                subject.poll(10, TimeUnit.SECONDS));
+        Collection<String> next = subject.poll(200, TimeUnit.MILLISECONDS);
+        while (!next.isEmpty()) {
+            results.addAll(next);
+            next = subject.poll(200, TimeUnit.MILLISECONDS);
+        }
+        return results;
+    }
+
+    private List<String> names(final Collection<Directory> directories) {
+        final List<String> results = new ArrayList<String>();
+        for (final Directory directory: directories) {
+            results.add(directory.getName());
+        }
+        return results;
+    }
+
+    private void delete(final File file) {
+        if (file.isDirectory() && !Files.isSymbolicLink(file.toPath())) {
+            for (final File child: file.listFiles()) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -45,11 +45,7 @@ public enum Product {
      * Produces a missing license report.
      */
     MISSING_LICENSE_REPORT_TEMPLATE(
-            "MISSING-LICENSE", Result.MISSING_LICENSE_REPORT),
-    /**
-     * Produces an xml template.
-     */
-    XML_TEMPLATE("XML-TEMPLATE", Result.XML_TEMPLATE);
+            "MISSING-LICENSE", Result.MISSING_LICENSE_REPORT);
 
     /** Not null. */
     private final String template;
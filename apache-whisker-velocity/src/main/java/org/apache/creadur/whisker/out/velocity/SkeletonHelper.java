@@ -0,0 +1,218 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.out.velocity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.creadur.whisker.scan.Directory;
+import org.apache.creadur.whisker.scan.JarMetadata;
+
+/**
+ * Factors out skeleton logic from the writer,
+ * pre-filling licenses and organisations from
+ * the metadata embedded within jars.
+ */
+public class SkeletonHelper {
+
+    /** Identifies the placeholder license. */
+    public static final String UNKNOWN_LICENSE = "Bogus";
+    /** Identifies the placeholder organisation. */
+    public static final String UNKNOWN_ORGANISATION = "bogus.org";
+
+    /** Names of licenses hinted, indexed by id. */
+    private final Map<String, String> licenses = new TreeMap<String, String>();
+    /** Names of organisations hinted, indexed by id. */
+    private final Map<String, String> organisations =
+            new TreeMap<String, String>();
+
+    /**
+     * Constructs a helper for the given directories.
+     * @param directories not null
+     */
+    public SkeletonHelper(final Collection<Directory> directories) {
+        super();
+        for (final Directory directory: directories) {
+            for (final JarMetadata jar: directory.getJarMetadata().values()) {
+                hint(licenses, jar.getBundleLicense());
+                hint(organisations, jar.getOrganisation());
+            }
+        }
+    }
+
+    /**
+     * Records a hinted name by id, unless already recorded
+     * or identified as a placeholder.
+     * @param names not null
+     * @param name possibly null
+     */
+    private static void hint(final Map<String, String> names,
+            final String name) {
+        if (name != null && !name.trim().isEmpty()
+                && !names.containsKey(id(name))
+                && !UNKNOWN_ORGANISATION.equals(id(name))) {
+            names.put(id(name), name.trim());
+        }
+    }
+
+    /**
+     * Gets the licenses hinted.
+     * @return names, indexed by id, not null
+     */
+    public Map<String, String> getLicenses() {
+        return Collections.unmodifiableMap(licenses);
+    }
+
+    /**
+     * Gets the organisations hinted.
+     * @return names, indexed by id, not null
+     */
+    public Map<String, String> getOrganisations() {
+        return Collections.unmodifiableMap(organisations);
+    }
+
+    /**
+     * Groups the resources within a directory by
+     * the license then organisation hinted.
+     * Resources without hints are grouped under the placeholders.
+     * @param directory not null
+     * @return resource names, indexed by organisation id,
+     * indexed by license id, not null
+     */
+    public Map<String, Map<String, List<String>>> groups(
+            final Directory directory) {
+        final Map<String, Map<String, List<String>>> results =
+                new TreeMap<String, Map<String, List<String>>>();
+        for (final String resource: directory.getContents()) {
+            final JarMetadata jar = directory.getJarMetadata(resource);
+            String license = UNKNOWN_LICENSE;
+            String organisation = UNKNOWN_ORGANISATION;
+            if (jar != null) {
+                license = idOr(jar.getBundleLicense(), license);
+                organisation = idOr(jar.getOrganisation(), organisation);
+            }
+            group(results, license, organisation).add(resource);
+        }
+        if (results.isEmpty()) {
+            group(results, UNKNOWN_LICENSE, UNKNOWN_ORGANISATION);
+        }
+        return results;
+    }
+
+    /**
+     * Gets a group, creating when missing.
+     * @param groups not null
+     * @param license not null
+     * @param organisation not null
+     * @return not null
+     */
+    private static List<String> group(
+            final Map<String, Map<String, List<String>>> groups,
+            final String license, final String organisation) {
+        Map<String, List<String>> byOrganisation = groups.get(license);
+        if (byOrganisation == null) {
+            byOrganisation = new TreeMap<String, List<String>>();
+            groups.put(license, byOrganisation);
+        }
+        List<String> resources = byOrganisation.get(organisation);
+        if (resources == null) {
+            resources = new ArrayList<String>();
+            byOrganisation.put(organisation, resources);
+        }
+        return resources;
+    }
+
+    /**
+     * Describes the metadata embedded within a jar,
+     * for a comment alongside the resource.
+     * Dashes are spaced, so the hints neither contain
+     * <code>--</code> nor end with <code>-</code>.
+     * @param directory not null
+     * @param resource names a resource within the directory, not null
+     * @return empty when nothing is known, not null
+     */
+    public String hints(final Directory directory, final String resource) {
+        final JarMetadata jar = directory.getJarMetadata(resource);
+        if (jar == null) {
+            return "";
+        }
+        final List<String> hints = new ArrayList<String>();
+        if (jar.getCoordinates() != null) {
+            hints.add("Maven " + jar.getCoordinates());
+        }
+        if (jar.getBundleLicense() != null) {
+            hints.add("Bundle-License " + jar.getBundleLicense());
+        }
+        if (jar.getOrganisation() != null) {
+            hints.add("Vendor " + jar.getOrganisation());
+        }
+        if (jar.hasLicense()) {
+            hints.add("ships META-INF/LICENSE");
+        }
+        if (jar.hasNotice()) {
+            hints.add("ships META-INF/NOTICE");
+        }
+        final StringBuilder result = new StringBuilder();
+        for (final String hint: hints) {
+            if (result.length() > 0) {
+                result.append("; ");
+            }
+            result.append(hint);
+        }
+        final String hinted = result.toString().replaceAll("-(?=-)", "- ");
+        if (hinted.endsWith("-")) {
+            return hinted + " ";
+        }
+        return hinted;
+    }
+
+    /**
+     * Derives an id from a hinted name.
+     * @param name possibly null
+     * @param otherwise used when name is null or blank, not null
+     * @return not null
+     */
+    private static String idOr(final String name, final String otherwise) {
+        if (name == null || name.trim().isEmpty()) {
+            return otherwise;
+        }
+        return id(name);
+    }
+
+    /**
+     * Derives an XML id from a name.
+     * @param name not null
+     * @return lower case letters, digits, dots and dashes,
+     * starting with a letter, not null
+     */
+    static String id(final String name) {
+        final String result = name.trim().toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z0-9.]+", "-")
+                .replaceAll("^-+|-+$", "");
+        if (result.isEmpty() || !Character.isLetter(result.charAt(0))) {
+            return "id-" + result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.out.velocity;
+
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.creadur.whisker.model.License;
+import org.apache.creadur.whisker.model.Organisation;
+import org.apache.creadur.whisker.model.Resource;
+import org.apache.creadur.whisker.scan.Directory;
+import org.apache.creadur.whisker.scan.ResourceHashes;
+import org.apache.creadur.whisker.toxml.DescriptorWriter;
+
+/**
+ * Writes skeleton meta-data straight to xml, one directory at a time.
+ * <p>
+ * No model of the whole skeleton is built: each directory is
+ * written as soon as it is given. Licenses and organisations
+ * precede directories in a descriptor, so the hints they are
+ * pre-filled from are gathered beforehand by a {@link SkeletonHelper}.
+ * </p>
+ */
+public class SkeletonWriter {
+
+    /** Names the placeholder license. */
+    private static final String UNKNOWN_LICENSE_NAME = "TODO: LICENSE";
+    /** Text of the placeholder license. */
+    private static final String UNKNOWN_LICENSE_TEXT =
+            "\nTODO: REPLACE WITH PROPER LICENSE!\n";
+    /** Text of licenses hinted by jar metadata. */
+    private static final String HINTED_LICENSE_TEXT =
+            "\nTODO: REPLACE WITH LICENSE NAMED BY JAR METADATA!\n";
+    /** Names the placeholder organisation. */
+    private static final String UNKNOWN_ORGANISATION_NAME =
+            "Replace This With Correct Orgs";
+    /** Locates the placeholder organisation. */
+    private static final String UNKNOWN_ORGANISATION_URL =
+            "https://bogus.example.org/";
+
+    /** Writes xml. */
+    private final DescriptorWriter out;
+    /** Supplies hints. */
+    private final SkeletonHelper helper;
+
+    /**
+     * Constructs a writer.
+     * @param writer not null
+     * @param helper supplies hints, not null
+     * @throws XMLStreamException when xml cannot be written
+     */
+    public SkeletonWriter(final Writer writer, final SkeletonHelper helper)
+            throws XMLStreamException {
+        super();
+        this.out = new DescriptorWriter(writer);
+        this.helper = helper;
+    }
+
+    /**
+     * Writes a skeleton for the given directories.
+     * @param directories not null
+     * @param writer not null
+     * @throws XMLStreamException when xml cannot be written
+     */
+    public static void write(final Collection<Directory> directories,
+            final Writer writer) throws XMLStreamException {
+        final SkeletonWriter skeleton =
+                new SkeletonWriter(writer, new SkeletonHelper(directories))
+                    .start();
+        for (final Directory directory: directories) {
+            skeleton.directory(directory);
+        }
+        skeleton.end();
+    }
+
+    /**
+     * Starts the skeleton, writing placeholders together with
+     * the licenses and organisations hinted.
+     * @return this, not null
+     * @throws XMLStreamException when xml cannot be written
+     */
+    public SkeletonWriter start() throws XMLStreamException {
+        out.startManifest().startLicenses().license(new License(false,
+                UNKNOWN_LICENSE_TEXT, Collections.<String>emptySet(),
+                SkeletonHelper.UNKNOWN_LICENSE, null, UNKNOWN_LICENSE_NAME));
+        for (final Map.Entry<String, String> license:
+                helper.getLicenses().entrySet()) {
+            out.license(new License(false, HINTED_LICENSE_TEXT,
+                    Collections.<String>emptySet(), license.getKey(), null,
+                    license.getValue()));
+        }
+        out.end().startNotices().end().startOrganisations().organisation(
+                new Organisation(SkeletonHelper.UNKNOWN_ORGANISATION,
+                        UNKNOWN_ORGANISATION_NAME, UNKNOWN_ORGANISATION_URL));
+        for (final Map.Entry<String, String> organisation:
+                helper.getOrganisations().entrySet()) {
+            out.organisation(new Organisation(organisation.getKey(),
+                    organisation.getValue(), null));
+        }
+        out.end().primaryLicense(SkeletonHelper.UNKNOWN_LICENSE, null);
+        return this;
+    }
+
+    /**
+     * Writes a directory, grouping resources by the license
+     * and organisation hinted, with a comment describing
+     * whatever is known about each.
+     * @param directory not null
+     * @return this, not null
+     * @throws XMLStreamException when xml cannot be written
+     */
+    public SkeletonWriter directory(final Directory directory)
+            throws XMLStreamException {
+        out.startWithin(directory.getName());
+        for (final Map.Entry<String, Map<String, List<String>>> license:
+                helper.groups(directory).entrySet()) {
+            out.startWithLicense(license.getKey(), null,
+                    Collections.<String, String>emptyMap());
+            for (final Map.Entry<String, List<String>> organisation:
+                    license.getValue().entrySet()) {
+                out.startByOrganisation(organisation.getKey());
+                for (final String resource: organisation.getValue()) {
+                    final String hints = helper.hints(directory, resource);
+                    if (!hints.isEmpty()) {
+                        out.comment(hints);
+                    }
+                    final ResourceHashes hashes = directory.getHashes(resource);
+                    out.resource(new Resource(resource, null, null),
+                            hashes == null ? null : hashes.getSha1());
+                }
+                out.end();
+            }
+            out.end();
+        }
+        out.end();
+        return this;
+    }
+
+    /**
+     * Ends the skeleton, flushing everything written.
+     * @throws XMLStreamException when xml cannot be written
+     */
+    public void end() throws XMLStreamException {
+        out.endManifest();
+    }
+}
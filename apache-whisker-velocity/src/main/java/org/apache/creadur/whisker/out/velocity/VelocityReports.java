@@ -25,6 +25,7 @@ import java.util.List;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.creadur.whisker.app.Configuration;
+import org.apache.creadur.whisker.app.Result;
 import org.apache.creadur.whisker.app.ResultWriterFactory;
 import org.apache.creadur.whisker.app.analysis.LicenseAnalyst;
 import org.apache.creadur.whisker.model.Descriptor;
@@ -42,9 +43,6 @@ public class VelocityReports {
     /** The logger. */
     private static final Logger LOGGER = LogManager.getLogger();
 
-    /** XML generation template. */
-    private static final Product[] PRODUCTS_THAT_GENERATE_TEMPLATES
-        = {Product.XML_TEMPLATE};
     /** Missing license report. */
     private static final Product[] PRODUCTS_THAT_VALIDATE
         = {Product.MISSING_LICENSE_REPORT_TEMPLATE};
@@ -198,11 +196,18 @@ public class VelocityReports {
 
     /**
      * Generates template.
+     * Streams xml directly, rather than merging a template,
+     * so no context for all directories is built.
      * @param withBase not null
      * @throws Exception when generation fails
      */
     public final void generateTemplate(
             final Collection<Directory> withBase) throws Exception {
-        merge(PRODUCTS_THAT_GENERATE_TEMPLATES, context(withBase));
+        final Writer writer = writerFactory.writerFor(Result.XML_TEMPLATE);
+        try {
+            SkeletonWriter.write(withBase, writer);
+        } finally {
+            IOUtils.closeQuietly(writer);
+        }
     }
 }
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.out.velocity;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.creadur.whisker.scan.Directory;
+import org.apache.creadur.whisker.scan.JarMetadata;
+
+import junit.framework.TestCase;
+
+public class TestSkeletonHelper extends TestCase {
+
+    private Directory directory;
+    private SkeletonHelper subject;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = new Directory().setName("lib");
+        directory.setContents(new HashSet<String>(
+                Arrays.asList("a.jar", "b.jar", "c.jar", "README")));
+        final Map<String, JarMetadata> jars = new HashMap<String, JarMetadata>();
+        jars.put("a.jar", new JarMetadata("Apache-2.0", null, "The Apache Software Foundation",
+                "org.apache", "a", "1.0", true, true));
+        jars.put("b.jar", new JarMetadata("Apache-2.0", "Smith & Sons", null,
+                null, null, null, false, false));
+        jars.put("c.jar", new JarMetadata(null, null, null, null, null, null, false, false));
+        directory.setJarMetadata(jars);
+        subject = new SkeletonHelper(Arrays.asList(directory));
+    }
+
+    public void testLicensesAreHinted() {
+        assertEquals(1, subject.getLicenses().size());
+        assertEquals("Apache-2.0", subject.getLicenses().get("apache-2.0"));
+    }
+
+    public void testOrganisationsAreHinted() {
+        assertEquals("The Apache Software Foundation",
+                subject.getOrganisations().get("the-apache-software-foundation"));
+        assertEquals("Smith & Sons", subject.getOrganisations().get("smith-sons"));
+    }
+
+    public void testResourcesAreGroupedByHints() {
+        final Map<String, Map<String, List<String>>> results = subject.groups(directory);
+        assertEquals(Arrays.asList("README", "c.jar"),
+                results.get(SkeletonHelper.UNKNOWN_LICENSE)
+                    .get(SkeletonHelper.UNKNOWN_ORGANISATION));
+        assertEquals(Arrays.asList("a.jar"),
+                results.get("apache-2.0").get("the-apache-software-foundation"));
+        assertEquals(Arrays.asList("b.jar"),
+                results.get("apache-2.0").get("smith-sons"));
+    }
+
+    public void testEmptyDirectoryIsGroupedUnderPlaceholders() {
+        final Map<String, Map<String, List<String>>> results =
+                subject.groups(new Directory().setName("empty"));
+        assertTrue(results.get(SkeletonHelper.UNKNOWN_LICENSE)
+                .get(SkeletonHelper.UNKNOWN_ORGANISATION).isEmpty());
+    }
+
+    public void testHintsDescribeJar() {
+        assertEquals("Maven org.apache:a:1.0; Bundle-License Apache-2.0; "
+                + "Vendor The Apache Software Foundation; "
+                + "ships META-INF/LICENSE; ships META-INF/NOTICE",
+                subject.hints(directory, "a.jar"));
+        assertEquals("", subject.hints(directory, "README"));
+    }
+
+    public void testHintsNeverCloseComment() {
+        final Directory dashes = new Directory().setName("lib");
+        dashes.setContents(new HashSet<String>(Arrays.asList("d.jar")));
+        dashes.setJarMetadata(Collections.singletonMap("d.jar",
+                new JarMetadata("a---b", null, "Dash-", null, null, null, false, false)));
+        final String hints = new SkeletonHelper(Arrays.asList(dashes)).hints(dashes, "d.jar");
+        assertEquals("Bundle-License a- - -b; Vendor Dash- ", hints);
+        assertFalse(hints, hints.contains("--"));
+        assertFalse(hints, hints.endsWith("-"));
+    }
+
+    public void testIdsStartWithLetter() {
+        assertEquals("id-1st-vendor", SkeletonHelper.id(" 1st Vendor "));
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.creadur.whisker.out.velocity;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.apache.creadur.whisker.fromxml.StaxBuilder;
+import org.apache.creadur.whisker.model.Descriptor;
+import org.apache.creadur.whisker.scan.Directory;
+import org.apache.creadur.whisker.scan.JarMetadata;
+import org.apache.creadur.whisker.scan.ResourceHashes;
+
+import junit.framework.TestCase;
+
+public class TestSkeletonWriter extends TestCase {
+
+    private Directory lib;
+    private Directory docs;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        lib = new Directory().setName("lib");
+        lib.setContents(new HashSet<String>(Arrays.asList("a.jar", "b.jar")));
+        final Map<String, JarMetadata> jars = new HashMap<String, JarMetadata>();
+        jars.put("a.jar", new JarMetadata("Apache-2.0", null, "The Apache Software Foundation",
+                "org.apache", "a", "1.0", true, true));
+        jars.put("b.jar", new JarMetadata("Apache-2.0", "Smith & Sons", null,
+                null, null, null, false, false));
+        lib.setJarMetadata(jars);
+        final Map<String, ResourceHashes> hashes = new HashMap<String, ResourceHashes>();
+        hashes.put("a.jar", new ResourceHashes("sha256", "0123456789abcdef"));
+        lib.setHashes(hashes);
+        docs = new Directory().setName("docs");
+        docs.setContents(new HashSet<String>(Arrays.asList("READ&ME.txt")));
+    }
+
+    private String skeleton() throws Exception {
+        final StringWriter writer = new StringWriter();
+        SkeletonWriter.write(Arrays.asList(docs, lib), writer);
+        return writer.toString();
+    }
+
+    public void testSkeletonIsWellFormedDescriptor() throws Exception {
+        final Descriptor descriptor = new StaxBuilder().build(
+                new ByteArrayInputStream(skeleton().getBytes("UTF-8")));
+        assertEquals("Bogus", descriptor.getPrimaryLicense().getId());
+        assertEquals("Apache-2.0", descriptor.license("apache-2.0").getName());
+        assertEquals("Smith & Sons",
+                descriptor.getOrganisations().get("smith-sons").getName());
+        assertEquals(2, descriptor.getContents().size());
+    }
+
+    public void testNamesAreEscaped() throws Exception {
+        final String xml = skeleton();
+        assertTrue(xml, xml.contains("READ&amp;ME.txt"));
+        assertTrue(xml, xml.contains("Smith &amp; Sons"));
+    }
+
+    public void testHintsAndHashesAreWritten() throws Exception {
+        final String xml = skeleton();
+        assertTrue(xml, xml.contains("<!-- Maven org.apache:a:1.0"));
+        assertTrue(xml, xml.contains("sha1=\"0123456789abcdef\""));
+    }
+
+    public void testDirectoriesAreWrittenInTheOrderGiven() throws Exception {
+        final String xml = skeleton();
+        assertTrue(xml, xml.indexOf("dir=\"docs\"") < xml.indexOf("dir=\"lib\""));
+    }
+}
@@ -0,0 +1,354 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.fromxml;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.creadur.whisker.model.Descriptor;
+import org.apache.creadur.whisker.model.StringPool;
+
+/**
+ * Caches descriptors built from xml as compact binary snapshots,
+ * keyed by a hash of the xml, so that loading the same descriptor
+ * again skips parsing entirely.
+ * <p>
+ * Snapshots are named by hash, so a cache directory may be shared
+ * by every descriptor loaded, for example by all the modules of
+ * a build. Snapshots record the hash of every descriptor included,
+ * and are rebuilt once any has changed. Imports resolve relative
+ * to the descriptor, so snapshots of descriptors which include
+ * others are named by location as well as hash.
+ * Since the primary notice has the current year substituted,
+ * snapshots taken in another year are rebuilt. Unreadable snapshots
+ * are rebuilt from xml.
+ * </p>
+ * <p>
+ * Snapshots are memory mapped when read. License texts stay in the
+ * mapping until rendered, so descriptors carrying many licenses
+ * cost heap only for those used.
+ * </p>
+ * <p>
+ * Set a {@link StringPool} to share identifiers and other repeated
+ * values between every descriptor loaded, whether read from a
+ * snapshot or built from xml.
+ * </p>
+ */
+public class DescriptorCache {
+
+    /** Suffix naming snapshot files. */
+    private static final String SUFFIX = ".descriptor";
+    /** Size of buffer used to read xml. */
+    private static final int BUFFER_SIZE = 8192;
+    /** Hexadecimal digits. */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** Directory holding snapshots. */
+    private final File directory;
+    /** Interns values read, null for a pool per descriptor. */
+    private StringPool strings;
+
+    /**
+     * Constructs a cache.
+     * @param directory holds snapshots, created when missing, not null
+     */
+    public DescriptorCache(final File directory) {
+        super();
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the directory holding snapshots.
+     * @return not null
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the pool interning values read.
+     * @return null when each descriptor has a pool of its own
+     */
+    public StringPool getStringPool() {
+        return strings;
+    }
+
+    /**
+     * Sets the pool interning values read, shared by every descriptor
+     * loaded.
+     * @param strings null for a pool per descriptor
+     * @return this, not null
+     */
+    public DescriptorCache setStringPool(final StringPool strings) {
+        this.strings = strings;
+        return this;
+    }
+
+    /**
+     * Loads a descriptor, from a snapshot when the same xml
+     * has been loaded before, otherwise by building from xml
+     * then saving a snapshot. A snapshot which cannot be saved
+     * is skipped, since the descriptor has been built.
+     * @param xmlStream not null
+     * @return not null
+     * @throws IOException when the xml cannot be read
+     * @throws XMLStreamException when the xml cannot be parsed
+     */
+    public Descriptor load(final InputStream xmlStream)
+            throws IOException, XMLStreamException {
+        return load(toByteArray(xmlStream), null);
+    }
+
+    /**
+     * Loads the descriptor at a location, from a snapshot when
+     * the same xml has been loaded before and no descriptor it includes
+     * has changed since, otherwise by building from xml then
+     * saving a snapshot. A snapshot which cannot be saved
+     * is skipped, since the descriptor has been built.
+     * @param location not null
+     * @return not null
+     * @throws IOException when the xml cannot be read
+     * @throws XMLStreamException when the xml cannot be parsed
+     */
+    public Descriptor load(final URL location)
+            throws IOException, XMLStreamException {
+        final InputStream in = location.openStream();
+        try {
+            return load(toByteArray(in), location);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Loads a descriptor.
+     * @param xml not null
+     * @param location locates the xml, possibly null
+     * @return not null
+     * @throws IOException when an included descriptor cannot be read
+     * @throws XMLStreamException when the xml cannot be parsed
+     */
+    private Descriptor load(final byte[] xml, final URL location)
+            throws IOException, XMLStreamException {
+        final String hash = hash(xml);
+        final String key = hash + "@" + Calendar.getInstance().get(Calendar.YEAR);
+        final File snapshot = new File(directory, hash + SUFFIX);
+        Descriptor result = read(snapshot, key);
+        if (result == null && location != null) {
+            result = read(snapshotAt(hash, location), keyAt(key, location));
+        }
+        if (result == null) {
+            final Map<String, String> included = new HashMap<String, String>();
+            result = new StaxBuilder().setStringPool(strings).build(
+                    new ByteArrayInputStream(xml), location, included);
+            try {
+                if (included.isEmpty() || location == null) {
+                    write(snapshot, key, included, result);
+                } else {
+                    write(snapshotAt(hash, location), keyAt(key, location),
+                            included, result);
+                }
+            } catch (IOException e) {
+                // Snapshots only save parsing next time
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Names the snapshot of a descriptor, at the given location,
+     * which includes others.
+     * @param hash hashes the xml, not null
+     * @param location locates the xml, not null
+     * @return not null
+     */
+    private File snapshotAt(final String hash, final URL location) {
+        return new File(directory, hash + "-" + hash(location.toExternalForm()
+                .getBytes(StandardCharsets.UTF_8)) + SUFFIX);
+    }
+
+    /**
+     * Keys the snapshot of a descriptor, at the given location,
+     * which includes others.
+     * @param key identifies the xml and year, not null
+     * @param location locates the xml, not null
+     * @return not null
+     */
+    private static String keyAt(final String key, final URL location) {
+        return key + "@" + location.toExternalForm();
+    }
+
+    /**
+     * Reads a snapshot.
+     * @param snapshot not null
+     * @param key identifies the xml and year, not null
+     * @return null when missing, stale or unreadable
+     */
+    private Descriptor read(final File snapshot, final String key) {
+        if (!snapshot.isFile()) {
+            return null;
+        }
+        try {
+            final FileChannel channel = FileChannel.open(snapshot.toPath(),
+                    StandardOpenOption.READ);
+            try {
+                // The mapping outlives the channel
+                return DescriptorSnapshot.read(key, channel.map(
+                        FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                        strings == null ? new StringPool() : strings);
+            } finally {
+                channel.close();
+            }
+        } catch (IOException e) {
+            // Corrupt snapshots are rebuilt
+            return null;
+        } catch (BufferUnderflowException e) {
+            // Truncated snapshots are rebuilt
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot, replacing any existing one.
+     * @param snapshot not null
+     * @param key identifies the xml and year, not null
+     * @param included hashes of descriptors included, by location,
+     * not null
+     * @param work not null
+     * @throws IOException when the snapshot cannot be written
+     */
+    private void write(final File snapshot, final String key,
+            final Map<String, String> included,
+            final Descriptor work) throws IOException {
+        final Path target = snapshot.getAbsoluteFile().toPath();
+        Files.createDirectories(target.getParent());
+        final Path temporary = Files.createTempFile(
+                target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            final DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)));
+            try {
+                DescriptorSnapshot.write(work, key, included, out);
+            } finally {
+                out.close();
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads all remaining bytes.
+     * @param in not null
+     * @return not null
+     * @throws IOException when reading fails
+     */
+    private static byte[] toByteArray(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads and discards all remaining bytes.
+     * @param in not null
+     * @throws IOException when reading fails
+     */
+    static void drain(final InputStream in) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        while (in.read(buffer) != -1) {
+            // Discard
+        }
+    }
+
+    /**
+     * Hashes the xml at a location.
+     * @param location not null
+     * @return SHA-256 as lower case hexadecimal, not null
+     * @throws IOException when the xml cannot be read
+     */
+    static String hash(final URL location) throws IOException {
+        final InputStream in = location.openStream();
+        try {
+            return hash(toByteArray(in));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Hashes xml.
+     * @param xml not null
+     * @return SHA-256 as lower case hexadecimal, not null
+     */
+    private static String hash(final byte[] xml) {
+        return hex(digest().digest(xml));
+    }
+
+    /**
+     * Creates a SHA-256 digest.
+     * @return not null
+     */
+    static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is unsupported", e);
+        }
+    }
+
+    /**
+     * Converts bytes to lower case hexadecimal.
+     * @param bytes not null
+     * @return not null
+     */
+    static String hex(final byte[] bytes) {
+        final char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            result[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(result);
+    }
+}
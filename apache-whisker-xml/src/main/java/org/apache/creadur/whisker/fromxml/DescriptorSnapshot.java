@@ -0,0 +1,416 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.fromxml;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.creadur.whisker.model.ByOrganisation;
+import org.apache.creadur.whisker.model.Descriptor;
+import org.apache.creadur.whisker.model.License;
+import org.apache.creadur.whisker.model.LicenseText;
+import org.apache.creadur.whisker.model.Organisation;
+import org.apache.creadur.whisker.model.Resource;
+import org.apache.creadur.whisker.model.StringPool;
+import org.apache.creadur.whisker.model.WithLicense;
+import org.apache.creadur.whisker.model.WithinDirectory;
+
+/**
+ * Reads and writes a compact binary form of a descriptor.
+ * <p>
+ * Licenses and organisations are written once, then linked by id,
+ * so the model read shares instances just as one built from xml.
+ * Strings are written as length prefixed UTF-8, so license texts
+ * of any length are supported. Null is written as length -1.
+ * </p>
+ * <p>
+ * Snapshots are read from a buffer, typically a mapped file.
+ * License texts are not copied, but left in the buffer
+ * to be decoded only when a license is rendered.
+ * </p>
+ */
+final class DescriptorSnapshot {
+
+    /** Identifies snapshot files. */
+    private static final int MAGIC = 0x5753444e;
+    /** Version of the snapshot format. */
+    private static final int VERSION = 3;
+    /** Length written for null strings. */
+    private static final int NULL_LENGTH = -1;
+
+    /**
+     * Static utility.
+     */
+    private DescriptorSnapshot() {
+    }
+
+    /**
+     * Writes a descriptor.
+     * @param work not null
+     * @param key identifies the source of the work, not null
+     * @param included hashes of descriptors included, by location,
+     * not null
+     * @param out not null
+     * @throws IOException when writing fails
+     */
+    static void write(final Descriptor work, final String key,
+            final Map<String, String> included,
+            final DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, key);
+        writeMap(out, included);
+        out.writeInt(work.getLicenses().size());
+        for (final License license: work.getLicenses().values()) {
+            writeString(out, license.getId());
+            writeString(out, license.getName());
+            writeString(out, license.getURL());
+            out.writeBoolean(license.isSourceRequired());
+            writeString(out, license.getBaseText());
+            writeStrings(out, license.getExpectedParameters());
+        }
+        writeMap(out, work.getNotices());
+        out.writeInt(work.getOrganisations().size());
+        for (final Organisation organisation: work.getOrganisations().values()) {
+            writeString(out, organisation.getId());
+            writeString(out, organisation.getName());
+            writeString(out, organisation.getURL());
+        }
+        writeString(out, work.getPrimaryLicense().getId());
+        writeString(out, work.getPrimaryCopyrightNotice());
+        writeString(out, work.getPrimaryOrganisationId());
+        writeString(out, work.getPrimaryNotice());
+        writeStrings(out, work.getScanIncludes());
+        writeStrings(out, work.getScanExcludes());
+        out.writeInt(work.getContents().size());
+        for (final WithinDirectory directory: work.getContents()) {
+            writeString(out, directory.getName());
+            writeByOrganisations(out, directory.getPublicDomain());
+            out.writeInt(directory.getLicenses().size());
+            for (final WithLicense license: directory.getLicenses()) {
+                writeString(out, license.getLicense().getId());
+                writeString(out, license.getCopyrightNotice());
+                writeMap(out, license.getParameters());
+                writeByOrganisations(out, license.getOrganisations());
+            }
+        }
+    }
+
+    /**
+     * Reads a descriptor.
+     * @param key identifies the source of the work expected, not null
+     * @param in positioned at the start of the snapshot, not null
+     * @param strings interns identifiers, sources, copyright notices
+     * and parameters read, not null
+     * @return null when the snapshot is for another source or version,
+     * or a descriptor included has changed
+     * @throws IOException when the snapshot cannot be read
+     */
+    static Descriptor read(final String key, final ByteBuffer in,
+            final StringPool strings) throws IOException {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION
+                || !key.equals(readString(in))) {
+            return null;
+        }
+        for (final Map.Entry<String, String> include: readMap(in).entrySet()) {
+            if (!include.getValue().equals(
+                    DescriptorCache.hash(new URL(include.getKey())))) {
+                return null;
+            }
+        }
+        final Map<String, License> licenses = new HashMap<String, License>();
+        for (int i = in.getInt(); i > 0; i--) {
+            final String id = readString(in, strings);
+            final String name = readString(in, strings);
+            final String url = readString(in, strings);
+            final boolean sourceRequired = in.get() != 0;
+            final ByteBuffer text = readRegion(in);
+            new License(sourceRequired,
+                    text == null ? LicenseText.of(null) : new MappedText(text),
+                    new HashSet<String>(readStrings(in, strings)), id, url, name)
+                .storeIn(licenses);
+        }
+        final Map<String, String> notices = readMap(in);
+        final Map<String, Organisation> organisations =
+                new HashMap<String, Organisation>();
+        for (int i = in.getInt(); i > 0; i--) {
+            new Organisation(readString(in, strings), readString(in, strings),
+                    readString(in, strings)).storeIn(organisations);
+        }
+        final License primaryLicense = link(licenses, readString(in));
+        final String primaryCopyrightNotice = readString(in);
+        final String primaryOrganisationId = readString(in, strings);
+        final String primaryNotice = readString(in);
+        final List<String> scanIncludes = readStrings(in);
+        final List<String> scanExcludes = readStrings(in);
+        final Collection<WithinDirectory> contents = new TreeSet<WithinDirectory>();
+        for (int i = in.getInt(); i > 0; i--) {
+            final String name = readString(in);
+            final SortedSet<ByOrganisation> publicDomain =
+                    readByOrganisations(in, organisations, strings);
+            final List<WithLicense> withLicenses = new ArrayList<WithLicense>();
+            for (int j = in.getInt(); j > 0; j--) {
+                final License license = link(licenses, readString(in));
+                final String copyrightNotice = readString(in, strings);
+                final Map<String, String> parameters = readMap(in, strings);
+                withLicenses.add(new WithLicense(license, copyrightNotice,
+                        parameters, readByOrganisations(in, organisations,
+                                strings)));
+            }
+            Collections.sort(withLicenses);
+            contents.add(new WithinDirectory(name, withLicenses, publicDomain));
+        }
+        return new Descriptor(primaryLicense, primaryCopyrightNotice,
+                primaryOrganisationId, primaryNotice,
+                Collections.unmodifiableMap(licenses),
+                Collections.unmodifiableMap(notices),
+                Collections.unmodifiableMap(organisations), contents,
+                Collections.unmodifiableList(scanIncludes),
+                Collections.unmodifiableList(scanExcludes));
+    }
+
+    /**
+     * Finds a linked element.
+     * @param elements indexed by id, not null
+     * @param id not null
+     * @param <T> element type
+     * @return not null
+     * @throws IOException when the snapshot is inconsistent
+     */
+    private static <T> T link(final Map<String, T> elements, final String id)
+            throws IOException {
+        final T result = elements.get(id);
+        if (result == null) {
+            throw new IOException("Snapshot links missing id '" + id + "'");
+        }
+        return result;
+    }
+
+    /**
+     * Writes organisations and their resources.
+     * @param out not null
+     * @param byOrganisations not null
+     * @throws IOException when writing fails
+     */
+    private static void writeByOrganisations(final DataOutputStream out,
+            final Collection<ByOrganisation> byOrganisations) throws IOException {
+        out.writeInt(byOrganisations.size());
+        for (final ByOrganisation byOrganisation: byOrganisations) {
+            writeString(out, byOrganisation.getId());
+            out.writeInt(byOrganisation.getResources().size());
+            for (final Resource resource: byOrganisation.getResources()) {
+                writeString(out, resource.getName());
+                writeString(out, resource.getNoticeId());
+                writeString(out, resource.getSource());
+            }
+        }
+    }
+
+    /**
+     * Reads organisations and their resources.
+     * @param in not null
+     * @param organisations indexed by id, not null
+     * @param strings interns notices and sources, not null
+     * @return unmodifiable, sorted by natural order, not null
+     * @throws IOException when reading fails
+     */
+    private static SortedSet<ByOrganisation> readByOrganisations(
+            final ByteBuffer in, final Map<String, Organisation> organisations,
+            final StringPool strings) throws IOException {
+        final SortedSet<ByOrganisation> results = new TreeSet<ByOrganisation>();
+        for (int i = in.getInt(); i > 0; i--) {
+            final Organisation organisation = link(organisations, readString(in));
+            final Collection<Resource> resources = new TreeSet<Resource>();
+            for (int j = in.getInt(); j > 0; j--) {
+                resources.add(new Resource(readString(in),
+                        readString(in, strings), readString(in, strings)));
+            }
+            results.add(new ByOrganisation(organisation,
+                    Collections.unmodifiableCollection(resources)));
+        }
+        return Collections.unmodifiableSortedSet(results);
+    }
+
+    /**
+     * Writes a map of strings.
+     * @param out not null
+     * @param map not null
+     * @throws IOException when writing fails
+     */
+    private static void writeMap(final DataOutputStream out,
+            final Map<String, String> map) throws IOException {
+        out.writeInt(map.size());
+        for (final Map.Entry<String, String> entry: map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    /**
+     * Reads a map of strings.
+     * @param in not null
+     * @return not null
+     * @throws IOException when reading fails
+     */
+    private static Map<String, String> readMap(final ByteBuffer in)
+            throws IOException {
+        final Map<String, String> results = new HashMap<String, String>();
+        for (int i = in.getInt(); i > 0; i--) {
+            results.put(readString(in), readString(in));
+        }
+        return results;
+    }
+
+    /**
+     * Reads a map of strings, interning keys and values.
+     * @param in not null
+     * @param strings not null
+     * @return not null
+     * @throws IOException when reading fails
+     */
+    private static Map<String, String> readMap(final ByteBuffer in,
+            final StringPool strings) throws IOException {
+        final Map<String, String> results = new HashMap<String, String>();
+        for (int i = in.getInt(); i > 0; i--) {
+            results.put(readString(in, strings), readString(in, strings));
+        }
+        return results;
+    }
+
+    /**
+     * Writes strings.
+     * @param out not null
+     * @param strings not null
+     * @throws IOException when writing fails
+     */
+    private static void writeStrings(final DataOutputStream out,
+            final Collection<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (final String string: strings) {
+            writeString(out, string);
+        }
+    }
+
+    /**
+     * Reads strings.
+     * @param in not null
+     * @return not null
+     * @throws IOException when reading fails
+     */
+    private static List<String> readStrings(final ByteBuffer in)
+            throws IOException {
+        return readStrings(in, null);
+    }
+
+    /**
+     * Reads strings, interning each.
+     * @param in not null
+     * @param strings null when not interned
+     * @return not null
+     * @throws IOException when reading fails
+     */
+    private static List<String> readStrings(final ByteBuffer in,
+            final StringPool strings) throws IOException {
+        final int size = in.getInt();
+        final List<String> results = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(strings == null
+                    ? readString(in) : readString(in, strings));
+        }
+        return results;
+    }
+
+    /**
+     * Writes a string of any length.
+     * @param out not null
+     * @param string possibly null
+     * @throws IOException when writing fails
+     */
+    private static void writeString(final DataOutputStream out,
+            final String string) throws IOException {
+        if (string == null) {
+            out.writeInt(NULL_LENGTH);
+        } else {
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a string of any length.
+     * @param in not null
+     * @return possibly null
+     * @throws IOException when reading fails
+     */
+    private static String readString(final ByteBuffer in)
+            throws IOException {
+        final ByteBuffer region = readRegion(in);
+        if (region == null) {
+            return null;
+        }
+        return StandardCharsets.UTF_8.decode(region).toString();
+    }
+
+    /**
+     * Reads a string of any length, interned.
+     * @param in not null
+     * @param strings not null
+     * @return possibly null
+     * @throws IOException when reading fails
+     */
+    private static String readString(final ByteBuffer in,
+            final StringPool strings) throws IOException {
+        return strings.intern(readString(in));
+    }
+
+    /**
+     * Reads a string of any length, without decoding it.
+     * @param in not null
+     * @return the encoded string, possibly null
+     * @throws IOException when reading fails
+     */
+    private static ByteBuffer readRegion(final ByteBuffer in)
+            throws IOException {
+        final int length = in.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("Snapshot string of length " + length
+                    + " overruns " + in.remaining() + " remaining bytes");
+        }
+        final ByteBuffer result = in.slice();
+        result.limit(length);
+        in.position(in.position() + length);
+        return result;
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.fromxml;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.creadur.whisker.model.Descriptor;
+
+/**
+ * Every problem found in a descriptor, together with as much
+ * of the work as could be built despite them.
+ */
+public final class Diagnostics {
+
+    /** Partial work. */
+    private final Descriptor descriptor;
+    /** Problems in the order found. */
+    private final List<Problem> problems;
+
+    /**
+     * Constructs diagnostics.
+     * @param descriptor partial work, not null
+     * @param problems not null, possibly empty
+     */
+    public Diagnostics(final Descriptor descriptor, final List<Problem> problems) {
+        super();
+        this.descriptor = descriptor;
+        this.problems = Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * Gets the work built, leaving out whatever was in error.
+     * When the primary license is missing, so is that of the work.
+     * @return not null
+     */
+    public Descriptor getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Gets every problem found.
+     * @return in the order found, not null, possibly empty
+     */
+    public List<Problem> getProblems() {
+        return problems;
+    }
+
+    /**
+     * Were any problems found?
+     * @return true when problems were found, false otherwise
+     */
+    public boolean hasProblems() {
+        return !problems.isEmpty();
+    }
+
+    /**
+     * Formats one problem per line.
+     * @return not null, empty when no problems were found
+     */
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder();
+        for (final Problem problem: problems) {
+            result.append(problem).append('\n');
+        }
+        return result.toString();
+    }
+}
@@ -24,16 +24,64 @@ import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
 import org.jdom2.input.SAXBuilder;
+import org.jdom2.input.sax.XMLReaders;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
 import java.util.*;
 
 /**
  * Builds a model from xml using JDOM.
+ * <p>
+ * A single builder may be shared and used concurrently.
+ * Each thread parses with its own {@link SAXBuilder},
+ * created once then reused.
+ * </p>
+ * <p>
+ * Identifiers, sources, copyright notices and parameters are
+ * interned as they are read, so values repeated throughout
+ * a descriptor share a single instance. Unless a pool is given,
+ * each descriptor built has a pool of its own.
+ * </p>
  */
 public class JDomBuilder {
 
+	/** Asks Xerces not to load external DTDs */
+	private static final String LOAD_EXTERNAL_DTD_FEATURE =
+			"http://apache.org/xml/features/nonvalidating/load-external-dtd";
+	/** Asks SAX parsers not to resolve external general entities */
+	private static final String EXTERNAL_GENERAL_ENTITIES_FEATURE =
+			"http://xml.org/sax/features/external-general-entities";
+	/** Asks SAX parsers not to resolve external parameter entities */
+	private static final String EXTERNAL_PARAMETER_ENTITIES_FEATURE =
+			"http://xml.org/sax/features/external-parameter-entities";
+
+	/**
+	 * Resolves every external entity, and any external DTD,
+	 * to nothing, so parsing never reaches outside the descriptor
+	 * even when a parser ignores the features requesting this.
+	 */
+	private static final EntityResolver NO_EXTERNAL_ENTITIES = new EntityResolver() {
+		public InputSource resolveEntity(final String publicId,
+				final String systemId) {
+			return new InputSource(new StringReader(""));
+		}
+	};
+
+	/**
+	 * Parsers are not thread safe, so are confined to a thread,
+	 * but each is configured only once.
+	 */
+	private static final ThreadLocal<SAXBuilder> SAX_BUILDERS = new ThreadLocal<SAXBuilder>() {
+		@Override
+		protected SAXBuilder initialValue() {
+			return newSAXBuilder();
+		}
+	};
+
 	private static final String COPYRIGHT_NOTICE_NAME = "copyright-notice";
 	/**
      * 
@@ -47,6 +95,54 @@ public class JDomBuilder {
 	private static final String ORGANISATION_ELEMENT_NAME = "organisation";
 	/** Names the element representing a resource */
 	private static final String RESOURCE_ELEMENT_NAME = "resource";
+	/** Names the element containing patterns selecting the resources scanned */
+	private static final String SCAN_ELEMENT_NAME = "scan";
+
+	/** Interns values read, null for a pool per descriptor */
+	private final StringPool strings;
+	/** Pool for the descriptor being built by each thread */
+	private final ThreadLocal<StringPool> building = new ThreadLocal<StringPool>();
+
+	/**
+	 * Constructs a builder giving each descriptor a pool of its own.
+	 */
+	public JDomBuilder() {
+		this(null);
+	}
+
+	/**
+	 * Constructs a builder interning values in the given pool,
+	 * which may be shared with other builders.
+	 * 
+	 * @param strings
+	 *            null for a pool per descriptor
+	 */
+	public JDomBuilder(final StringPool strings) {
+		super();
+		this.strings = strings;
+	}
+
+	/**
+	 * Gets the pool interning values read.
+	 * 
+	 * @return null when each descriptor has a pool of its own
+	 */
+	public StringPool getStringPool() {
+		return strings;
+	}
+
+	/**
+	 * Interns a value read. Outside a build, values are interned
+	 * only in a pool given to the builder.
+	 * 
+	 * @param value
+	 *            possibly null
+	 * @return null when the value is null
+	 */
+	private String intern(final String value) {
+		final StringPool pool = strings == null ? building.get() : strings;
+		return pool == null ? value : pool.intern(value);
+	}
 
 	/**
 	 * Builds a resource.
@@ -60,9 +156,10 @@ public class JDomBuilder {
 	public Resource resource(Element element) throws UnexpectedElementException {
 		if (RESOURCE_ELEMENT_NAME.equals(element.getName())) {
 			return new Resource(StringUtils.trim(element
-					.getAttributeValue("name")), StringUtils.trim(element
-					.getAttributeValue("notice")), StringUtils.trim(element
-					.getAttributeValue("source")));
+					.getAttributeValue("name")), intern(StringUtils
+					.trim(element.getAttributeValue("notice"))),
+					intern(StringUtils.trim(element
+							.getAttributeValue("source"))));
 		} else {
 			throw unexpectedElementException(element, RESOURCE_ELEMENT_NAME);
 		}
@@ -95,9 +192,8 @@ public class JDomBuilder {
 	public Organisation organisation(Element element)
 			throws UnexpectedElementException {
 		if (ORGANISATION_ELEMENT_NAME.equals(element.getName())) {
-			return new Organisation(element.getAttributeValue("id"),
-					element.getAttributeValue("name"),
-					element.getAttributeValue("url"));
+			return new Organisation(attribute(element, "id"),
+					attribute(element, "name"), attribute(element, "url"));
 		} else {
 			throw unexpectedElementException(element, ORGANISATION_ELEMENT_NAME);
 		}
@@ -113,7 +209,7 @@ public class JDomBuilder {
 		final Collection<Resource> resources = new TreeSet<Resource>();
 		for (Element resourceElement : (List<Element>) element
 				.getChildren("resource")) {
-			resources.add(new JDomBuilder().resource(resourceElement));
+			resources.add(resource(resourceElement));
 		}
 		return Collections.unmodifiableCollection(resources);
 	}
@@ -205,9 +301,21 @@ public class JDomBuilder {
 		return new License("yes".equalsIgnoreCase(element
 				.getAttributeValue("requires-source")), text == null ? ""
 				: text.getText(), expectedParameters(element),
-				element.getAttributeValue("id"),
-				element.getAttributeValue("url"),
-				element.getAttributeValue("name"));
+				attribute(element, "id"), attribute(element, "url"),
+				attribute(element, "name"));
+	}
+
+	/**
+	 * Reads an attribute, interned.
+	 * 
+	 * @param element
+	 *            not null
+	 * @param name
+	 *            not null
+	 * @return null when the attribute is missing
+	 */
+	private String attribute(final Element element, final String name) {
+		return intern(element.getAttributeValue(name));
 	}
 
 	@SuppressWarnings("unchecked")
@@ -217,7 +325,7 @@ public class JDomBuilder {
 		if (templateElement != null) {
 			for (Element parameterNameElement : (List<Element>) templateElement
 					.getChildren("parameter-name")) {
-				results.add(parameterNameElement.getTextTrim());
+				results.add(intern(parameterNameElement.getTextTrim()));
 			}
 		}
 		return results;
@@ -279,7 +387,7 @@ public class JDomBuilder {
 		if (copyrightNoticeElement == null) {
 			result = null;
 		} else {
-			result = copyrightNoticeElement.getTextTrim();
+			result = intern(copyrightNoticeElement.getTextTrim());
 		}
 		return result;
 	}
@@ -302,14 +410,14 @@ public class JDomBuilder {
 		if (licenseParametersElement != null) {
 			for (Element parameterElement : (List<Element>) licenseParametersElement
 					.getChildren("parameter")) {
-				final String name = parameterElement.getChild("name")
-						.getTextTrim();
+				final String name = intern(parameterElement.getChild(
+						"name").getTextTrim());
 				if (results.containsKey(name)) {
 					throw new DuplicateElementException("Duplicate parameter '"
 							+ name + "'");
 				}
-				results.put(name, parameterElement.getChild("value")
-						.getTextTrim());
+				results.put(name, intern(parameterElement.getChild(
+						"value").getTextTrim()));
 			}
 		}
 		return results;
@@ -332,7 +440,7 @@ public class JDomBuilder {
 		final List<WithLicense> results = new ArrayList<WithLicense>();
 		for (Element withLicenseElement : (List<Element>) parent
 				.getChildren("with-license")) {
-			results.add(new JDomBuilder().withLicense(withLicenseElement,
+			results.add(withLicense(withLicenseElement,
 					licenses, organisations));
 		}
 		Collections.sort(results);
@@ -350,7 +458,7 @@ public class JDomBuilder {
 	 */
 	public Collection<ByOrganisation> publicDomain(
 			final Map<String, Organisation> organisations, final Element parent) {
-		return new JDomBuilder().collectByOrganisations(
+		return collectByOrganisations(
 				parent.getChild("public-domain"), organisations);
 	}
 
@@ -390,7 +498,7 @@ public class JDomBuilder {
 			final List<Element> organisations = (List<Element>) childOrganisations
 					.getChildren("organisation");
 			for (final Element element : organisations) {
-				new JDomBuilder().organisation(element).storeIn(
+				organisation(element).storeIn(
 						organisationsById);
 			}
 		}
@@ -413,7 +521,7 @@ public class JDomBuilder {
 			final List<Element> children = (List<Element>) licensesChild
 					.getChildren();
 			for (final Element element : children) {
-				new JDomBuilder().license(element).storeIn(results);
+				license(element).storeIn(results);
 			}
 		}
 		return Collections.unmodifiableMap(results);
@@ -487,8 +595,7 @@ public class JDomBuilder {
 			final List<Element> children = (List<Element>) noticesElement
 					.getChildren();
 			for (final Element element : children) {
-				results.put(element.getAttributeValue("id"),
-						element.getTextTrim());
+				results.put(attribute(element, "id"), element.getTextTrim());
 			}
 		}
 		return Collections.unmodifiableMap(results);
@@ -533,15 +640,41 @@ public class JDomBuilder {
 		if (primaryOrganisationElement == null) {
 			result = null;
 		} else {
-			result = primaryOrganisationElement.getAttributeValue("id");
+			result = attribute(primaryOrganisationElement, "id");
 		}
 		return result;
 	}
 
+	/**
+	 * Collects glob patterns selecting the resources scanned.
+	 * 
+	 * @param document
+	 *            not null
+	 * @param name
+	 *            names the pattern elements within the scan element, not
+	 *            null
+	 * @return patterns in document order, not null, possibly empty
+	 */
+	public Collection<String> scanPatterns(final Document document,
+			final String name) {
+		final List<String> results = new ArrayList<String>();
+		final Element scanElement = document.getRootElement().getChild(
+				SCAN_ELEMENT_NAME);
+		if (scanElement != null) {
+			@SuppressWarnings("unchecked")
+			final List<Element> children = (List<Element>) scanElement
+					.getChildren(name);
+			for (final Element element : children) {
+				results.add(element.getTextTrim());
+			}
+		}
+		return Collections.unmodifiableList(results);
+	}
+
 	private WithinDirectory directory(final Element element,
 			final Map<String, License> licenses,
 			final Map<String, Organisation> organisations) {
-		return new JDomBuilder().withinDirectory(element, licenses,
+		return withinDirectory(element, licenses,
 				organisations);
 	}
 
@@ -586,6 +719,14 @@ public class JDomBuilder {
 	 * @return not null
 	 */
 	public Descriptor build(final Document document) {
+		if (strings == null && building.get() == null) {
+			building.set(new StringPool());
+			try {
+				return build(document);
+			} finally {
+				building.remove();
+			}
+		}
 		final Map<String, Organisation> organisations = mapOrganisations(document);
 		final Map<String, License> licenses = mapLicenses(document);
 		final Map<String, String> notices = mapNotices(document);
@@ -597,11 +738,40 @@ public class JDomBuilder {
 				licenses, organisations);
 		return new Descriptor(primaryLicense, primaryCopyrightNotice,
 				primaryOrganisationId, primaryNotice, licenses, notices,
-				organisations, contents);
+				organisations, contents, scanPatterns(document, "include"),
+				scanPatterns(document, "exclude"));
 	}
 
+	/**
+	 * Builds work from the given xml.
+	 * 
+	 * @param xmlStream
+	 *            not null
+	 * @return not null
+	 * @throws JDOMException
+	 *             when the xml is not well formed
+	 * @throws IOException
+	 *             when the xml cannot be read
+	 */
 	public Descriptor build(final InputStream xmlStream) throws JDOMException,
 			IOException {
-		return build(new SAXBuilder().build(xmlStream));
+		return build(SAX_BUILDERS.get().build(xmlStream));
+	}
+
+	/**
+	 * Creates a reusable, non-validating builder whose parser loads
+	 * no external DTD and resolves no external entity. Entities
+	 * declared in the internal subset are still expanded.
+	 * 
+	 * @return not null
+	 */
+	private static SAXBuilder newSAXBuilder() {
+		final SAXBuilder result = new SAXBuilder(XMLReaders.NONVALIDATING);
+		result.setReuseParser(true);
+		result.setFeature(LOAD_EXTERNAL_DTD_FEATURE, false);
+		result.setFeature(EXTERNAL_GENERAL_ENTITIES_FEATURE, false);
+		result.setFeature(EXTERNAL_PARAMETER_ENTITIES_FEATURE, false);
+		result.setEntityResolver(NO_EXTERNAL_ENTITIES);
+		return result;
 	}
 }
@@ -0,0 +1,59 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.fromxml;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.creadur.whisker.model.LicenseText;
+
+/**
+ * License text backed by a region of UTF-8 in a snapshot,
+ * typically memory mapped, decoded only when first asked for.
+ * <p>
+ * Once decoded, the region is released and the text retained.
+ * Snapshots are only ever replaced by moving a new file into
+ * place, never rewritten, so the region cannot change under
+ * a mapping.
+ * </p>
+ */
+final class MappedText extends LicenseText {
+
+    /** UTF-8 region, until decoded. */
+    private ByteBuffer region;
+    /** Decoded text, once asked for. */
+    private String text;
+
+    /**
+     * Constructs text backed by a region.
+     * @param region UTF-8 from position to limit, not null
+     */
+    MappedText(final ByteBuffer region) {
+        this.region = region;
+    }
+
+    @Override
+    public synchronized String get() {
+        if (this.region != null) {
+            this.text = StandardCharsets.UTF_8.decode(this.region).toString();
+            this.region = null;
+        }
+        return this.text;
+    }
+}
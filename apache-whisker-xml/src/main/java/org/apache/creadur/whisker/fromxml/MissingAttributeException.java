@@ -0,0 +1,58 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.fromxml;
+
+/**
+ * Indicates that an element lacks a required attribute.
+ */
+public class MissingAttributeException extends InvalidXmlException {
+
+    private static final long serialVersionUID = 5043826370531729456L;
+    private final String element;
+    private final String attribute;
+
+    /**
+     * Constructs an instance.
+     * @param element names the element, not null
+     * @param attribute names the attribute missing, not null
+     */
+    public MissingAttributeException(final String element,
+            final String attribute) {
+        super("Missing attribute '" + attribute + "' for element '"
+                + element + "'");
+        this.element = element;
+        this.attribute = attribute;
+    }
+
+    /**
+     * Gets the name of the element lacking the attribute.
+     * @return not null
+     */
+    public String getElement() {
+        return element;
+    }
+
+    /**
+     * Gets the name of the attribute missing.
+     * @return not null
+     */
+    public String getAttribute() {
+        return attribute;
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.fromxml;
+
+/**
+ * A problem found in a descriptor, located by line and column.
+ */
+public final class Problem {
+
+    /** Line or column when unknown. */
+    public static final int UNKNOWN = -1;
+
+    /** Describes the problem. */
+    private final Exception exception;
+    /** Names the descriptor, possibly null. */
+    private final String source;
+    /** Line within the descriptor, counting from one. */
+    private final int line;
+    /** Column within the line, counting from one. */
+    private final int column;
+
+    /**
+     * Constructs a problem.
+     * @param exception describes the problem, not null
+     * @param source names the descriptor, null when unknown
+     * @param line counting from one, or {@link #UNKNOWN}
+     * @param column counting from one, or {@link #UNKNOWN}
+     */
+    public Problem(final Exception exception, final String source,
+            final int line, final int column) {
+        super();
+        this.exception = exception;
+        this.source = source;
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * Gets the exception which would have been thrown
+     * had parsing stopped at this problem.
+     * @return not null
+     */
+    public Exception getException() {
+        return exception;
+    }
+
+    /**
+     * Describes the problem.
+     * @return not null
+     */
+    public String getMessage() {
+        return exception.getMessage();
+    }
+
+    /**
+     * Names the descriptor containing the problem.
+     * @return null when unknown
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the line containing the problem.
+     * @return counting from one, or {@link #UNKNOWN}
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Gets the column of the problem.
+     * @return counting from one, or {@link #UNKNOWN}
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Formats as <code>source:line:column: message</code>,
+     * omitting whatever is unknown.
+     * @return not null
+     */
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder();
+        if (source != null) {
+            result.append(source).append(':');
+        }
+        if (line != UNKNOWN) {
+            result.append(line).append(':');
+            if (column != UNKNOWN) {
+                result.append(column).append(':');
+            }
+        }
+        if (result.length() > 0) {
+            result.append(' ');
+        }
+        return result.append(getMessage()).toString();
+    }
+}
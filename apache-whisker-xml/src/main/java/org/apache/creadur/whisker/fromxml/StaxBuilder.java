@@ -0,0 +1,1641 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.fromxml;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.DigestInputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveTask;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.creadur.whisker.model.ByOrganisation;
+import org.apache.creadur.whisker.model.Descriptor;
+import org.apache.creadur.whisker.model.License;
+import org.apache.creadur.whisker.model.Organisation;
+import org.apache.creadur.whisker.model.Resource;
+import org.apache.creadur.whisker.model.StringPool;
+import org.apache.creadur.whisker.model.WithLicense;
+import org.apache.creadur.whisker.model.WithinDirectory;
+
+/**
+ * Builds a model from xml in a single streaming pass using StAX,
+ * without building a document.
+ * <p>
+ * Builds the same model as {@link JDomBuilder}. License texts are
+ * read once, straight into the model. Links by id are recorded as
+ * the document streams past, then resolved once the whole document
+ * has been read, so links may precede the elements they name.
+ * </p>
+ * <p>
+ * A descriptor may include others, by <code>import</code> elements
+ * whose <code>href</code> is relative to the including descriptor.
+ * The licenses, organisations, notices and directories of included
+ * descriptors are merged, after all have been parsed concurrently,
+ * so ids must be unique across all of them. A descriptor included
+ * by several others is read and merged only once.
+ * </p>
+ * <p>
+ * Building stops at the first problem found. Diagnosing instead
+ * records every problem, with its line and column, and carries on,
+ * leaving out whatever is in error.
+ * </p>
+ * <p>
+ * Identifiers, sources, copyright notices and parameters are interned
+ * as they are read, so values repeated throughout a descriptor share
+ * a single instance. Unless a pool is set, each descriptor built,
+ * together with those it includes, has a pool of its own.
+ * </p>
+ */
+public class StaxBuilder {
+
+    /** Names the element representing a license. */
+    private static final String LICENSE_ELEMENT_NAME = "license";
+    /** Names the element representing an organisation. */
+    private static final String ORGANISATION_ELEMENT_NAME = "organisation";
+    /** Names the element linking the primary license. */
+    private static final String PRIMARY_LICENSE_NAME = "primary-license";
+    /** Names the element containing a copyright notice. */
+    private static final String COPYRIGHT_NOTICE_NAME = "copyright-notice";
+    /** Names the element linking an organisation to resources. */
+    private static final String BY_ORGANISATION_NAME = "by-organisation";
+    /** Names the element linking a license to organisations. */
+    private static final String WITH_LICENSE_NAME = "with-license";
+    /** Names the element including another descriptor. */
+    private static final String IMPORT_ELEMENT_NAME = "import";
+    /** Replaced by the current year in the primary notice. */
+    private static final String YEAR_VARIABLE = "${year}";
+
+    /** By default, parse includes on every available processor. */
+    public static final int DEFAULT_THREADS =
+            Runtime.getRuntime().availableProcessors();
+
+    /** Asks the JDK reader not to fetch external DTDs. */
+    private static final String IGNORE_EXTERNAL_DTD =
+            "http://java.sun.com/xml/stream/properties/ignore-external-dtd";
+
+    /**
+     * Creates readers for every builder, on every thread.
+     * Once configured, the factory is only read,
+     * so creating readers concurrently is safe.
+     */
+    private static final XMLInputFactory FACTORY = newFactory();
+
+    /** Number of threads parsing includes. */
+    private int threads = DEFAULT_THREADS;
+    /** Interns values read, null for a pool per descriptor. */
+    private StringPool strings;
+
+    /**
+     * Constructs a builder.
+     * Builders are cheap, sharing a single preconfigured factory,
+     * and may build concurrently.
+     */
+    public StaxBuilder() {
+        super();
+    }
+
+    /**
+     * Creates a factory for readers which never reach outside the
+     * descriptor: external DTDs are not loaded and external entities
+     * are not resolved. Entities declared in the internal subset are
+     * still expanded.
+     * @return not null
+     */
+    private static XMLInputFactory newFactory() {
+        final XMLInputFactory result = XMLInputFactory.newInstance();
+        result.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        result.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+        result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+                Boolean.FALSE);
+        if (result.isPropertySupported(IGNORE_EXTERNAL_DTD)) {
+            result.setProperty(IGNORE_EXTERNAL_DTD, Boolean.TRUE);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of threads parsing included descriptors.
+     * @return at least one
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads parsing included descriptors.
+     * @param threads at least one
+     * @return this, not null
+     */
+    public StaxBuilder setThreads(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(
+                    "Expected at least one thread but was " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Gets the pool interning values read.
+     * @return null when each descriptor has a pool of its own
+     */
+    public StringPool getStringPool() {
+        return strings;
+    }
+
+    /**
+     * Sets the pool interning values read, so that values are shared
+     * across every descriptor built, for example in a batch.
+     * @param strings null for a pool per descriptor
+     * @return this, not null
+     */
+    public StaxBuilder setStringPool(final StringPool strings) {
+        this.strings = strings;
+        return this;
+    }
+
+    /**
+     * Builds work from the given xml.
+     * The xml may not include other descriptors,
+     * since there is no location to resolve them against.
+     * @param xmlStream not null
+     * @return not null
+     * @throws XMLStreamException when the xml cannot be read
+     */
+    public Descriptor build(final InputStream xmlStream)
+            throws XMLStreamException {
+        try {
+            return build(xmlStream, null, null);
+        } catch (IOException e) {
+            throw new XMLStreamException(e);
+        }
+    }
+
+    /**
+     * Builds work from the xml at the given location,
+     * merged with any descriptors it includes.
+     * Includes are resolved against the location of the including
+     * descriptor, then parsed concurrently.
+     * @param location not null
+     * @return not null
+     * @throws IOException when the xml, or an include, cannot be opened
+     * @throws XMLStreamException when the xml cannot be read
+     */
+    public Descriptor build(final URL location)
+            throws IOException, XMLStreamException {
+        final InputStream in = location.openStream();
+        try {
+            return build(in, location, null);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Builds work, merged with any descriptors included.
+     * @param xmlStream not null
+     * @param location locates the xml, null when unknown
+     * @param included when not null, records the SHA-256 hash of each
+     * descriptor included, indexed by location
+     * @return not null
+     * @throws IOException when an include cannot be opened
+     * @throws XMLStreamException when the xml cannot be read
+     * @throws InvalidXmlException when descriptors are included
+     * but the location is unknown
+     */
+    Descriptor build(final InputStream xmlStream, final URL location,
+            final Map<String, String> included)
+            throws IOException, XMLStreamException {
+        return read(xmlStream, location, included,
+                new Problems(name(location), false)).build();
+    }
+
+    /**
+     * Diagnoses every problem in the given xml, in a single pass.
+     * The xml may not include other descriptors,
+     * since there is no location to resolve them against.
+     * @param xmlStream not null
+     * @return the problems found, and the work built despite them,
+     * not null
+     */
+    public Diagnostics diagnose(final InputStream xmlStream) {
+        return diagnose(xmlStream, null);
+    }
+
+    /**
+     * Diagnoses every problem in the xml at the given location,
+     * and in the descriptors it includes, in a single pass.
+     * @param location not null
+     * @return the problems found, and the work built despite them,
+     * not null
+     * @throws IOException when the xml cannot be opened
+     */
+    public Diagnostics diagnose(final URL location) throws IOException {
+        final InputStream in = location.openStream();
+        try {
+            return diagnose(in, location);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Diagnoses every problem in the xml, and any descriptors included.
+     * @param xmlStream not null
+     * @param location locates the xml, null when unknown
+     * @return not null
+     */
+    private Diagnostics diagnose(final InputStream xmlStream,
+            final URL location) {
+        final Problems problems = new Problems(name(location), true);
+        final Work work;
+        try {
+            work = read(xmlStream, location, null, problems);
+        } catch (IOException e) {
+            throw new IllegalStateException("Problems should be collected", e);
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Problems should be collected", e);
+        }
+        final Descriptor descriptor = work.build();
+        return new Diagnostics(descriptor, problems.found);
+    }
+
+    /**
+     * Names a location.
+     * @param location possibly null
+     * @return null when the location is null
+     */
+    private static String name(final URL location) {
+        return location == null ? null : location.toExternalForm();
+    }
+
+    /**
+     * Reads work, merged with any descriptors included.
+     * @param xmlStream not null
+     * @param location locates the xml, null when unknown
+     * @param included possibly null
+     * @param problems not null
+     * @return not null
+     * @throws IOException when an include cannot be opened
+     * @throws XMLStreamException when the xml cannot be read
+     */
+    private Work read(final InputStream xmlStream, final URL location,
+            final Map<String, String> included, final Problems problems)
+            throws IOException, XMLStreamException {
+        final StringPool pool = strings == null ? new StringPool() : strings;
+        final Work work = read(xmlStream, problems, pool);
+        if (!work.includes.isEmpty()) {
+            if (location == null) {
+                problems.report(new InvalidXmlException("Cannot include '"
+                        + work.includes.get(0)
+                        + "' without the location of the including descriptor"),
+                        null);
+            } else {
+                // Descriptors included more than once are merged once
+                final Set<Work> merged = Collections.newSetFromMap(
+                        new IdentityHashMap<Work, Boolean>());
+                for (final Fragment fragment: include(work, location, included,
+                        problems.isCollecting(), pool)) {
+                    if (merged.add(fragment.work)) {
+                        work.merge(fragment.work, fragment.location);
+                    }
+                }
+            }
+        }
+        return work;
+    }
+
+    /**
+     * Reads a single descriptor, without any includes.
+     * When collecting problems, xml which cannot be read is reported,
+     * and the work read so far returned.
+     * @param xmlStream not null
+     * @param problems not null
+     * @param strings interns values read, not null
+     * @return not null
+     * @throws XMLStreamException when the xml cannot be read
+     * and problems are not collected
+     */
+    private static Work read(final InputStream xmlStream,
+            final Problems problems, final StringPool strings)
+            throws XMLStreamException {
+        final Work work = new Work(problems, strings);
+        try {
+            final XMLStreamReader reader = FACTORY.createXMLStreamReader(xmlStream);
+            try {
+                while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    // Skip prolog
+                }
+                work.read(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            problems.report(e);
+        }
+        return work;
+    }
+
+    /**
+     * Reads, in parallel, every descriptor included by the work,
+     * directly or indirectly. Each descriptor is read once, however
+     * often it is included, so a descriptor included more than once
+     * appears as fragments sharing the same work.
+     * @param work includes descriptors, not null
+     * @param location locates the work, not null
+     * @param included possibly null
+     * @param collecting true when problems are collected,
+     * rather than thrown
+     * @param strings interns values read, not null
+     * @return fragments, depth first in document order, not null
+     * @throws IOException when an include cannot be opened
+     * @throws XMLStreamException when an include cannot be read
+     */
+    private List<Fragment> include(final Work work, final URL location,
+            final Map<String, String> included, final boolean collecting,
+            final StringPool strings)
+            throws IOException, XMLStreamException {
+        final Map<String, String> hashes = included == null
+                ? null : new ConcurrentHashMap<String, String>();
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            final List<Fragment> results = pool.invoke(new Include(
+                    work.includes, location,
+                    Collections.singleton(location.toExternalForm()),
+                    new ConcurrentHashMap<String, FutureTask<Work>>(), hashes,
+                    collecting, strings));
+            if (included != null) {
+                included.putAll(hashes);
+            }
+            return results;
+        } catch (IncludeFailure e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw (XMLStreamException) e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads included descriptors, and those they include, in parallel.
+     */
+    private static final class Include extends RecursiveTask<List<Fragment>> {
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+        /** References descriptors, relative to the location. */
+        private final List<String> hrefs;
+        /** Locates the including descriptor. */
+        private final URL location;
+        /** Locates the descriptors including this one, to detect cycles. */
+        private final Set<String> ancestors;
+        /** Reads of every descriptor included, by location. */
+        private final ConcurrentMap<String, FutureTask<Work>> reads;
+        /** When not null, records hashes by location. */
+        private final Map<String, String> hashes;
+        /** Are problems collected, rather than thrown? */
+        private final boolean collecting;
+        /** Interns values read. */
+        private final StringPool strings;
+
+        /**
+         * Constructs a task.
+         * @param hrefs not null
+         * @param location not null
+         * @param ancestors not null
+         * @param reads not null
+         * @param hashes possibly null
+         * @param collecting true when problems are collected
+         * @param strings not null
+         */
+        Include(final List<String> hrefs, final URL location,
+                final Set<String> ancestors,
+                final ConcurrentMap<String, FutureTask<Work>> reads,
+                final Map<String, String> hashes,
+                final boolean collecting, final StringPool strings) {
+            this.hrefs = hrefs;
+            this.location = location;
+            this.ancestors = ancestors;
+            this.reads = reads;
+            this.hashes = hashes;
+            this.collecting = collecting;
+            this.strings = strings;
+        }
+
+        /**
+         * Reads each descriptor, then forks a task for those it includes.
+         * @return fragments, depth first in document order, not null
+         */
+        @Override
+        protected List<Fragment> compute() {
+            final List<ReadFragment> tasks = new ArrayList<ReadFragment>();
+            for (final String href: hrefs) {
+                tasks.add(new ReadFragment(location, href, ancestors, reads,
+                        hashes, collecting, strings));
+            }
+            invokeAll(tasks);
+            final List<Fragment> results = new ArrayList<Fragment>();
+            for (final ReadFragment read: tasks) {
+                results.addAll(read.join());
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Reads a single included descriptor, followed by those it includes.
+     */
+    private static final class ReadFragment extends RecursiveTask<List<Fragment>> {
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+        /** Locates the including descriptor. */
+        private final URL base;
+        /** References the descriptor, relative to the base. */
+        private final String href;
+        /** Locates the descriptors including this one. */
+        private final Set<String> ancestors;
+        /** Reads of every descriptor included, by location. */
+        private final ConcurrentMap<String, FutureTask<Work>> reads;
+        /** When not null, records hashes by location. */
+        private final Map<String, String> hashes;
+        /** Are problems collected, rather than thrown? */
+        private final boolean collecting;
+        /** Interns values read. */
+        private final StringPool strings;
+
+        /**
+         * Constructs a task.
+         * @param base not null
+         * @param href not null
+         * @param ancestors not null
+         * @param reads not null
+         * @param hashes possibly null
+         * @param collecting true when problems are collected
+         * @param strings not null
+         */
+        ReadFragment(final URL base, final String href,
+                final Set<String> ancestors,
+                final ConcurrentMap<String, FutureTask<Work>> reads,
+                final Map<String, String> hashes,
+                final boolean collecting, final StringPool strings) {
+            this.base = base;
+            this.href = href;
+            this.ancestors = ancestors;
+            this.reads = reads;
+            this.hashes = hashes;
+            this.collecting = collecting;
+            this.strings = strings;
+        }
+
+        /**
+         * Reads the descriptor, then those it includes.
+         * When collecting problems, a descriptor which cannot be
+         * read is reported then left out.
+         * @return fragments, depth first in document order, not null
+         */
+        @Override
+        protected List<Fragment> compute() {
+            final URL location;
+            try {
+                location = new URL(base, href);
+            } catch (MalformedURLException e) {
+                return fragment(failed(new Problems(href, collecting), e), href);
+            }
+            final String name = location.toExternalForm();
+            if (ancestors.contains(name)) {
+                final Problems problems = new Problems(name, collecting);
+                problems.report(new InvalidXmlException("Descriptor '" + name
+                        + "' includes itself"), null);
+                return fragment(new Work(problems, strings), name);
+            }
+            final Work work = readOnce(location, name);
+            final List<Fragment> results = fragment(work, name);
+            if (!work.includes.isEmpty()) {
+                final Set<String> path = new HashSet<String>(ancestors);
+                path.add(name);
+                results.addAll(new Include(work.includes, location, path, reads,
+                        hashes, collecting, strings).invoke());
+            }
+            return results;
+        }
+
+        /**
+         * Reads the descriptor, unless another task has already
+         * read, or is reading, it.
+         * @param location not null
+         * @param name names the location, not null
+         * @return work shared by every task reading the location, not null
+         * @throws IncludeFailure when the descriptor cannot be read
+         * and problems are not collected
+         */
+        private Work readOnce(final URL location, final String name) {
+            final FutureTask<Work> task = new FutureTask<Work>(
+                    new Callable<Work>() {
+                        @Override
+                        public Work call() {
+                            return readFragment(location, name);
+                        }
+                    });
+            FutureTask<Work> reading = reads.putIfAbsent(name, task);
+            if (reading == null) {
+                reading = task;
+                task.run();
+            }
+            try {
+                return reading.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IncludeFailure(new InterruptedIOException(
+                        "Interrupted reading '" + name + "'"));
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw (Error) e.getCause();
+            }
+        }
+
+        /**
+         * Reads the descriptor, without those it includes.
+         * When collecting problems, a descriptor which cannot be
+         * read is reported then left empty.
+         * @param location not null
+         * @param name names the location, not null
+         * @return not null
+         * @throws IncludeFailure when the descriptor cannot be read
+         * and problems are not collected
+         */
+        private Work readFragment(final URL location, final String name) {
+            final Problems problems = new Problems(name, collecting);
+            final Work work;
+            try {
+                final DigestInputStream in = new DigestInputStream(
+                        new BufferedInputStream(location.openStream()),
+                        DescriptorCache.digest());
+                try {
+                    work = read(in, problems, strings);
+                    if (hashes != null) {
+                        DescriptorCache.drain(in);
+                        hashes.put(name, DescriptorCache.hex(
+                                in.getMessageDigest().digest()));
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                return failed(problems, e);
+            } catch (XMLStreamException e) {
+                return failed(problems, e);
+            }
+            return work;
+        }
+
+        /**
+         * Reports a descriptor which cannot be read.
+         * @param problems not null
+         * @param failure not null
+         * @return empty work carrying the problem, not null
+         * @throws IncludeFailure when problems are not collected
+         */
+        private Work failed(final Problems problems,
+                final Exception failure) {
+            if (!collecting) {
+                throw new IncludeFailure(failure);
+            }
+            problems.report(failure);
+            return new Work(problems, strings);
+        }
+
+        /**
+         * Starts the fragments read by this task.
+         * @param work not null
+         * @param name locates the work, not null
+         * @return modifiable, not null
+         */
+        private static List<Fragment> fragment(final Work work,
+                final String name) {
+            final List<Fragment> results = new ArrayList<Fragment>();
+            results.add(new Fragment(work, name));
+            return results;
+        }
+    }
+
+    /**
+     * Carries a checked exception out of a parallel task.
+     */
+    private static final class IncludeFailure extends RuntimeException {
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Wraps a cause.
+         * @param cause not null
+         */
+        IncludeFailure(final Exception cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Work read from an included descriptor.
+     */
+    private static final class Fragment {
+        /** The work read. */
+        private final Work work;
+        /** Locates the included descriptor. */
+        private final String location;
+
+        /**
+         * Constructs a fragment.
+         * @param work not null
+         * @param location not null
+         */
+        Fragment(final Work work, final String location) {
+            this.work = work;
+            this.location = location;
+        }
+    }
+
+    /**
+     * Advances to the next child of the current element.
+     * @param reader positioned within an element, not null
+     * @return true when positioned at the start of a child,
+     * false when positioned at the end of the element
+     * @throws XMLStreamException when the xml cannot be read
+     */
+    private static boolean nextChild(final XMLStreamReader reader)
+            throws XMLStreamException {
+        while (true) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Skips the current element, including all descendants.
+     * @param reader positioned at the start of an element, not null
+     * @throws XMLStreamException when the xml cannot be read
+     */
+    private static void skip(final XMLStreamReader reader)
+            throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Reads the text directly contained by the current element,
+     * skipping any child elements.
+     * @param reader positioned at the start of an element, not null
+     * @return not null, possibly empty
+     * @throws XMLStreamException when the xml cannot be read
+     */
+    private static String text(final XMLStreamReader reader)
+            throws XMLStreamException {
+        final StringBuilder result = new StringBuilder();
+        while (true) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                skip(reader);
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return result.toString();
+            } else if (event == XMLStreamConstants.CHARACTERS
+                    || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) {
+                result.append(reader.getTextCharacters(),
+                        reader.getTextStart(), reader.getTextLength());
+            }
+        }
+    }
+
+    /**
+     * Reads the trimmed text directly contained by the current element.
+     * @param reader positioned at the start of an element, not null
+     * @return not null, possibly empty
+     * @throws XMLStreamException when the xml cannot be read
+     */
+    private static String textTrim(final XMLStreamReader reader)
+            throws XMLStreamException {
+        return text(reader).trim();
+    }
+
+    /**
+     * Is the reader positioned at an element with the given name?
+     * @param reader positioned at the start of an element, not null
+     * @param name not null
+     * @return true when named, false otherwise
+     */
+    private static boolean isNamed(final XMLStreamReader reader,
+            final String name) {
+        return name.equals(reader.getLocalName());
+    }
+
+    /**
+     * Reads an attribute of the current element.
+     * @param reader positioned at the start of an element, not null
+     * @param name not null
+     * @return null when the attribute is missing
+     */
+    private static String attribute(final XMLStreamReader reader,
+            final String name) {
+        return reader.getAttributeValue(null, name);
+    }
+
+    /**
+     * Reads an attribute of the current element, interned.
+     * @param reader positioned at the start of an element, not null
+     * @param name not null
+     * @param strings not null
+     * @return null when the attribute is missing
+     */
+    private static String attribute(final XMLStreamReader reader,
+            final String name, final StringPool strings) {
+        return strings.intern(attribute(reader, name));
+    }
+
+    /**
+     * Reads a license definition.
+     * @param reader positioned at the start of the license, not null
+     * @param strings not null
+     * @return not null
+     * @throws XMLStreamException when the xml cannot be read
+     */
+    private static License license(final XMLStreamReader reader,
+            final StringPool strings) throws XMLStreamException {
+        final boolean requiresSource =
+                "yes".equalsIgnoreCase(attribute(reader, "requires-source"));
+        final String id = attribute(reader, "id", strings);
+        final String url = attribute(reader, "url", strings);
+        final String name = attribute(reader, "name", strings);
+        String text = null;
+        Collection<String> expectedParameters = null;
+        while (nextChild(reader)) {
+            if (text == null && isNamed(reader, "text")) {
+                text = text(reader);
+            } else if (expectedParameters == null && isNamed(reader, "template")) {
+                expectedParameters = expectedParameters(reader, strings);
+            } else {
+                skip(reader);
+            }
+        }
+        if (text == null) {
+            text = "";
+        }
+        if (expectedParameters == null) {
+            expectedParameters = new HashSet<String>();
+        }
+        return new License(requiresSource, text, expectedParameters, id, url, name);
+    }
+
+    /**
+     * Reads the parameter names expected by a license template.
+     * @param reader positioned at the start of the template, not null
+     * @param strings not null
+     * @return not null, possibly empty
+     * @throws XMLStreamException when the xml cannot be read
+     */
+    private static Collection<String> expectedParameters(
+            final XMLStreamReader reader, final StringPool strings)
+            throws XMLStreamException {
+        final Collection<String> results = new HashSet<String>();
+        while (nextChild(reader)) {
+            if (isNamed(reader, "parameter-name")) {
+                results.add(strings.intern(textTrim(reader)));
+            } else {
+                skip(reader);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Reads the resources linked to an organisation.
+     * @param reader positioned at the start of the by-organisation,
+     * not null
+     * @param problems not null
+     * @param strings not null
+     * @return not null
+     * @throws XMLStreamException when the xml cannot be read
+     */
+    private static ByOrganisationLink byOrganisation(
+            final XMLStreamReader reader, final Problems problems,
+            final StringPool strings) throws XMLStreamException {
+        final String id = attribute(reader, "id");
+        final Mark mark = problems.mark(reader);
+        final Collection<Resource> resources = new TreeSet<Resource>();
+        while (nextChild(reader)) {
+            if (isNamed(reader, "resource")) {
+                final String name = StringUtils.trim(attribute(reader, "name"));
+                if (name == null) {
+                    problems.report(new MissingAttributeException("resource",
+                            "name"), problems.mark(reader));
+                } else {
+                    resources.add(new Resource(name,
+                            strings.intern(StringUtils.trim(
+                                    attribute(reader, "notice"))),
+                            strings.intern(StringUtils.trim(
+                                    attribute(reader, "source")))));
+                }
+            }
+            skip(reader);
+        }
+        return new ByOrganisationLink(id,
+                Collections.unmodifiableCollection(resources), mark);
+    }
+
+    /**
+     * Reads every by-organisation child of the current element.
+     * @param reader positioned at the start of an element, not null
+     * @param problems not null
+     * @param strings not null
+     * @return not null, possibly empty
+     * @throws XMLStreamException when the xml cannot be read
+     */
+    private static List<ByOrganisationLink> byOrganisations(
+            final XMLStreamReader reader, final Problems problems,
+            final StringPool strings) throws XMLStreamException {
+        final List<ByOrganisationLink> results = new ArrayList<ByOrganisationLink>();
+        while (nextChild(reader)) {
+            if (isNamed(reader, BY_ORGANISATION_NAME)) {
+                results.add(byOrganisation(reader, problems, strings));
+            } else {
+                skip(reader);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Reads license parameter values.
+     * When collecting problems, incomplete parameters are left out,
+     * and the first of those sharing a name kept.
+     * @param reader positioned at the start of the license-parameters,
+     * not null
+     * @param problems not null
+     * @param strings not null
+     * @return values indexed by name, not null
+     * @throws XMLStreamException when the xml cannot be read
+     * @throws DuplicateElementException when two parameters share a name
+     */
+    private static Map<String, String> parameters(final XMLStreamReader reader,
+            final Problems problems, final StringPool strings)
+            throws XMLStreamException {
+        final Map<String, String> results = new HashMap<String, String>();
+        while (nextChild(reader)) {
+            if (isNamed(reader, "parameter")) {
+                final Mark mark = problems.mark(reader);
+                String name = null;
+                String value = null;
+                while (nextChild(reader)) {
+                    if (name == null && isNamed(reader, "name")) {
+                        name = strings.intern(textTrim(reader));
+                    } else if (value == null && isNamed(reader, "value")) {
+                        value = strings.intern(textTrim(reader));
+                    } else {
+                        skip(reader);
+                    }
+                }
+                if (name == null || value == null) {
+                    problems.report(new InvalidXmlException(
+                            "Expected parameter to have both name and value"),
+                            mark);
+                } else if (results.containsKey(name)) {
+                    problems.report(new DuplicateElementException(
+                            "Duplicate parameter '" + name + "'"), mark);
+                } else {
+                    results.put(name, value);
+                }
+            } else {
+                skip(reader);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Reads a with-license.
+     * @param reader positioned at the start of the with-license, not null
+     * @param problems not null
+     * @param strings not null
+     * @return not null
+     * @throws XMLStreamException when the xml cannot be read
+     */
+    private static WithLicenseLink withLicense(final XMLStreamReader reader,
+            final Problems problems, final StringPool strings)
+            throws XMLStreamException {
+        final String id = attribute(reader, "id");
+        final Mark mark = problems.mark(reader);
+        String copyrightNotice = null;
+        Map<String, String> parameters = null;
+        final List<ByOrganisationLink> organisations =
+                new ArrayList<ByOrganisationLink>();
+        while (nextChild(reader)) {
+            if (copyrightNotice == null && isNamed(reader, COPYRIGHT_NOTICE_NAME)) {
+                copyrightNotice = strings.intern(textTrim(reader));
+            } else if (parameters == null && isNamed(reader, "license-parameters")) {
+                parameters = parameters(reader, problems, strings);
+            } else if (isNamed(reader, BY_ORGANISATION_NAME)) {
+                organisations.add(byOrganisation(reader, problems, strings));
+            } else {
+                skip(reader);
+            }
+        }
+        if (parameters == null) {
+            parameters = new HashMap<String, String>();
+        }
+        return new WithLicenseLink(id, copyrightNotice, parameters,
+                organisations, mark);
+    }
+
+    /**
+     * Reads a within directory.
+     * When collecting problems, a within without a directory
+     * is reported, then read so that problems within it are found,
+     * but left out of the work built.
+     * @param reader positioned at the start of the within, not null
+     * @param problems not null
+     * @param strings not null
+     * @return not null
+     * @throws XMLStreamException when the xml cannot be read
+     */
+    private static WithinLink within(final XMLStreamReader reader,
+            final Problems problems, final StringPool strings)
+            throws XMLStreamException {
+        final String dir = attribute(reader, "dir");
+        final Mark mark = problems.mark(reader);
+        if (dir == null) {
+            problems.report(new MissingAttributeException("within", "dir"),
+                    mark);
+        }
+        final List<WithLicenseLink> licenses = new ArrayList<WithLicenseLink>();
+        List<ByOrganisationLink> publicDomain = null;
+        while (nextChild(reader)) {
+            if (isNamed(reader, WITH_LICENSE_NAME)) {
+                licenses.add(withLicense(reader, problems, strings));
+            } else if (publicDomain == null && isNamed(reader, "public-domain")) {
+                publicDomain = byOrganisations(reader, problems, strings);
+            } else {
+                skip(reader);
+            }
+        }
+        if (publicDomain == null) {
+            publicDomain = Collections.emptyList();
+        }
+        return new WithinLink(dir, licenses, publicDomain, mark);
+    }
+
+    /**
+     * Resources linked to an organisation by id.
+     */
+    private static final class ByOrganisationLink {
+        /** Links the organisation. */
+        private final String id;
+        /** Resources by the organisation. */
+        private final Collection<Resource> resources;
+        /** Locates the link, null when problems are not collected. */
+        private final Mark mark;
+
+        /**
+         * Constructs a link.
+         * @param id possibly null
+         * @param resources not null
+         * @param mark possibly null
+         */
+        ByOrganisationLink(final String id,
+                final Collection<Resource> resources, final Mark mark) {
+            this.id = id;
+            this.resources = resources;
+            this.mark = mark;
+        }
+
+        /**
+         * Resolves the organisation.
+         * @param organisations indexed by id, not null
+         * @param problems not null
+         * @return null when the organisation is missing
+         * and problems are collected
+         * @throws MissingIDException when the organisation is missing
+         */
+        ByOrganisation resolve(final Map<String, Organisation> organisations,
+                final Problems problems) {
+            final Organisation organisation = organisations.get(id);
+            if (organisation == null) {
+                problems.report(new MissingIDException(ORGANISATION_ELEMENT_NAME,
+                        BY_ORGANISATION_NAME, id), mark);
+                return null;
+            }
+            return new ByOrganisation(organisation, resources);
+        }
+
+        /**
+         * Resolves every link, leaving out those missing.
+         * @param links not null
+         * @param organisations indexed by id, not null
+         * @param problems not null
+         * @return unmodifiable set sorted by natural order, not null
+         */
+        static SortedSet<ByOrganisation> resolve(
+                final List<ByOrganisationLink> links,
+                final Map<String, Organisation> organisations,
+                final Problems problems) {
+            final SortedSet<ByOrganisation> results = new TreeSet<ByOrganisation>();
+            for (final ByOrganisationLink link: links) {
+                final ByOrganisation result = link.resolve(organisations, problems);
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+            return Collections.unmodifiableSortedSet(results);
+        }
+    }
+
+    /**
+     * Organisations linked to a license by id.
+     */
+    private static final class WithLicenseLink {
+        /** Links the license. */
+        private final String id;
+        /** Optional copyright notice, possibly null. */
+        private final String copyrightNotice;
+        /** License parameter values, indexed by name. */
+        private final Map<String, String> parameters;
+        /** Links organisations. */
+        private final List<ByOrganisationLink> organisations;
+        /** Locates the link, null when problems are not collected. */
+        private final Mark mark;
+
+        /**
+         * Constructs a link.
+         * @param id possibly null
+         * @param copyrightNotice possibly null
+         * @param parameters not null
+         * @param organisations not null
+         * @param mark possibly null
+         */
+        WithLicenseLink(final String id, final String copyrightNotice,
+                final Map<String, String> parameters,
+                final List<ByOrganisationLink> organisations, final Mark mark) {
+            this.id = id;
+            this.copyrightNotice = copyrightNotice;
+            this.parameters = parameters;
+            this.organisations = organisations;
+            this.mark = mark;
+        }
+
+        /**
+         * Resolves the license and organisations.
+         * @param licenses indexed by id, not null
+         * @param organisations indexed by id, not null
+         * @param problems not null
+         * @return null when the license is missing
+         * and problems are collected
+         * @throws MissingIDException when a link is missing
+         */
+        WithLicense resolve(final Map<String, License> licenses,
+                final Map<String, Organisation> organisations,
+                final Problems problems) {
+            final License license = licenses.get(id);
+            if (license == null) {
+                problems.report(new MissingIDException(LICENSE_ELEMENT_NAME,
+                        WITH_LICENSE_NAME, id), mark);
+                return null;
+            }
+            return new WithLicense(license, copyrightNotice, parameters,
+                    ByOrganisationLink.resolve(this.organisations, organisations,
+                            problems));
+        }
+    }
+
+    /**
+     * A within directory, with links by id.
+     */
+    private static final class WithinLink {
+        /** Names the directory, null when missing. */
+        private final String dir;
+        /** Links licenses. */
+        private final List<WithLicenseLink> licenses;
+        /** Links public domain organisations. */
+        private final List<ByOrganisationLink> publicDomain;
+        /** Locates the directory, null when problems are not collected. */
+        private final Mark mark;
+
+        /**
+         * Constructs a link.
+         * @param dir possibly null
+         * @param licenses not null
+         * @param publicDomain not null
+         * @param mark possibly null
+         */
+        WithinLink(final String dir, final List<WithLicenseLink> licenses,
+                final List<ByOrganisationLink> publicDomain, final Mark mark) {
+            this.dir = dir;
+            this.licenses = licenses;
+            this.publicDomain = publicDomain;
+            this.mark = mark;
+        }
+
+        /**
+         * Resolves every link, leaving out those missing
+         * when problems are collected.
+         * @param licenses indexed by id, not null
+         * @param organisations indexed by id, not null
+         * @param problems not null
+         * @return not null
+         * @throws MissingIDException when a link is missing
+         */
+        WithinDirectory resolve(final Map<String, License> licenses,
+                final Map<String, Organisation> organisations,
+                final Problems problems) {
+            final List<WithLicense> withLicenses = new ArrayList<WithLicense>();
+            for (final WithLicenseLink link: this.licenses) {
+                final WithLicense withLicense =
+                        link.resolve(licenses, organisations, problems);
+                if (withLicense != null) {
+                    withLicenses.add(withLicense);
+                }
+            }
+            Collections.sort(withLicenses);
+            return new WithinDirectory(dir, withLicenses,
+                    ByOrganisationLink.resolve(publicDomain, organisations,
+                            problems));
+        }
+    }
+
+    /**
+     * Reports problems found in a descriptor, either by throwing
+     * or by collecting them.
+     */
+    private static final class Problems {
+        /** Names the descriptor, possibly null. */
+        private final String source;
+        /** Problems found, null when thrown instead. */
+        private final List<Problem> found;
+
+        /**
+         * Constructs a reporter.
+         * @param source names the descriptor, possibly null
+         * @param collecting true to collect problems,
+         * false to throw the first
+         */
+        Problems(final String source, final boolean collecting) {
+            this.source = source;
+            this.found = collecting ? new ArrayList<Problem>() : null;
+        }
+
+        /**
+         * Are problems collected, rather than thrown?
+         * @return true when collected
+         */
+        boolean isCollecting() {
+            return found != null;
+        }
+
+        /**
+         * Marks the current position, for problems found later.
+         * Positions are only needed when collecting.
+         * @param reader not null
+         * @return null when problems are thrown
+         */
+        Mark mark(final XMLStreamReader reader) {
+            if (found == null) {
+                return null;
+            }
+            final Location location = reader.getLocation();
+            return new Mark(source, location.getLineNumber(),
+                    location.getColumnNumber());
+        }
+
+        /**
+         * Reports a semantic problem.
+         * @param problem not null
+         * @param mark locates the problem, null when only the
+         * descriptor is known
+         * @throws InvalidXmlException the problem,
+         * when problems are not collected
+         */
+        void report(final InvalidXmlException problem, final Mark mark) {
+            if (found == null) {
+                throw problem;
+            }
+            if (mark == null) {
+                found.add(new Problem(problem, source,
+                        Problem.UNKNOWN, Problem.UNKNOWN));
+            } else {
+                found.add(new Problem(problem, mark.source, mark.line,
+                        mark.column));
+            }
+        }
+
+        /**
+         * Reports xml which cannot be read.
+         * @param problem not null
+         * @throws XMLStreamException the problem,
+         * when problems are not collected
+         */
+        void report(final XMLStreamException problem)
+                throws XMLStreamException {
+            if (found == null) {
+                throw problem;
+            }
+            final Location location = problem.getLocation();
+            if (location == null) {
+                found.add(new Problem(problem, source,
+                        Problem.UNKNOWN, Problem.UNKNOWN));
+            } else {
+                found.add(new Problem(problem, source,
+                        location.getLineNumber(), location.getColumnNumber()));
+            }
+        }
+
+        /**
+         * Reports a descriptor which cannot be read.
+         * Only called when collecting problems.
+         * @param failure not null
+         */
+        void report(final Exception failure) {
+            found.add(new Problem(failure, source,
+                    Problem.UNKNOWN, Problem.UNKNOWN));
+        }
+
+        /**
+         * Adds problems found in an included descriptor.
+         * @param others not null
+         */
+        void addAll(final Problems others) {
+            if (found != null) {
+                found.addAll(others.found);
+            }
+        }
+    }
+
+    /**
+     * Locates a position within a descriptor.
+     */
+    private static final class Mark {
+        /** Names the descriptor, possibly null. */
+        private final String source;
+        /** Line, counting from one. */
+        private final int line;
+        /** Column, counting from one. */
+        private final int column;
+
+        /**
+         * Constructs a mark.
+         * @param source possibly null
+         * @param line counting from one, or unknown
+         * @param column counting from one, or unknown
+         */
+        Mark(final String source, final int line, final int column) {
+            this.source = source;
+            this.line = line;
+            this.column = column;
+        }
+    }
+
+    /**
+     * Collects the work as the document streams past.
+     */
+    private static final class Work {
+        /** Reports problems. */
+        private final Problems problems;
+        /** Interns values read. */
+        private final StringPool strings;
+        /** Licenses indexed by id, null until read. */
+        private Map<String, License> licenses;
+        /** Organisations indexed by id, null until read. */
+        private Map<String, Organisation> organisations;
+        /** Notices indexed by id, null until read. */
+        private Map<String, String> notices;
+        /** Is the primary license element read? */
+        private boolean primaryLicenseRead;
+        /** Links the primary license. */
+        private String primaryLicenseId;
+        /** Locates the primary license link, possibly null. */
+        private Mark primaryLicenseMark;
+        /** Optional primary copyright notice. */
+        private String primaryCopyrightNotice;
+        /** Optional primary notice. */
+        private String primaryNotice;
+        /** Optional primary organisation id. */
+        private String primaryOrganisationId;
+        /** Is the primary organisation element read? */
+        private boolean primaryOrganisationRead;
+        /** Scan patterns, null until read. */
+        private List<String> scanIncludes;
+        /** Scan patterns, null until read. */
+        private List<String> scanExcludes;
+        /** Directories in document order. */
+        private final List<WithinLink> contents = new ArrayList<WithinLink>();
+        /** References included descriptors, in document order. */
+        private final List<String> includes = new ArrayList<String>();
+
+        /**
+         * Constructs work.
+         * @param problems not null
+         * @param strings not null
+         */
+        Work(final Problems problems, final StringPool strings) {
+            this.problems = problems;
+            this.strings = strings;
+        }
+
+        /**
+         * Reads the children of the root element.
+         * @param reader positioned at the start of the root, not null
+         * @return this, not null
+         * @throws XMLStreamException when the xml cannot be read
+         */
+        Work read(final XMLStreamReader reader) throws XMLStreamException {
+            while (nextChild(reader)) {
+                if (licenses == null && isNamed(reader, "licenses")) {
+                    readLicenses(reader);
+                } else if (organisations == null && isNamed(reader, "organisations")) {
+                    readOrganisations(reader);
+                } else if (notices == null && isNamed(reader, "notices")) {
+                    readNotices(reader);
+                } else if (!primaryLicenseRead && isNamed(reader, PRIMARY_LICENSE_NAME)) {
+                    readPrimaryLicense(reader);
+                } else if (primaryNotice == null && isNamed(reader, "primary-notice")) {
+                    primaryNotice = text(reader).replace(YEAR_VARIABLE,
+                            Integer.toString(Calendar.getInstance().get(Calendar.YEAR)));
+                } else if (!primaryOrganisationRead
+                        && isNamed(reader, "primary-organisation")) {
+                    primaryOrganisationRead = true;
+                    primaryOrganisationId = attribute(reader, "id", strings);
+                    skip(reader);
+                } else if (scanIncludes == null && isNamed(reader, "scan")) {
+                    readScan(reader);
+                } else if (isNamed(reader, "within")) {
+                    contents.add(within(reader, problems, strings));
+                } else if (isNamed(reader, IMPORT_ELEMENT_NAME)) {
+                    final String href = attribute(reader, "href");
+                    if (href == null) {
+                        problems.report(new InvalidXmlException(
+                                "Expected import to have an href"),
+                                problems.mark(reader));
+                    } else {
+                        includes.add(href);
+                    }
+                    skip(reader);
+                } else {
+                    skip(reader);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Reads license definitions.
+         * @param reader positioned at the start of the licenses, not null
+         * @throws XMLStreamException when the xml cannot be read
+         */
+        private void readLicenses(final XMLStreamReader reader)
+                throws XMLStreamException {
+            licenses = new HashMap<String, License>();
+            while (nextChild(reader)) {
+                license(reader, strings).storeIn(licenses);
+            }
+        }
+
+        /**
+         * Reads organisation definitions.
+         * @param reader positioned at the start of the organisations,
+         * not null
+         * @throws XMLStreamException when the xml cannot be read
+         */
+        private void readOrganisations(final XMLStreamReader reader)
+                throws XMLStreamException {
+            organisations = new HashMap<String, Organisation>();
+            while (nextChild(reader)) {
+                if (isNamed(reader, ORGANISATION_ELEMENT_NAME)) {
+                    new Organisation(attribute(reader, "id", strings),
+                            attribute(reader, "name", strings),
+                            attribute(reader, "url", strings)).storeIn(organisations);
+                }
+                skip(reader);
+            }
+        }
+
+        /**
+         * Reads notices.
+         * @param reader positioned at the start of the notices, not null
+         * @throws XMLStreamException when the xml cannot be read
+         */
+        private void readNotices(final XMLStreamReader reader)
+                throws XMLStreamException {
+            notices = new HashMap<String, String>();
+            while (nextChild(reader)) {
+                final String id = attribute(reader, "id", strings);
+                notices.put(id, textTrim(reader));
+            }
+        }
+
+        /**
+         * Reads the primary license link.
+         * @param reader positioned at the start of the primary license,
+         * not null
+         * @throws XMLStreamException when the xml cannot be read
+         */
+        private void readPrimaryLicense(final XMLStreamReader reader)
+                throws XMLStreamException {
+            primaryLicenseRead = true;
+            primaryLicenseId = attribute(reader, "id", strings);
+            primaryLicenseMark = problems.mark(reader);
+            while (nextChild(reader)) {
+                if (primaryCopyrightNotice == null
+                        && isNamed(reader, COPYRIGHT_NOTICE_NAME)) {
+                    primaryCopyrightNotice = textTrim(reader);
+                } else {
+                    skip(reader);
+                }
+            }
+        }
+
+        /**
+         * Reads scan patterns.
+         * @param reader positioned at the start of the scan, not null
+         * @throws XMLStreamException when the xml cannot be read
+         */
+        private void readScan(final XMLStreamReader reader)
+                throws XMLStreamException {
+            scanIncludes = new ArrayList<String>();
+            scanExcludes = new ArrayList<String>();
+            while (nextChild(reader)) {
+                if (isNamed(reader, "include")) {
+                    scanIncludes.add(textTrim(reader));
+                } else if (isNamed(reader, "exclude")) {
+                    scanExcludes.add(textTrim(reader));
+                } else {
+                    skip(reader);
+                }
+            }
+        }
+
+        /**
+         * Merges licenses, organisations, notices and directories
+         * from an included descriptor, together with any problems
+         * found in it. Other elements of included descriptors
+         * are ignored.
+         * @param fragment not null
+         * @param location locates the included descriptor, not null
+         * @throws DuplicateElementException when an id is already defined
+         */
+        void merge(final Work fragment, final String location) {
+            licenses = merge(licenses, fragment.licenses,
+                    LICENSE_ELEMENT_NAME, location);
+            organisations = merge(organisations, fragment.organisations,
+                    ORGANISATION_ELEMENT_NAME, location);
+            notices = merge(notices, fragment.notices, "notice", location);
+            contents.addAll(fragment.contents);
+            problems.addAll(fragment.problems);
+        }
+
+        /**
+         * Merges definitions indexed by id.
+         * When collecting problems, the first definition is kept.
+         * @param into possibly null, when not read
+         * @param from possibly null, when not read
+         * @param element names the element defined, not null
+         * @param location locates the included descriptor, not null
+         * @param <V> value type
+         * @return merged definitions, possibly null
+         * @throws DuplicateElementException when an id is already defined
+         */
+        private <V> Map<String, V> merge(final Map<String, V> into,
+                final Map<String, V> from, final String element,
+                final String location) {
+            if (from == null) {
+                return into;
+            }
+            final Map<String, V> results = into == null
+                    ? new HashMap<String, V>() : into;
+            for (final Map.Entry<String, V> entry: from.entrySet()) {
+                if (results.containsKey(entry.getKey())) {
+                    problems.report(new DuplicateElementException("Duplicate "
+                            + element + " id '" + entry.getKey()
+                            + "' included from '" + location + "'"),
+                            new Mark(location, Problem.UNKNOWN, Problem.UNKNOWN));
+                } else {
+                    results.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return results;
+        }
+
+        /**
+         * Resolves links, then builds the work.
+         * When collecting problems, whatever is in error is left out.
+         * @return not null
+         * @throws MissingIDException when a link is missing
+         * @throws DuplicateElementException when directory names
+         * are not unique
+         */
+        Descriptor build() {
+            final Map<String, Organisation> organisations = unmodifiable(this.organisations);
+            final Map<String, License> licenses = unmodifiable(this.licenses);
+            final License primaryLicense = licenses.get(primaryLicenseId);
+            if (primaryLicense == null) {
+                problems.report(new MissingIDException(LICENSE_ELEMENT_NAME,
+                        PRIMARY_LICENSE_NAME, primaryLicenseId),
+                        primaryLicenseMark);
+            }
+            final Collection<WithinDirectory> directories = new TreeSet<WithinDirectory>();
+            for (final WithinLink link: contents) {
+                final WithinDirectory directory =
+                        link.resolve(licenses, organisations, problems);
+                if (link.dir == null) {
+                    // Reported when read
+                    continue;
+                }
+                if (!directories.add(directory)) {
+                    problems.report(new DuplicateElementException(
+                            "Duplicate parameter '" + link.dir + "'"), link.mark);
+                }
+            }
+            return new Descriptor(primaryLicense, primaryCopyrightNotice,
+                    primaryOrganisationId, primaryNotice, licenses,
+                    unmodifiable(notices), organisations, directories,
+                    unmodifiable(scanIncludes), unmodifiable(scanExcludes));
+        }
+
+        /**
+         * Wraps a map read.
+         * @param map possibly null, when not read
+         * @param <V> value type
+         * @return unmodifiable, not null
+         */
+        private static <V> Map<String, V> unmodifiable(final Map<String, V> map) {
+            if (map == null) {
+                return Collections.emptyMap();
+            }
+            return Collections.unmodifiableMap(map);
+        }
+
+        /**
+         * Wraps a list read.
+         * @param list possibly null, when not read
+         * @return unmodifiable, not null
+         */
+        private static List<String> unmodifiable(final List<String> list) {
+            if (list == null) {
+                return Collections.emptyList();
+            }
+            return Collections.unmodifiableList(list);
+        }
+    }
+}
@@ -0,0 +1,600 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.toxml;
+
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.creadur.whisker.model.ByOrganisation;
+import org.apache.creadur.whisker.model.Descriptor;
+import org.apache.creadur.whisker.model.License;
+import org.apache.creadur.whisker.model.Organisation;
+import org.apache.creadur.whisker.model.Resource;
+import org.apache.creadur.whisker.model.WithLicense;
+import org.apache.creadur.whisker.model.WithinDirectory;
+
+/**
+ * Writes descriptors as xml using StAX, element by element.
+ * <p>
+ * Elements are written as soon as they are given, so meta-data
+ * may be streamed without first being collected in memory:
+ * start the manifest, write the licenses and organisations,
+ * then each directory in turn, then end the manifest.
+ * Whole descriptors are written by {@link #write(Descriptor)},
+ * in a form read back to an equal model.
+ * </p>
+ * <p>
+ * Output is indented, except within elements containing text,
+ * whose content is written exactly.
+ * </p>
+ */
+public class DescriptorWriter {
+
+    /** Declares the elements of a descriptor, for visual editors. */
+    public static final String DOCUMENT_TYPE = "<!DOCTYPE manifest [\n"
+        + "<!ELEMENT manifest (import*, licenses, notices, organisations,\n"
+        + "    primary-license, primary-notice?, primary-organisation?, scan?, within*)>\n"
+        + "<!ELEMENT import EMPTY>\n"
+        + "<!ATTLIST import href CDATA #REQUIRED>\n"
+        + "<!ELEMENT licenses (license*)>\n"
+        + "<!ELEMENT license (template?, text)>\n"
+        + "<!ATTLIST license name CDATA #REQUIRED>\n"
+        + "<!ATTLIST license url CDATA #IMPLIED>\n"
+        + "<!ATTLIST license id ID #REQUIRED>\n"
+        + "<!ATTLIST license requires-source (yes|no) \"no\">\n"
+        + "<!ELEMENT text (#PCDATA)>\n"
+        + "<!ELEMENT template (parameter-name+)>\n"
+        + "<!ELEMENT parameter-name (#PCDATA)>\n"
+        + "<!ELEMENT notices (notice*)>\n"
+        + "<!ELEMENT notice (#PCDATA)>\n"
+        + "<!ATTLIST notice id ID #REQUIRED>\n"
+        + "<!ELEMENT organisations (organisation*)>\n"
+        + "<!ELEMENT organisation EMPTY>\n"
+        + "<!ATTLIST organisation id ID #REQUIRED>\n"
+        + "<!ATTLIST organisation name CDATA #REQUIRED>\n"
+        + "<!ATTLIST organisation url CDATA #IMPLIED>\n"
+        + "<!ELEMENT primary-license (copyright-notice?)>\n"
+        + "<!ATTLIST primary-license id IDREF #REQUIRED>\n"
+        + "<!ELEMENT primary-notice (#PCDATA)>\n"
+        + "<!ELEMENT primary-organisation EMPTY>\n"
+        + "<!ATTLIST primary-organisation id IDREF #REQUIRED>\n"
+        + "<!ELEMENT scan (include*, exclude*)>\n"
+        + "<!ELEMENT include (#PCDATA)>\n"
+        + "<!ELEMENT exclude (#PCDATA)>\n"
+        + "<!ELEMENT within (public-domain?, with-license*)>\n"
+        + "<!ATTLIST within dir CDATA #REQUIRED>\n"
+        + "<!ELEMENT with-license (copyright-notice?, license-parameters?, by-organisation*)>\n"
+        + "<!ATTLIST with-license id IDREF #REQUIRED>\n"
+        + "<!ELEMENT copyright-notice (#PCDATA)>\n"
+        + "<!ELEMENT license-parameters (parameter*)>\n"
+        + "<!ELEMENT parameter (name, value)>\n"
+        + "<!ELEMENT name (#PCDATA)>\n"
+        + "<!ELEMENT value (#PCDATA)>\n"
+        + "<!ELEMENT public-domain (by-organisation*)>\n"
+        + "<!ELEMENT by-organisation (resource*)>\n"
+        + "<!ATTLIST by-organisation id IDREF #REQUIRED>\n"
+        + "<!ELEMENT resource EMPTY>\n"
+        + "<!ATTLIST resource name CDATA #REQUIRED>\n"
+        + "<!ATTLIST resource sha1 CDATA #IMPLIED>\n"
+        + "<!ATTLIST resource notice IDREF #IMPLIED>\n"
+        + "<!ATTLIST resource source CDATA #IMPLIED>\n"
+        + "]>";
+
+    /** Indents each level of nesting. */
+    private static final String INDENT = "    ";
+
+    /** Creates writers, once configured only read so safe to share. */
+    private static final XMLOutputFactory FACTORY = XMLOutputFactory.newInstance();
+
+    /** Writes xml. */
+    private final XMLStreamWriter out;
+    /** For each element open, innermost first, does it contain elements? */
+    private final Deque<Boolean> open = new ArrayDeque<Boolean>();
+
+    /**
+     * Constructs a writer.
+     * @param writer not null, left open when writing is done
+     * @throws XMLStreamException when a stream writer cannot be created
+     */
+    public DescriptorWriter(final Writer writer) throws XMLStreamException {
+        super();
+        out = FACTORY.createXMLStreamWriter(writer);
+    }
+
+    /**
+     * Writes a whole descriptor.
+     * Definitions are written in order of id, so output is stable.
+     * @param work not null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter write(final Descriptor work)
+            throws XMLStreamException {
+        startManifest();
+        startLicenses();
+        for (final License license:
+                new TreeMap<String, License>(work.getLicenses()).values()) {
+            license(license);
+        }
+        end();
+        startNotices();
+        for (final Map.Entry<String, String> notice:
+                new TreeMap<String, String>(work.getNotices()).entrySet()) {
+            notice(notice.getKey(), notice.getValue());
+        }
+        end();
+        startOrganisations();
+        for (final Organisation organisation:
+                new TreeMap<String, Organisation>(work.getOrganisations()).values()) {
+            organisation(organisation);
+        }
+        end();
+        if (work.getPrimaryLicense() != null) {
+            primaryLicense(work.getPrimaryLicense().getId(),
+                    work.getPrimaryCopyrightNotice());
+        }
+        if (work.getPrimaryNotice() != null) {
+            primaryNotice(work.getPrimaryNotice());
+        }
+        if (work.getPrimaryOrganisationId() != null) {
+            primaryOrganisation(work.getPrimaryOrganisationId());
+        }
+        scan(work.getScanIncludes(), work.getScanExcludes());
+        for (final WithinDirectory directory: work.getContents()) {
+            within(directory);
+        }
+        return endManifest();
+    }
+
+    /**
+     * Starts the document, declaring the document type,
+     * then opens the manifest.
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter startManifest() throws XMLStreamException {
+        out.writeStartDocument("UTF-8", "1.0");
+        out.writeCharacters("\n");
+        out.writeDTD(DOCUMENT_TYPE);
+        return start("manifest");
+    }
+
+    /**
+     * Closes the manifest, then ends the document
+     * and flushes everything written.
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter endManifest() throws XMLStreamException {
+        while (!open.isEmpty()) {
+            end();
+        }
+        out.writeCharacters("\n");
+        out.writeEndDocument();
+        out.flush();
+        return this;
+    }
+
+    /**
+     * Closes the innermost element open.
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter end() throws XMLStreamException {
+        if (open.pop()) {
+            newLine();
+        }
+        out.writeEndElement();
+        return this;
+    }
+
+    /**
+     * Opens the license definitions.
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter startLicenses() throws XMLStreamException {
+        return start("licenses");
+    }
+
+    /**
+     * Writes a license definition.
+     * @param license not null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter license(final License license)
+            throws XMLStreamException {
+        start("license");
+        attribute("id", license.getId());
+        attribute("name", license.getName());
+        attribute("url", license.getURL());
+        if (license.isSourceRequired()) {
+            attribute("requires-source", "yes");
+        }
+        if (!license.getExpectedParameters().isEmpty()) {
+            start("template");
+            for (final String name:
+                    new TreeSet<String>(license.getExpectedParameters())) {
+                text("parameter-name", name);
+            }
+            end();
+        }
+        text("text", license.getBaseText());
+        return end();
+    }
+
+    /**
+     * Opens the notice definitions.
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter startNotices() throws XMLStreamException {
+        return start("notices");
+    }
+
+    /**
+     * Writes a notice definition.
+     * @param id not null
+     * @param text possibly null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter notice(final String id, final String text)
+            throws XMLStreamException {
+        start("notice");
+        attribute("id", id);
+        characters(text);
+        return end();
+    }
+
+    /**
+     * Opens the organisation definitions.
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter startOrganisations() throws XMLStreamException {
+        return start("organisations");
+    }
+
+    /**
+     * Writes an organisation definition.
+     * @param organisation not null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter organisation(final Organisation organisation)
+            throws XMLStreamException {
+        empty("organisation");
+        attribute("id", organisation.getId());
+        attribute("name", organisation.getName());
+        attribute("url", organisation.getURL());
+        return this;
+    }
+
+    /**
+     * Links the primary license.
+     * @param id not null
+     * @param copyrightNotice possibly null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter primaryLicense(final String id,
+            final String copyrightNotice) throws XMLStreamException {
+        if (copyrightNotice == null) {
+            empty("primary-license");
+            attribute("id", id);
+            return this;
+        }
+        start("primary-license");
+        attribute("id", id);
+        text("copyright-notice", copyrightNotice);
+        return end();
+    }
+
+    /**
+     * Writes the primary notice.
+     * @param text not null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter primaryNotice(final String text)
+            throws XMLStreamException {
+        return text("primary-notice", text);
+    }
+
+    /**
+     * Links the primary organisation.
+     * @param id not null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter primaryOrganisation(final String id)
+            throws XMLStreamException {
+        empty("primary-organisation");
+        attribute("id", id);
+        return this;
+    }
+
+    /**
+     * Writes the patterns selecting resources scanned,
+     * unless there are none.
+     * @param includes not null
+     * @param excludes not null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter scan(final Collection<String> includes,
+            final Collection<String> excludes) throws XMLStreamException {
+        if (includes.isEmpty() && excludes.isEmpty()) {
+            return this;
+        }
+        start("scan");
+        for (final String include: includes) {
+            text("include", include);
+        }
+        for (final String exclude: excludes) {
+            text("exclude", exclude);
+        }
+        return end();
+    }
+
+    /**
+     * Writes a directory, with its licenses and resources.
+     * @param directory not null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter within(final WithinDirectory directory)
+            throws XMLStreamException {
+        startWithin(directory.getName());
+        if (!directory.getPublicDomain().isEmpty()) {
+            startPublicDomain();
+            byOrganisations(directory.getPublicDomain());
+            end();
+        }
+        for (final WithLicense license: directory.getLicenses()) {
+            startWithLicense(license.getLicense().getId(),
+                    license.getCopyrightNotice(), license.getParameters());
+            byOrganisations(license.getOrganisations());
+            end();
+        }
+        return end();
+    }
+
+    /**
+     * Writes organisations with their resources.
+     * @param organisations not null
+     * @throws XMLStreamException when writing fails
+     */
+    private void byOrganisations(final Collection<ByOrganisation> organisations)
+            throws XMLStreamException {
+        for (final ByOrganisation organisation: organisations) {
+            startByOrganisation(organisation.getId());
+            for (final Resource resource: organisation.getResources()) {
+                resource(resource);
+            }
+            end();
+        }
+    }
+
+    /**
+     * Opens a directory.
+     * @param dir names the directory, not null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter startWithin(final String dir)
+            throws XMLStreamException {
+        start("within");
+        attribute("dir", dir);
+        return this;
+    }
+
+    /**
+     * Opens the public domain resources of a directory.
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter startPublicDomain() throws XMLStreamException {
+        return start("public-domain");
+    }
+
+    /**
+     * Opens resources sharing a license.
+     * @param id links the license, not null
+     * @param copyrightNotice possibly null
+     * @param parameters values for a license template,
+     * not null, possibly empty
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter startWithLicense(final String id,
+            final String copyrightNotice, final Map<String, String> parameters)
+            throws XMLStreamException {
+        start("with-license");
+        attribute("id", id);
+        if (copyrightNotice != null) {
+            text("copyright-notice", copyrightNotice);
+        }
+        if (!parameters.isEmpty()) {
+            start("license-parameters");
+            for (final Map.Entry<String, String> parameter:
+                    new TreeMap<String, String>(parameters).entrySet()) {
+                start("parameter");
+                text("name", parameter.getKey());
+                text("value", parameter.getValue());
+                end();
+            }
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Opens the resources of an organisation.
+     * @param id links the organisation, not null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter startByOrganisation(final String id)
+            throws XMLStreamException {
+        start("by-organisation");
+        attribute("id", id);
+        return this;
+    }
+
+    /**
+     * Writes a resource.
+     * @param resource not null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter resource(final Resource resource)
+            throws XMLStreamException {
+        return resource(resource, null);
+    }
+
+    /**
+     * Writes a resource, with the hash of its contents.
+     * @param resource not null
+     * @param sha1 hex encoded hash, possibly null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter resource(final Resource resource,
+            final String sha1) throws XMLStreamException {
+        empty("resource");
+        attribute("name", resource.getName());
+        attribute("sha1", sha1);
+        attribute("notice", resource.getNoticeId());
+        attribute("source", resource.getSource());
+        return this;
+    }
+
+    /**
+     * Writes a comment, on its own line.
+     * @param text not null, not containing <code>--</code>
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    public DescriptorWriter comment(final String text)
+            throws XMLStreamException {
+        newElement();
+        out.writeComment(" " + text + " ");
+        return this;
+    }
+
+    /**
+     * Opens an element on a new line.
+     * @param name not null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    private DescriptorWriter start(final String name)
+            throws XMLStreamException {
+        newElement();
+        out.writeStartElement(name);
+        open.push(Boolean.FALSE);
+        return this;
+    }
+
+    /**
+     * Writes an empty element on a new line.
+     * Attributes may follow.
+     * @param name not null
+     * @throws XMLStreamException when writing fails
+     */
+    private void empty(final String name) throws XMLStreamException {
+        newElement();
+        out.writeEmptyElement(name);
+    }
+
+    /**
+     * Writes an element containing only text, on a new line.
+     * @param name not null
+     * @param text possibly null
+     * @return this, not null
+     * @throws XMLStreamException when writing fails
+     */
+    private DescriptorWriter text(final String name, final String text)
+            throws XMLStreamException {
+        start(name);
+        characters(text);
+        return end();
+    }
+
+    /**
+     * Writes text exactly.
+     * @param text possibly null
+     * @throws XMLStreamException when writing fails
+     */
+    private void characters(final String text) throws XMLStreamException {
+        if (text != null) {
+            out.writeCharacters(text);
+        }
+    }
+
+    /**
+     * Writes an attribute of the element just opened.
+     * @param name not null
+     * @param value omitted when null
+     * @throws XMLStreamException when writing fails
+     */
+    private void attribute(final String name, final String value)
+            throws XMLStreamException {
+        if (value != null) {
+            out.writeAttribute(name, value);
+        }
+    }
+
+    /**
+     * Notes that the innermost element contains elements,
+     * then starts a new line.
+     * @throws XMLStreamException when writing fails
+     */
+    private void newElement() throws XMLStreamException {
+        if (!open.isEmpty()) {
+            open.pop();
+            open.push(Boolean.TRUE);
+        }
+        newLine();
+    }
+
+    /**
+     * Starts a new line indented to the depth of nesting.
+     * @throws XMLStreamException when writing fails
+     */
+    private void newLine() throws XMLStreamException {
+        final StringBuilder line = new StringBuilder("\n");
+        for (int i = open.size(); i > 0; i--) {
+            line.append(INDENT);
+        }
+        out.writeCharacters(line.toString());
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.fromxml;
+
+import static org.apache.creadur.whisker.fromxml.StaxBuilderTest.DOCUMENT;
+import static org.apache.creadur.whisker.fromxml.StaxBuilderTest.describe;
+import static org.apache.creadur.whisker.fromxml.StaxBuilderTest.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.apache.creadur.whisker.model.Descriptor;
+import org.apache.creadur.whisker.model.License;
+import org.apache.creadur.whisker.model.StringPool;
+
+public class DescriptorCacheTest extends TestCase {
+
+    private File directory;
+    private DescriptorCache subject;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = Files.createTempDirectory("whisker-descriptors").toFile();
+        subject = new DescriptorCache(new File(directory, "cache"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        StaxBuilderTest.delete(directory);
+        super.tearDown();
+    }
+
+    public void testSnapshotRoundTrips() throws Exception {
+        final Descriptor work = new StaxBuilder().build(stream(DOCUMENT));
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        DescriptorSnapshot.write(work, "key", Collections.<String, String>emptyMap(), out);
+        out.close();
+
+        final Descriptor result = DescriptorSnapshot.read("key",
+                ByteBuffer.wrap(bytes.toByteArray()), new StringPool());
+
+        assertEquals(describe(work), describe(result));
+        assertSame(result.getPrimaryLicense(), result.getLicenses().get("AL2"));
+    }
+
+    public void testSnapshotTextsAreDecodedOnlyOnce() throws Exception {
+        subject.load(stream(DOCUMENT));
+        final Descriptor result = subject.load(stream(DOCUMENT));
+        final License license = result.getLicenses().get("AL2");
+
+        final String text = license.getBaseText();
+
+        assertEquals("  Licensed by The Apache Software Foundation\n  <verbatim> ", text);
+        assertSame(text, license.getBaseText());
+        assertEquals("", result.getLicenses().get("empty").getBaseText());
+    }
+
+    public void testSnapshotForOtherKeyIsIgnored() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        DescriptorSnapshot.write(new StaxBuilder().build(stream(DOCUMENT)), "key",
+                Collections.<String, String>emptyMap(), out);
+        out.close();
+
+        assertNull(DescriptorSnapshot.read("other",
+                ByteBuffer.wrap(bytes.toByteArray()), new StringPool()));
+    }
+
+    public void testSecondLoadUsesSnapshot() throws Exception {
+        final Descriptor first = subject.load(stream(DOCUMENT));
+        final File[] snapshots = subject.getDirectory().listFiles();
+        assertEquals(1, snapshots.length);
+        assertTrue(snapshots[0].setLastModified(1000));
+
+        final Descriptor second = subject.load(stream(DOCUMENT));
+
+        assertEquals(describe(first), describe(second));
+        assertEquals("Snapshot should not be rewritten", 1000, snapshots[0].lastModified());
+    }
+
+    public void testDifferentXmlHasOwnSnapshot() throws Exception {
+        subject.load(stream(DOCUMENT));
+        subject.load(stream("<manifest><licenses><license id='x'/></licenses>"
+                + "<primary-license id='x'/></manifest>"));
+        assertEquals(2, subject.getDirectory().listFiles().length);
+    }
+
+    public void testChangedIncludeRebuildsSnapshot() throws Exception {
+        StaxBuilderTest.write(directory, "licenses.xml",
+                "<manifest><licenses><license id='x' name='Before'/></licenses></manifest>");
+        final URL root = StaxBuilderTest.write(directory, "root.xml",
+                "<manifest><import href='licenses.xml'/><primary-license id='x'/></manifest>");
+        assertEquals("Before", subject.load(root).getPrimaryLicense().getName());
+        assertEquals("Before", subject.load(root).getPrimaryLicense().getName());
+
+        StaxBuilderTest.write(directory, "licenses.xml",
+                "<manifest><licenses><license id='x' name='After'/></licenses></manifest>");
+
+        assertEquals("After", subject.load(root).getPrimaryLicense().getName());
+    }
+
+    public void testUnwritableCacheStillLoads() throws Exception {
+        assertTrue(subject.getDirectory().createNewFile());
+
+        final Descriptor result = subject.load(stream(DOCUMENT));
+
+        assertEquals(describe(new StaxBuilder().build(stream(DOCUMENT))), describe(result));
+    }
+
+    public void testIdenticalXmlImportingFromElsewhereHasOwnSnapshot() throws Exception {
+        final String root = "<manifest><import href='licenses.xml'/>"
+                + "<primary-license id='x'/></manifest>";
+        StaxBuilderTest.write(directory, "m1/licenses.xml",
+                "<manifest><licenses><license id='x' name='One'/></licenses></manifest>");
+        StaxBuilderTest.write(directory, "m2/licenses.xml",
+                "<manifest><licenses><license id='x' name='Two'/></licenses></manifest>");
+        final URL one = StaxBuilderTest.write(directory, "m1/top.xml", root);
+        final URL two = StaxBuilderTest.write(directory, "m2/top.xml", root);
+
+        assertEquals("One", subject.load(one).getPrimaryLicense().getName());
+        assertEquals("Two", subject.load(two).getPrimaryLicense().getName());
+        assertEquals("One", subject.load(one).getPrimaryLicense().getName());
+        assertEquals("Two", subject.load(two).getPrimaryLicense().getName());
+        assertEquals(2, subject.getDirectory().listFiles().length);
+    }
+
+    public void testIdenticalXmlWithoutImportsSharesSnapshot() throws Exception {
+        final String document = "<manifest><licenses><license id='x' name='One'/>"
+                + "</licenses><primary-license id='x'/></manifest>";
+        subject.load(StaxBuilderTest.write(directory, "m1/top.xml", document));
+        subject.load(StaxBuilderTest.write(directory, "m2/top.xml", document));
+        assertEquals(1, subject.getDirectory().listFiles().length);
+    }
+
+    public void testCorruptSnapshotIsRebuilt() throws Exception {
+        subject.load(stream(DOCUMENT));
+        final File snapshot = subject.getDirectory().listFiles()[0];
+        Files.write(snapshot.toPath(), new byte[] {1, 2, 3});
+
+        final Descriptor result = subject.load(stream(DOCUMENT));
+
+        assertEquals(describe(new StaxBuilder().build(stream(DOCUMENT))), describe(result));
+        assertTrue(snapshot.length() > 3);
+    }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.fromxml;
+
+import static org.apache.creadur.whisker.fromxml.StaxBuilderTest.DOCUMENT;
+import static org.apache.creadur.whisker.fromxml.StaxBuilderTest.describe;
+import static org.apache.creadur.whisker.fromxml.StaxBuilderTest.stream;
+
+import java.io.StringWriter;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.apache.creadur.whisker.model.Descriptor;
+import org.apache.creadur.whisker.model.Resource;
+import org.apache.creadur.whisker.toxml.DescriptorWriter;
+
+/**
+ * Checks that descriptors written by {@link DescriptorWriter}
+ * read back to an equal model.
+ */
+public class DescriptorRoundTripTest extends TestCase {
+
+    public void testWrittenDescriptorReadsBackEqual() throws Exception {
+        final Descriptor work = new StaxBuilder().build(stream(DOCUMENT));
+
+        final String xml = write(work);
+
+        assertEquals(describe(work), describe(new StaxBuilder().build(stream(xml))));
+        assertEquals(describe(work), describe(new JDomBuilder().build(stream(xml))));
+    }
+
+    public void testWritingIsStable() throws Exception {
+        final String xml = write(new StaxBuilder().build(stream(DOCUMENT)));
+        assertEquals(xml, write(new StaxBuilder().build(stream(xml))));
+    }
+
+    public void testTextIsEscapedAndPreserved() throws Exception {
+        final String xml = write(new StaxBuilder().build(stream(DOCUMENT)));
+        assertTrue(xml, xml.contains(
+                "<text>  Licensed by The Apache Software Foundation\n  &lt;verbatim&gt; </text>"));
+    }
+
+    public void testDocumentIsIndented() throws Exception {
+        final String xml = write(new StaxBuilder().build(stream(DOCUMENT)));
+        assertTrue(xml, xml.contains("\n<manifest>\n    <licenses>\n        <license id=\"AL2\""));
+        assertTrue(xml, xml.contains("\n    <primary-license id=\"AL2\">\n"
+                + "        <copyright-notice>Copyright (c) me</copyright-notice>\n"
+                + "    </primary-license>\n"));
+        assertTrue(xml, xml.endsWith("\n</manifest>\n"));
+    }
+
+    public void testElementsMayBeStreamed() throws Exception {
+        final StringWriter out = new StringWriter();
+        new DescriptorWriter(out).startManifest()
+            .startLicenses().end()
+            .startOrganisations().end()
+            .primaryLicense("x", null)
+            .startWithin("lib")
+                .startWithLicense("x", null, Collections.<String, String>emptyMap())
+                    .startByOrganisation("o")
+                        .comment("hint")
+                        .resource(new Resource("R&D.jar", null, null), "abc")
+                    .end()
+                .end()
+            .endManifest();
+
+        assertTrue(out.toString(), out.toString().endsWith("<manifest>\n"
+                + "    <licenses></licenses>\n"
+                + "    <organisations></organisations>\n"
+                + "    <primary-license id=\"x\"/>\n"
+                + "    <within dir=\"lib\">\n"
+                + "        <with-license id=\"x\">\n"
+                + "            <by-organisation id=\"o\">\n"
+                + "                <!-- hint -->\n"
+                + "                <resource name=\"R&amp;D.jar\" sha1=\"abc\"/>\n"
+                + "            </by-organisation>\n"
+                + "        </with-license>\n"
+                + "    </within>\n"
+                + "</manifest>\n"));
+    }
+
+    private static String write(final Descriptor work) throws Exception {
+        final StringWriter out = new StringWriter();
+        new DescriptorWriter(out).write(work);
+        return out.toString();
+    }
+}
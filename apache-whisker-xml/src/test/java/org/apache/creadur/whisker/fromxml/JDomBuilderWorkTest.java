@@ -19,6 +19,7 @@
 package org.apache.creadur.whisker.fromxml;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -54,6 +55,25 @@ public class JDomBuilderWorkTest extends TestCase {
     }
 
 
+    public void testScanPatternsAreEmptyWhenDocumentHasNoScan() throws Exception {
+        final Collection<String> results =
+            subject.scanPatterns(new Document().setRootElement(new Element("manifest")), "exclude");
+        assertNotNull("Builder should build something", results);
+        assertTrue("Should be empty when no scan present", results.isEmpty());
+    }
+
+    public void testScanPatternsAreCollectedInDocumentOrder() throws Exception {
+        final Document in = new Document().setRootElement(new Element("manifest").addContent(
+                new Element("scan")
+                    .addContent(new Element("exclude").setText(" docs/apidocs/** "))
+                    .addContent(new Element("include").setText("lib/*.jar"))
+                    .addContent(new Element("exclude").setText("**/*.html"))));
+        assertEquals("Expected excludes in order", Arrays.asList("docs/apidocs/**", "**/*.html"),
+                subject.scanPatterns(in, "exclude"));
+        assertEquals("Expected includes", Collections.singletonList("lib/*.jar"),
+                subject.scanPatterns(in, "include"));
+    }
+
     public void testMapNoticesIsEmptyWhenDocumentHasNoNotices() throws Exception {
         final Map<String, String> results = subject.mapNotices(new Document().setRootElement(new Element("manifest")));
         assertNotNull("Builder should build something", results);
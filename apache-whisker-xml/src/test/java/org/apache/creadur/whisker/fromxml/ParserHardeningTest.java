@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.fromxml;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that builders never reach outside the descriptor,
+ * and may be shared between threads.
+ */
+public class ParserHardeningTest extends TestCase {
+
+    private static final String MINIMAL_BODY =
+            "<manifest><licenses><license id='x'><text>X[&ext;]</text></license>"
+            + "</licenses><primary-license id='x'/></manifest>";
+
+    private File directory;
+    private String secret;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = Files.createTempDirectory("whisker-hardening").toFile();
+        final File file = new File(directory, "secret.txt");
+        Files.write(file.toPath(), "SECRET".getBytes("UTF-8"));
+        secret = "<!DOCTYPE manifest [<!ENTITY ext SYSTEM '"
+                + file.toURI().toURL().toExternalForm() + "'>]>" + MINIMAL_BODY;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        StaxBuilderTest.delete(directory);
+        super.tearDown();
+    }
+
+    public void testJDomDoesNotResolveExternalEntities() throws Exception {
+        assertEquals("X[]", new JDomBuilder().build(StaxBuilderTest.stream(secret))
+                .getPrimaryLicense().getText());
+    }
+
+    public void testStaxDoesNotResolveExternalEntities() throws Exception {
+        assertEquals("X[]", new StaxBuilder().build(StaxBuilderTest.stream(secret))
+                .getPrimaryLicense().getText());
+    }
+
+    public void testJDomDoesNotLoadExternalDtd() throws Exception {
+        assertEquals("X", new JDomBuilder().build(StaxBuilderTest.stream(unreachableDtd()))
+                .getPrimaryLicense().getText());
+    }
+
+    public void testStaxDoesNotLoadExternalDtd() throws Exception {
+        assertEquals("X", new StaxBuilder().build(StaxBuilderTest.stream(unreachableDtd()))
+                .getPrimaryLicense().getText());
+    }
+
+    public void testJDomBuilderMayBeShared() throws Exception {
+        final JDomBuilder subject = new JDomBuilder();
+        assertSameWorkOnEveryThread(new Callable<String>() {
+            public String call() throws Exception {
+                return StaxBuilderTest.describe(
+                        subject.build(StaxBuilderTest.stream(StaxBuilderTest.DOCUMENT)));
+            }
+        });
+    }
+
+    public void testStaxBuilderMayBeShared() throws Exception {
+        final StaxBuilder subject = new StaxBuilder();
+        assertSameWorkOnEveryThread(new Callable<String>() {
+            public String call() throws Exception {
+                return StaxBuilderTest.describe(
+                        subject.build(StaxBuilderTest.stream(StaxBuilderTest.DOCUMENT)));
+            }
+        });
+    }
+
+    private static String unreachableDtd() {
+        return "<!DOCTYPE manifest SYSTEM 'http://whisker.invalid/manifest.dtd'>"
+                + MINIMAL_BODY.replace("[&ext;]", "");
+    }
+
+    private static void assertSameWorkOnEveryThread(final Callable<String> build)
+            throws Exception {
+        final String expected = build.call();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(build));
+            }
+            for (final Future<String> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.fromxml;
+
+import static org.apache.creadur.whisker.fromxml.StaxBuilderTest.DOCUMENT;
+import static org.apache.creadur.whisker.fromxml.StaxBuilderTest.describe;
+import static org.apache.creadur.whisker.fromxml.StaxBuilderTest.stream;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.creadur.whisker.model.Descriptor;
+import org.apache.creadur.whisker.model.WithinDirectory;
+
+public class StaxBuilderDiagnoseTest extends TestCase {
+
+    private static final String BROKEN =
+        "<manifest>\n"                                                   // 1
+        + "  <licenses>\n"                                               // 2
+        + "    <license id='AL2' name='Apache'><text>AL</text></license>\n" // 3
+        + "  </licenses>\n"                                              // 4
+        + "  <organisations><organisation id='asf' name='ASF'/></organisations>\n" // 5
+        + "  <primary-license id='missing'/>\n"                          // 6
+        + "  <within dir='lib'>\n"                                       // 7
+        + "    <with-license id='GPL'>\n"                                // 8
+        + "      <by-organisation id='asf'><resource name='a.jar'/></by-organisation>\n" // 9
+        + "    </with-license>\n"                                        // 10
+        + "    <with-license id='AL2'>\n"                                // 11
+        + "      <license-parameters>\n"                                 // 12
+        + "        <parameter><name>p</name><value>1</value></parameter>\n" // 13
+        + "        <parameter><name>p</name><value>2</value></parameter>\n" // 14
+        + "        <parameter><name>q</name></parameter>\n"              // 15
+        + "      </license-parameters>\n"                                // 16
+        + "      <by-organisation id='nobody'><resource name='b.jar'/></by-organisation>\n" // 17
+        + "      <by-organisation id='asf'><resource name='c.jar'/></by-organisation>\n" // 18
+        + "    </with-license>\n"                                        // 19
+        + "  </within>\n"                                                // 20
+        + "  <within dir='lib'/>\n"                                      // 21
+        + "</manifest>\n";
+
+    private StaxBuilder subject;
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        subject = new StaxBuilder();
+        directory = Files.createTempDirectory("whisker-diagnose").toFile();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        StaxBuilderTest.delete(directory);
+        super.tearDown();
+    }
+
+    public void testCleanDescriptorHasNoProblems() throws Exception {
+        final Diagnostics result = subject.diagnose(stream(DOCUMENT));
+        assertFalse(result.hasProblems());
+        assertEquals("", result.toString());
+        assertEquals(describe(subject.build(stream(DOCUMENT))),
+                describe(result.getDescriptor()));
+    }
+
+    public void testBuildStillStopsAtFirstProblem() throws Exception {
+        try {
+            subject.build(stream(BROKEN));
+            fail("Expected duplicate parameter");
+        } catch (DuplicateElementException e) {
+            assertEquals("Duplicate parameter 'p'", e.getMessage());
+        }
+    }
+
+    public void testEveryProblemIsReportedInOnePass() throws Exception {
+        final List<Problem> problems = subject.diagnose(stream(BROKEN)).getProblems();
+
+        assertEquals("[14 Duplicate parameter 'p', "
+                + "15 Expected parameter to have both name and value, "
+                + "6 Missing ID 'missing' for element 'license' linked from element 'primary-license', "
+                + "8 Missing ID 'GPL' for element 'license' linked from element 'with-license', "
+                + "17 Missing ID 'nobody' for element 'organisation' linked from element 'by-organisation', "
+                + "21 Duplicate parameter 'lib']",
+                lines(problems).toString());
+        for (final Problem problem: problems) {
+            assertTrue(problem.getColumn() > 0);
+            assertNull(problem.getSource());
+        }
+        assertTrue(problems.get(2).getException() instanceof MissingIDException);
+    }
+
+    public void testPartialWorkLeavesOutProblems() throws Exception {
+        final Descriptor result = subject.diagnose(stream(BROKEN)).getDescriptor();
+
+        assertNull(result.getPrimaryLicense());
+        assertEquals(1, result.getContents().size());
+        final WithinDirectory lib = result.getContents().iterator().next();
+        assertEquals(1, lib.getLicenses().size());
+        assertEquals("AL2", lib.getLicenses().iterator().next().getLicense().getId());
+        assertEquals("1", lib.getLicenses().iterator().next().getParameters().get("p"));
+        assertEquals(1, lib.getLicenses().iterator().next().getOrganisations().size());
+    }
+
+    public void testMalformedXmlIsReportedWithWorkReadSoFar() throws Exception {
+        final Diagnostics result = subject.diagnose(stream(
+                "<manifest>\n<licenses><license id='x'/></licenses>\n"
+                + "<primary-license id='x'/>\n<within dir='a'>\n</manifest>"));
+
+        assertEquals(1, result.getProblems().size());
+        assertEquals(5, result.getProblems().get(0).getLine());
+        assertEquals("x", result.getDescriptor().getPrimaryLicense().getId());
+    }
+
+    public void testProblemsInIncludesAreReportedAgainstThem() throws Exception {
+        final URL licenses = StaxBuilderTest.write(directory, "licenses.xml",
+                "<manifest>\n<licenses><license id='x'/></licenses>\n"
+                + "<within dir='a'><with-license id='y'/></within>\n</manifest>");
+        final URL root = StaxBuilderTest.write(directory, "root.xml",
+                "<manifest>\n<import href='licenses.xml'/>\n<import href='missing.xml'/>\n"
+                + "<import/>\n<primary-license id='x'/>\n</manifest>");
+
+        final Diagnostics result = subject.diagnose(root);
+
+        assertEquals(3, result.getProblems().size());
+        assertEquals(root.toExternalForm(), result.getProblems().get(0).getSource());
+        assertEquals(4, result.getProblems().get(0).getLine());
+        assertEquals(new URL(root, "missing.xml").toExternalForm(),
+                result.getProblems().get(1).getSource());
+        assertEquals(Problem.UNKNOWN, result.getProblems().get(1).getLine());
+        assertEquals(licenses.toExternalForm(), result.getProblems().get(2).getSource());
+        assertEquals(3, result.getProblems().get(2).getLine());
+        assertTrue(result.getProblems().get(2).toString(),
+                result.getProblems().get(2).toString().startsWith(
+                        licenses.toExternalForm() + ":3:"));
+        assertEquals("x", result.getDescriptor().getPrimaryLicense().getId());
+    }
+
+    private static final String UNNAMED =
+        "<manifest>\n"                                                   // 1
+        + "  <licenses><license id='x'/></licenses>\n"                   // 2
+        + "  <organisations><organisation id='o' name='O'/></organisations>\n" // 3
+        + "  <primary-license id='x'/>\n"                                // 4
+        + "  <within>\n"                                                 // 5
+        + "    <with-license id='y'/>\n"                                 // 6
+        + "  </within>\n"                                                // 7
+        + "  <within dir='lib'><with-license id='x'><by-organisation id='o'>\n" // 8
+        + "    <resource/>\n"                                            // 9
+        + "    <resource name='a.jar'/>\n"                               // 10
+        + "  </by-organisation></with-license></within>\n"               // 11
+        + "</manifest>\n";
+
+    public void testMissingNamesAreReported() throws Exception {
+        final Diagnostics result = subject.diagnose(stream(UNNAMED));
+
+        assertEquals("[5 Missing attribute 'dir' for element 'within', "
+                + "9 Missing attribute 'name' for element 'resource', "
+                + "6 Missing ID 'y' for element 'license' linked from element 'with-license']",
+                lines(result.getProblems()).toString());
+        assertTrue(result.getProblems().get(0).getException()
+                instanceof MissingAttributeException);
+        final Descriptor work = result.getDescriptor();
+        assertEquals(1, work.getContents().size());
+        assertEquals("a.jar", work.getContents().iterator().next().getLicenses()
+                .iterator().next().getOrganisations().iterator().next()
+                .getResources().iterator().next().getName());
+    }
+
+    public void testBuildReportsMissingNames() throws Exception {
+        try {
+            subject.build(stream("<manifest><licenses><license id='x'/></licenses>"
+                    + "<primary-license id='x'/><within/></manifest>"));
+            fail("Expected missing dir");
+        } catch (MissingAttributeException e) {
+            assertEquals("dir", e.getAttribute());
+        }
+        try {
+            subject.build(stream("<manifest><licenses><license id='x'/></licenses>"
+                    + "<organisations><organisation id='o' name='O'/></organisations>"
+                    + "<primary-license id='x'/><within dir='lib'><with-license id='x'>"
+                    + "<by-organisation id='o'><resource/></by-organisation>"
+                    + "</with-license></within></manifest>"));
+            fail("Expected missing name");
+        } catch (MissingAttributeException e) {
+            assertEquals("resource", e.getElement());
+        }
+    }
+
+    private static List<String> lines(final List<Problem> problems) {
+        final List<String> results = new ArrayList<String>();
+        for (final Problem problem: problems) {
+            results.add(problem.getLine() + " " + problem.getMessage());
+        }
+        return results;
+    }
+}
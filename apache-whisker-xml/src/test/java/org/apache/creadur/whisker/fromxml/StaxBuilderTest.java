@@ -0,0 +1,433 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License. 
+ */
+package org.apache.creadur.whisker.fromxml;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.apache.creadur.whisker.model.ByOrganisation;
+import org.apache.creadur.whisker.model.Descriptor;
+import org.apache.creadur.whisker.model.License;
+import org.apache.creadur.whisker.model.Organisation;
+import org.apache.creadur.whisker.model.Resource;
+import org.apache.creadur.whisker.model.StringPool;
+import org.apache.creadur.whisker.model.WithLicense;
+import org.apache.creadur.whisker.model.WithinDirectory;
+
+/**
+ * Checks that streaming builds the same model as {@link JDomBuilder}.
+ */
+public class StaxBuilderTest extends TestCase {
+
+    static final String DOCUMENT =
+        "<?xml version='1.0' encoding='UTF-8'?>\n"
+        + "<!DOCTYPE manifest [\n"
+        + "<!ENTITY asf 'The Apache Software Foundation'>\n"
+        + "<!ATTLIST license requires-source (yes|no) 'no'>\n"
+        + "]>\n"
+        + "<!-- comment -->\n"
+        + "<manifest>\n"
+        + "  <licenses>\n"
+        + "    <license id='AL2' name='Apache License 2.0' url='http://www.apache.org/licenses/'>\n"
+        + "      <text>  Licensed by &asf;\n  <![CDATA[<verbatim>]]> </text>\n"
+        + "    </license>\n"
+        + "    <license id='BSD' name='BSD' requires-source='YES'>\n"
+        + "      <template><parameter-name> owner </parameter-name></template>\n"
+        + "      <text>Copyright ${owner}</text>\n"
+        + "    </license>\n"
+        + "    <license id='empty' name='No text'/>\n"
+        + "  </licenses>\n"
+        + "  <notices>\n"
+        + "    <notice id='n1'> Includes &asf; software </notice>\n"
+        + "  </notices>\n"
+        + "  <organisations>\n"
+        + "    <organisation id='asf' name='&asf;' url='https://www.apache.org/'/>\n"
+        + "    <organisation id='bsd.org' name='BSD Org'/>\n"
+        + "  </organisations>\n"
+        + "  <primary-license id='AL2'>\n"
+        + "    <copyright-notice> Copyright (c) me </copyright-notice>\n"
+        + "  </primary-license>\n"
+        + "  <primary-notice>Copyright ${year} &asf;</primary-notice>\n"
+        + "  <primary-organisation id='asf'/>\n"
+        + "  <scan><exclude> docs/** </exclude><include>lib/*.jar</include></scan>\n"
+        + "  <within dir='lib'>\n"
+        + "    <public-domain>\n"
+        + "      <by-organisation id='asf'><resource name='pd.jar'/></by-organisation>\n"
+        + "    </public-domain>\n"
+        + "    <with-license id='BSD'>\n"
+        + "      <copyright-notice>Copyright BSD</copyright-notice>\n"
+        + "      <license-parameters>\n"
+        + "        <parameter><name> owner </name><value> Someone </value></parameter>\n"
+        + "      </license-parameters>\n"
+        + "      <by-organisation id='bsd.org'>\n"
+        + "        <resource name=' b.jar ' source='http://example.org/b'/>\n"
+        + "        <resource name='a.jar' notice='n1'/>\n"
+        + "      </by-organisation>\n"
+        + "    </with-license>\n"
+        + "    <with-license id='AL2'>\n"
+        + "      <by-organisation id='asf'><resource name='c.jar'/></by-organisation>\n"
+        + "    </with-license>\n"
+        + "  </within>\n"
+        + "  <within dir='.'>\n"
+        + "    <with-license id='empty'><by-organisation id='asf'/></with-license>\n"
+        + "  </within>\n"
+        + "</manifest>\n";
+
+    private StaxBuilder subject;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        subject = new StaxBuilder();
+    }
+
+    public void testBuildsSameWorkAsJDom() throws Exception {
+        assertEquals(describe(new JDomBuilder().build(stream(DOCUMENT))),
+                describe(subject.build(stream(DOCUMENT))));
+    }
+
+    public void testBuildsMinimalWork() throws Exception {
+        final String document = "<manifest><licenses><license id='x'><text>X</text></license>"
+                + "</licenses><primary-license id='x'/></manifest>";
+        final Descriptor result = subject.build(stream(document));
+        assertEquals(describe(new JDomBuilder().build(stream(document))), describe(result));
+        assertEquals("X", result.getPrimaryLicense().getText());
+        assertTrue(result.getContents().isEmpty());
+        assertTrue(result.getScanIncludes().isEmpty());
+    }
+
+    public void testLinksMayPrecedeDefinitions() throws Exception {
+        final Descriptor result = subject.build(stream(
+                "<manifest><primary-license id='x'/>"
+                + "<within dir='.'><with-license id='x'><by-organisation id='o'>"
+                + "<resource name='r'/></by-organisation></with-license></within>"
+                + "<organisations><organisation id='o' name='O'/></organisations>"
+                + "<licenses><license id='x'><text>X</text></license></licenses>"
+                + "</manifest>"));
+        assertEquals("O", result.getContents().iterator().next().getLicenses()
+                .iterator().next().getOrganisations().iterator().next().getName());
+    }
+
+    public void testMissingLicenseIsReported() throws Exception {
+        try {
+            subject.build(stream("<manifest><licenses><license id='x'/></licenses>"
+                    + "<primary-license id='x'/><within dir='.'>"
+                    + "<with-license id='missing'/></within></manifest>"));
+            fail("Expected missing license to be reported");
+        } catch (MissingIDException e) {
+            assertEquals("missing", e.getId());
+            assertEquals("with-license", e.getLinkingElement());
+        }
+    }
+
+    public void testMissingOrganisationIsReported() throws Exception {
+        try {
+            subject.build(stream("<manifest><licenses><license id='x'/></licenses>"
+                    + "<primary-license id='x'/><within dir='.'>"
+                    + "<with-license id='x'><by-organisation id='missing'/>"
+                    + "</with-license></within></manifest>"));
+            fail("Expected missing organisation to be reported");
+        } catch (MissingIDException e) {
+            assertEquals("organisation", e.getLinkedElement());
+            assertEquals("by-organisation", e.getLinkingElement());
+        }
+    }
+
+    public void testDuplicateDirectoriesAreReported() throws Exception {
+        try {
+            subject.build(stream("<manifest><licenses><license id='x'/></licenses>"
+                    + "<primary-license id='x'/><within dir='.'/><within dir='.'/></manifest>"));
+            fail("Expected duplicate directory to be reported");
+        } catch (DuplicateElementException e) {
+            // Expected
+        }
+    }
+
+    public void testDuplicateParametersAreReported() throws Exception {
+        try {
+            subject.build(stream("<manifest><licenses><license id='x'/></licenses>"
+                    + "<primary-license id='x'/><within dir='.'><with-license id='x'>"
+                    + "<license-parameters>"
+                    + "<parameter><name>a</name><value>1</value></parameter>"
+                    + "<parameter><name>a</name><value>2</value></parameter>"
+                    + "</license-parameters></with-license></within></manifest>"));
+            fail("Expected duplicate parameter to be reported");
+        } catch (DuplicateElementException e) {
+            // Expected
+        }
+    }
+
+    public void testIncludesAreMerged() throws Exception {
+        final File directory = Files.createTempDirectory("whisker-includes").toFile();
+        try {
+            write(directory, "licenses.xml", "<manifest><licenses>"
+                    + "<license id='x' name='X'><text>X</text></license>"
+                    + "</licenses><import href='parts/organisations.xml'/></manifest>");
+            write(directory, "parts/organisations.xml", "<manifest><organisations>"
+                    + "<organisation id='o' name='O'/></organisations>"
+                    + "<import href='within.xml'/></manifest>");
+            write(directory, "parts/within.xml", "<manifest><within dir='lib'>"
+                    + "<with-license id='x'><by-organisation id='o'><resource name='r.jar'/>"
+                    + "</by-organisation></with-license></within></manifest>");
+            final Descriptor result = subject.setThreads(2).build(write(directory, "root.xml",
+                    "<manifest><import href='licenses.xml'/><primary-license id='x'/>"
+                    + "<within dir='.'><with-license id='x'/></within></manifest>"));
+
+            assertEquals("X", result.getPrimaryLicense().getName());
+            assertEquals("O", result.getOrganisations().get("o").getName());
+            assertEquals(2, result.getContents().size());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    public void testDuplicateIdsAcrossIncludesAreReported() throws Exception {
+        final File directory = Files.createTempDirectory("whisker-includes").toFile();
+        try {
+            write(directory, "a.xml", "<manifest><licenses><license id='x'/></licenses></manifest>");
+            write(directory, "b.xml", "<manifest><licenses><license id='x'/></licenses></manifest>");
+            subject.build(write(directory, "root.xml", "<manifest><import href='a.xml'/>"
+                    + "<import href='b.xml'/><primary-license id='x'/></manifest>"));
+            fail("Expected duplicate license to be reported");
+        } catch (DuplicateElementException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("b.xml"));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    public void testCyclicIncludesAreReported() throws Exception {
+        final File directory = Files.createTempDirectory("whisker-includes").toFile();
+        try {
+            write(directory, "a.xml", "<manifest><import href='root.xml'/></manifest>");
+            subject.build(write(directory, "root.xml", "<manifest><import href='a.xml'/>"
+                    + "<licenses><license id='x'/></licenses><primary-license id='x'/></manifest>"));
+            fail("Expected cycle to be reported");
+        } catch (InvalidXmlException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("root.xml"));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    public void testDescriptorsIncludedTwiceAreMergedOnce() throws Exception {
+        final File directory = Files.createTempDirectory("whisker-includes").toFile();
+        try {
+            write(directory, "common.xml", "<manifest><licenses>"
+                    + "<license id='AL' name='AL'><text>AL</text></license>"
+                    + "</licenses></manifest>");
+            write(directory, "a.xml", "<manifest><import href='common.xml'/>"
+                    + "<organisations><organisation id='o' name='O'/></organisations>"
+                    + "</manifest>");
+            write(directory, "b.xml", "<manifest><import href='common.xml'/>"
+                    + "<within dir='lib'><with-license id='AL'><by-organisation id='o'>"
+                    + "<resource name='r.jar'/></by-organisation></with-license></within>"
+                    + "</manifest>");
+            final String root = "<manifest><import href='a.xml'/><import href='b.xml'/>"
+                    + "<primary-license id='AL'/></manifest>";
+            final Map<String, String> included = new HashMap<String, String>();
+            final Descriptor result = subject.setThreads(2).build(stream(root),
+                    write(directory, "root.xml", root), included);
+
+            assertEquals("AL", result.getPrimaryLicense().getName());
+            assertEquals(1, result.getLicenses().size());
+            assertEquals(1, result.getContents().size());
+            assertEquals(3, included.size());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    public void testIncludesRequireLocation() throws Exception {
+        try {
+            subject.build(stream("<manifest><import href='a.xml'/></manifest>"));
+            fail("Expected include without location to be reported");
+        } catch (InvalidXmlException e) {
+            // Expected
+        }
+    }
+
+    private static final String REPEATED =
+        "<manifest>\n"
+        + "  <licenses><license id='AL2' name='Apache'/></licenses>\n"
+        + "  <primary-license id='AL2'/>\n"
+        + "  <within dir='a'><with-license id='AL2'>\n"
+        + "    <copyright-notice>Copyright me</copyright-notice>\n"
+        + "    <by-organisation id='asf'>\n"
+        + "      <resource name='a.jar' notice='n1' source='http://example.org/'/>\n"
+        + "    </by-organisation></with-license></within>\n"
+        + "  <within dir='b'><with-license id='AL2'>\n"
+        + "    <copyright-notice>Copyright me</copyright-notice>\n"
+        + "    <by-organisation id='asf'>\n"
+        + "      <resource name='b.jar' notice='n1' source='http://example.org/'/>\n"
+        + "    </by-organisation></with-license></within>\n"
+        + "  <organisations><organisation id='asf' name='ASF'/></organisations>\n"
+        + "</manifest>\n";
+
+    private static List<Resource> resources(final Descriptor work) {
+        final List<Resource> results = new ArrayList<Resource>();
+        for (final WithinDirectory directory: work.getContents()) {
+            for (final WithLicense license: directory.getLicenses()) {
+                for (final ByOrganisation organisation: license.getOrganisations()) {
+                    results.addAll(organisation.getResources());
+                }
+            }
+        }
+        return results;
+    }
+
+    private static List<String> copyrightNotices(final Descriptor work) {
+        final List<String> results = new ArrayList<String>();
+        for (final WithinDirectory directory: work.getContents()) {
+            for (final WithLicense license: directory.getLicenses()) {
+                results.add(license.getCopyrightNotice());
+            }
+        }
+        return results;
+    }
+
+    public void testRepeatedValuesAreInterned() throws Exception {
+        final Descriptor work = subject.build(stream(REPEATED));
+        final List<Resource> resources = resources(work);
+        assertEquals(2, resources.size());
+        assertSame(resources.get(0).getSource(), resources.get(1).getSource());
+        assertSame(resources.get(0).getNoticeId(), resources.get(1).getNoticeId());
+        final List<String> notices = copyrightNotices(work);
+        assertSame(notices.get(0), notices.get(1));
+    }
+
+    public void testSharedPoolInternsAcrossBuilds() throws Exception {
+        final StringPool strings = new StringPool();
+        subject.setStringPool(strings);
+        final Descriptor first = subject.build(stream(REPEATED));
+        final Descriptor second = subject.build(stream(REPEATED));
+        final Descriptor third = new JDomBuilder(strings).build(stream(REPEATED));
+
+        assertSame(first.getPrimaryLicense().getId(), second.getPrimaryLicense().getId());
+        assertSame(first.getPrimaryLicense().getId(), third.getPrimaryLicense().getId());
+        assertEquals(first.getPrimaryLicense(), third.getPrimaryLicense());
+        assertSame(resources(first).get(0).getSource(), resources(third).get(0).getSource());
+    }
+
+    public void testEachBuildHasOwnPoolByDefault() throws Exception {
+        final Descriptor first = subject.build(stream(REPEATED));
+        final Descriptor second = subject.build(stream(REPEATED));
+
+        assertNotSame(first.getPrimaryLicense().getId(), second.getPrimaryLicense().getId());
+        assertEquals(first.getPrimaryLicense(), second.getPrimaryLicense());
+    }
+
+    public void testJDomBuilderHasPoolPerDescriptorByDefault() throws Exception {
+        final JDomBuilder builder = new JDomBuilder();
+        final Descriptor first = builder.build(stream(REPEATED));
+        final Descriptor second = builder.build(stream(REPEATED));
+
+        assertNull(builder.getStringPool());
+        assertSame(resources(first).get(0).getSource(), resources(first).get(1).getSource());
+        assertNotSame(resources(first).get(0).getSource(), resources(second).get(0).getSource());
+    }
+
+    static URL write(final File directory, final String name, final String document)
+            throws Exception {
+        final File file = new File(directory, name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), document.getBytes(StandardCharsets.UTF_8));
+        return file.toURI().toURL();
+    }
+
+    static void delete(final File file) {
+        if (file.isDirectory()) {
+            for (final File child: file.listFiles()) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    static ByteArrayInputStream stream(final String document) {
+        return new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String describe(final Descriptor work) throws Exception {
+        final StringBuilder result = new StringBuilder();
+        result.append("primary: ");
+        describe(work.getPrimaryLicense(), result);
+        result.append("\ncopyright: ").append(work.getPrimaryCopyrightNotice())
+            .append("\nnotice: ").append(work.getPrimaryNotice())
+            .append("\nnotices: ").append(new TreeMap<String, Object>(work.getResourceNotices()))
+            .append("\nother notices: ").append(new TreeSet<String>(work.getOtherNotices()))
+            .append("\norganisations: ");
+        for (final Map.Entry<String, Organisation> entry:
+                new TreeMap<String, Organisation>(work.getOrganisations()).entrySet()) {
+            result.append(entry.getKey()).append('=').append(entry.getValue()).append(' ')
+                .append(entry.getValue().getURL()).append("; ");
+        }
+        result.append("\nincludes: ").append(work.getScanIncludes())
+            .append("\nexcludes: ").append(work.getScanExcludes());
+        for (final WithinDirectory directory: work.getContents()) {
+            result.append("\nwithin ").append(directory.getName());
+            for (final ByOrganisation organisation: directory.getPublicDomain()) {
+                result.append("\n  public domain ");
+                describe(organisation, result);
+            }
+            for (final WithLicense license: directory.getLicenses()) {
+                result.append("\n  with ");
+                describe(license.getLicense(), result);
+                result.append(" copyright ").append(license.getCopyrightNotice())
+                    .append(" parameters ").append(new TreeMap<String, String>(license.getParameters()))
+                    .append(" text ").append(license.getText());
+                for (final ByOrganisation organisation: license.getOrganisations()) {
+                    result.append("\n    ");
+                    describe(organisation, result);
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    private static void describe(final License license, final StringBuilder result)
+            throws Exception {
+        result.append(license.getId()).append(' ').append(license.getName())
+            .append(' ').append(license.getURL()).append(' ').append(license.isSourceRequired())
+            .append(' ').append(new TreeSet<String>(license.getExpectedParameters()));
+        if (license.getExpectedParameters().isEmpty()) {
+            result.append(" [").append(license.getText()).append(']');
+        }
+    }
+
+    private static void describe(final ByOrganisation organisation, final StringBuilder result) {
+        result.append(organisation.getOrganisation()).append(':');
+        for (final Resource resource: organisation.getResources()) {
+            result.append(' ').append(Arrays.asList(resource.getName(),
+                    resource.getNoticeId(), resource.getSource()));
+        }
+    }
+}